@@ -1,6 +1,9 @@
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Reader;
-import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.ParseException;
 
 /**
@@ -12,307 +15,225 @@ public class JSON {
   // +---------------+
 
   /**
-   * The current position in the input.
+   * One parser per thread, so that parsing on separate threads never shares
+   * state and repeated calls on the same thread reuse the same parser.
    */
-  static int pos;
+  static final ThreadLocal<JSONParser> PARSERS = ThreadLocal.withInitial(JSONParser::new);
 
   // +----------------+----------------------------------------------
   // | Static methods |
   // +----------------+
 
   /**
-   * Parse a string into JSON.
-   */
-  /*
-   * public static JSONValue parse(String source) throws ParseException,
-   * IOException {
-   * return parse(new StringReader(source));
-   * } // parse(String)
+   * Parse JSON from a reader.
    */
+  public static JSONValue parse(Reader source) throws ParseException, IOException {
+    return parser().parse(source);
+  } // parse(Reader)
+
   /**
-   * Parse a file into JSON.
-   */
-  /*
-   * public static JSONValue parseFile(String filename) throws ParseException,
-   * IOException {
-   * FileReader reader = new FileReader(filename);
-   * JSONValue result = parse(reader);
-   * reader.close();
-   * return result;
-   * } // parseFile(String)
+   * Parse JSON from a string.
    */
+  public static JSONValue parse(String source) throws ParseException, IOException {
+    return parser().parse(source);
+  } // parse(String)
 
   /**
-   * Parse JSON from a reader.
+   * Parse JSON from len bytes of UTF-8, starting at bytes[off].
    */
-  public static JSONValue parse(Reader source) throws ParseException, IOException {
-    pos = 0;
-    JSONValue result = parseKernel(source);
-    if (-1 != skipWhitespace(source)) {
-      throw new ParseException("Characters remain at end", pos);
-    }
-    return result;
-  } // parse(Reader)
+  public static JSONValue parse(byte[] bytes, int off, int len) throws ParseException, IOException {
+    return parser().parse(bytes, off, len);
+  } // parse(byte[], int, int)
 
-  // +---------------+-----------------------------------------------
-  // | Local helpers |
-  // +---------------+
+  /**
+   * Parse JSON from the UTF-8 bytes remaining in a buffer. The buffer's
+   * position does not change.
+   */
+  public static JSONValue parse(ByteBuffer source) throws ParseException, IOException {
+    return parser().parse(source);
+  } // parse(ByteBuffer)
 
   /**
-   * Parse JSON from a reader, keeping track of the current position
-   * check for opening characters for a JSONValue
-   * 
-   * @throws ParseException
+   * Parse a file of UTF-8 JSON.
    */
+  public static JSONValue parseFile(Path path) throws ParseException, IOException {
+    return parser().parseFile(path);
+  } // parseFile(Path)
 
-  static JSONValue parseKernel(Reader source) throws ParseException, IOException {
-    int ch;
-    ch = skipWhitespace(source);
-    if (-1 == ch) {
-      throw new ParseException("Unexpected end of file", pos);
-    }
+  /**
+   * Parse a file of UTF-8 JSON, given its name.
+   */
+  public static JSONValue parseFile(String filename) throws ParseException, IOException {
+    return parseFile(Paths.get(filename));
+  } // parseFile(String)
 
-    if (ch == Character.valueOf('"')) {
-      return parseString(source);
-    } else if (ch >= Character.valueOf('0') && ch <= Character.valueOf('9')) {
-      return parseNumber(source, ch);
-    } else if (ch == Character.valueOf('{')) {
-      return parseHash(source);
-    } else if (ch == Character.valueOf('-')) {
-      return parseNegNum(source, ch);
-    } else if (ch == Character.valueOf('f') || ch == Character.valueOf('t') || ch == Character.valueOf('n')) {
-      return parseConstant(source, ch);
-    } else if (ch == Character.valueOf('[')) {
-      return parseArray(source);
-    } else {
-      throw new ParseException("Illegal opening" + (char) ch, pos);
-    }
-  } // parseKernel
+  /**
+   * Parse JSON from a string, leaving nested objects and arrays unparsed
+   * until they are used.
+   */
+  public static JSONValue parseLazy(String source) throws ParseException, IOException {
+    return parser().parseLazy(source);
+  } // parseLazy(String)
 
   /**
-   * Parses JSONHash using calls to other helper functions to cover everything
-   * inside a Hash,
-   * while catching empty Hashes as an edge case
+   * Parse len bytes of UTF-8, starting at bytes[off], lazily. The array must
+   * not change while any nested value is still unparsed.
    */
-  public static JSONHash parseHash(Reader source) throws IOException, ParseException {
-    int ch;
-    JSONHash hash = new JSONHash();
+  public static JSONValue parseLazy(byte[] bytes, int off, int len) throws ParseException, IOException {
+    return parser().parseLazy(bytes, off, len);
+  } // parseLazy(byte[], int, int)
 
-    source.mark(5);
-    ch = skipWhitespace(source);
+  /**
+   * Parse the UTF-8 bytes remaining in a buffer lazily. The buffer's
+   * contents must not change while any nested value is still unparsed.
+   */
+  public static JSONValue parseLazy(ByteBuffer source) throws ParseException, IOException {
+    return parser().parseLazy(source);
+  } // parseLazy(ByteBuffer)
 
-    if ((char) ch == '}') {
-      return hash;
-    }
+  /**
+   * Parse JSON from a string, keeping arrays of objects that all have the
+   * same keys as columns.
+   */
+  public static JSONValue parseColumnar(String source) throws ParseException, IOException {
+    return parser().parseColumnar(source);
+  } // parseColumnar(String)
 
-    source.reset();
+  /**
+   * Parse the UTF-8 bytes remaining in a buffer, keeping arrays of objects
+   * that all have the same keys as columns.
+   */
+  public static JSONValue parseColumnar(ByteBuffer source) throws ParseException, IOException {
+    return parser().parseColumnar(source);
+  } // parseColumnar(ByteBuffer)
 
-    // continue to parse key value pairs until encounter end other than a comma
-    do {
-      JSONValue key = parseKernel(source);
-      if (!(key instanceof JSONString)) {
-        throw new ParseException("Illegal key value" + key, pos);
-      }
-      ch = skipWhitespace(source);
-      if (ch != Character.valueOf(':')) {
-        throw new ParseException("Missing colon", pos);
-      }
-      JSONValue value = parseKernel(source);
-      hash.set((JSONString) key, value);
-      ch = skipWhitespace(source);
-    } while (ch == Character.valueOf(','));
-    // check if it's legal end
-    if (ch != Character.valueOf('}')) {
-      throw new ParseException("Unexpected end " + (char) ch, pos);
-    }
-    return hash;
-  } // parseHash
+  /**
+   * Report the JSON from a reader to a visitor, without building any
+   * values.
+   */
+  public static void visit(Reader source, JSONVisitor visitor) throws ParseException, IOException {
+    parser().visit(source, visitor);
+  } // visit(Reader, JSONVisitor)
 
   /**
-   * Parses JSONArray using calls to other helper functions to cover everything
-   * inside a Hash,
-   * while catching empty Arrays as an edge case
+   * Report the JSON in a string to a visitor.
    */
-  public static JSONArray parseArray(Reader source) throws IOException, ParseException {
-    int ch;
-    JSONArray arr = new JSONArray();
-    // continue to parse key value pairs until encounter end other than a comma
+  public static void visit(String source, JSONVisitor visitor) throws ParseException, IOException {
+    parser().visit(source, visitor);
+  } // visit(String, JSONVisitor)
 
-    source.mark(5);
-    ch = skipWhitespace(source);
+  /**
+   * Report the JSON in the UTF-8 bytes remaining in a buffer to a visitor.
+   */
+  public static void visit(ByteBuffer source, JSONVisitor visitor) throws ParseException, IOException {
+    parser().visit(source, visitor);
+  } // visit(ByteBuffer, JSONVisitor)
 
-    if ((char) ch == ']') {
-      return arr;
-    }
+  /**
+   * Report a file of UTF-8 JSON to a visitor.
+   */
+  public static void visitFile(Path path, JSONVisitor visitor) throws ParseException, IOException {
+    parser().visitFile(path, visitor);
+  } // visitFile(Path, JSONVisitor)
 
-    source.reset();
+  /**
+   * Parses a JSON hash whose opening brace has already been read.
+   */
+  public static JSONHash parseHash(Reader source) throws IOException, ParseException {
+    return parserFor(source).parseHash();
+  } // parseHash(Reader)
 
-    do {
-      JSONValue value = parseKernel(source);
-      arr.add(value);
-      ch = skipWhitespace(source);
-    } while (ch == Character.valueOf(','));
-    // check if it's legal end
-    if (ch != Character.valueOf(']')) {
-      throw new ParseException("Unexpected end " + (char) ch, pos);
-    }
-    return arr;
-  } // parseArray
+  /**
+   * Parses a JSON array whose opening bracket has already been read.
+   */
+  public static JSONArray parseArray(Reader source) throws IOException, ParseException {
+    return parserFor(source).parseArray();
+  } // parseArray(Reader)
 
   /**
-   * Parses a JSON string
-   * 
-   * @param source
-   * @return
-   * @throws IOException
-   * @throws ParseException
+   * Parses a JSON string whose opening quote has already been read.
    */
   public static JSONString parseString(Reader source) throws IOException, ParseException {
-    String str = "";
-    int ch = skipWhitespace(source);
-    while (ch != Character.valueOf('"') && ch != -1) {
-      if (ch == Character.valueOf('\\')) {
-        ch = source.read();
-        if (ch == 'n') {
-          str += '\n';
-        } else if (ch == '"') {
-          str += '\"';
-        } else {
-          str += (char) ch;
-        }
-        ch = source.read();
-        continue;
-      }
-      str += (char) ch;
-      ch = source.read();
-    }
-    if (ch == -1) {
-      throw new ParseException("Unexpected end", pos);
-    }
-    return new JSONString(str);
-  } // parseString
+    return parserFor(source).parseString();
+  } // parseString(Reader)
 
   /**
-   * Parses a negative JSON number
-   * 
-   * @param source
-   * @param ch
-   * @return
-   * @throws IOException
-   * @throws ParseException
+   * Get a value as JSON text, laid out as format says.
    */
-  public static JSONValue parseNegNum(Reader source, int ch) throws IOException, ParseException {
-    JSONValue num = parseNumber(source, ch);
-    String numStr = "-" + num.toString();
-    System.out.println(num.toString());
-    if (num instanceof JSONInteger) {
-      return new JSONInteger(numStr);
-    } else if (num instanceof JSONReal) {
-      return new JSONReal(numStr);
-    } else {
-      throw new ParseException("Unexpected output while parsing negative number", pos);
+  public static String toString(JSONValue value, JSONFormat format) {
+    JSONCharWriter writer = new JSONCharWriter();
+    try {
+      value.writeJSON(writer.format(format));
+    } catch (IOException e) {
+      // A writer that keeps its characters never fails to write
+      throw new IllegalStateException(e);
     }
-  } // parseNegNum
+    return writer.toString();
+  } // toString(JSONValue, JSONFormat)
 
   /**
-   * Parses a constant value (true/false)
-   * 
-   * @param source
-   * @param ch
-   * @return
-   * @throws IOException
-   * @throws ParseException
+   * Write a value as JSON to a Writer, StringBuilder, or other Appendable,
+   * laid out as format says.
    */
-  public static JSONConstant parseConstant(Reader source, int ch) throws IOException, ParseException {
-    String str = "" + (char) ch;
-    ch = source.read();
-    while (ch >= Character.valueOf('a') && ch <= Character.valueOf('z')) {
-      str += (char) ch;
-      source.mark(1);
-      ch = source.read();
-    }
-    source.reset();
-    System.out.println(str);
-
-    // Check if string is indicating true/false/null
-    if (str.equals("null")) {
-      return JSONConstant.NULL;
-    } else if (str.equals("true")) {
-      return JSONConstant.TRUE;
-    } else if (str.equals("false")) {
-      return JSONConstant.FALSE;
-    } else {
-      throw new ParseException("Illegal constant value", pos);
-    }
-  } // parseConstant
+  public static void write(JSONValue value, Appendable out, JSONFormat format) throws IOException {
+    JSONWriter writer = new JSONCharWriter(out).format(format);
+    value.writeJSON(writer);
+    writer.flush();
+  } // write(JSONValue, Appendable, JSONFormat)
 
   /**
-   * Parses integer value, calling on parseReal if a dot is detected
-   * 
-   * @param source
-   * @param ch
-   * @return
-   * @throws IOException
-   * @throws ParseException
+   * Write a value as UTF-8 JSON to a stream, laid out as format says.
    */
-  public static JSONValue parseNumber(Reader source, int ch) throws IOException, ParseException {
-    String numStr = String.valueOf((char) ch);
-    // bad solution
-    source.mark(1);
-    ch = source.read();
-    while (ch >= Character.valueOf('0') && ch <= Character.valueOf('9')) {
-      numStr += (char) ch;
-      source.mark(1);
-      ch = source.read();
-    }
-    if (ch == Character.valueOf('.')) {
-      return parseReal(source, numStr);
-    }
-    source.reset();
-    // if it's not digit or decimal, throw exception
-    if (ch >= Character.valueOf('0') && ch <= Character.valueOf('9') && ch != Character.valueOf('.')) {
-      throw new ParseException("Illegal character " + (char) ch, pos);
-    }
-    // if we come to end of file, throw exception
-    if (ch == -1) {
-      throw new ParseException("Unexpected end", pos);
+  public static void write(JSONValue value, OutputStream out, JSONFormat format) throws IOException {
+    JSONByteWriter writer = new JSONByteWriter(out);
+    try {
+      value.writeJSON(writer.format(format));
+      writer.flush();
+    } finally {
+      writer.release();
     }
-    return new JSONInteger(new BigInteger(numStr.trim()));
-  } // parseNumber
+  } // write(JSONValue, OutputStream, JSONFormat)
 
   /**
-   * Parses decimal value
-   * 
-   * @param source
-   * @param numStr
-   * @return
-   * @throws IOException
-   * @throws ParseException
-   */
-  public static JSONReal parseReal(Reader source, String numStr) throws IOException, ParseException {
-    int ch = source.read();
-    numStr += '.';
-    while (ch >= Character.valueOf('0') && ch <= Character.valueOf('9')) {
-      numStr += (char) ch;
-      source.mark(1);
-      ch = source.read();
+   * Make an immutable version of a value, which may then be shared between
+   * threads without locking. Objects and arrays become JSONFrozenHashes and
+   * JSONFrozenArrays, all the way down; other values are already immutable.
+   */
+  public static JSONValue freeze(JSONValue value) {
+    if (value instanceof JSONHash) {
+      return JSONFrozenHash.of((JSONHash) value);
+    } else if (value instanceof JSONArray) {
+      return JSONFrozenArray.of((JSONArray) value);
+    } else {
+      return value;
     }
+  } // freeze(JSONValue)
 
-    source.reset();
-    return new JSONReal(numStr);
-  } // ParseReal
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
 
   /**
-   * Get the next character from source, skipping over whitespace.
+   * Get a parser for the current thread. If the thread's parser is already
+   * busy (e.g., we were called while it was parsing), use a fresh one.
    */
-  static int skipWhitespace(Reader source) throws IOException {
-    int ch;
-    do {
-      ch = source.read();
-      ++pos;
-    } while (isWhitespace(ch));
-    return ch;
-  } // skipWhitespace(Reader)
+  static JSONParser parser() {
+    JSONParser parser = PARSERS.get();
+    if (parser.isBusy()) {
+      parser = new JSONParser();
+    }
+    return parser;
+  } // parser()
+
+  /**
+   * Get a fresh parser that is already reading from source, for the
+   * individual helpers.
+   */
+  static JSONParser parserFor(Reader source) {
+    JSONParser parser = new JSONParser();
+    parser.start(source);
+    return parser;
+  } // parserFor(Reader)
 
   /**
    * Determine if a character is JSON whitespace (newline, carriage return,
@@ -1,6 +1,8 @@
-import java.io.PrintWriter;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
 
 /**
  * JSON arrays.
@@ -20,6 +22,11 @@ public class JSONArray implements JSONValue {
    */
   ArrayList<JSONValue> values;
 
+  /**
+   * Our saved encoding, if we are memoized or part of something that is.
+   */
+  JSONCache cache;
+
   // +--------------+------------------------------------------------
   // | Constructors |
   // +--------------+
@@ -36,28 +43,47 @@ public class JSONArray implements JSONValue {
   // +-------------------------+
 
   /**
-   * Convert to a string (e.g., for printing).
+   * Convert to a string (e.g., for printing), as compact JSON.
    */
   public String toString() {
-    String output = "[";
-    for (int i = 0; i < this.values.size(); i++) {
-      output = output + this.values.get(i).toString() + ",\n";
-    }
-    return output + "]";
+    return JSON.toString(this, JSONFormat.COMPACT);
   } // toString()
 
   /**
-   * Compare to another object.
+   * Compare to another object. Arrays are equal if they have equal elements
+   * in the same order, whether or not either is frozen.
    */
   public boolean equals(Object other) {
-    return this.toString().equals(other.toString());
+    if (this == other) {
+      return true;
+    } else if (other instanceof JSONFrozenArray) {
+      return other.equals(this);
+    } else if (!(other instanceof JSONArray)) {
+      return false;
+    }
+    JSONArray that = (JSONArray) other;
+    int size = this.size();
+    if (size != that.size()) {
+      return false;
+    }
+    for (int i = 0; i < size; i++) {
+      if (!this.get(i).equals(that.get(i))) {
+        return false;
+      }
+    }
+    return true;
   } // equals(Object)
 
   /**
    * Compute the hash code.
    */
   public int hashCode() {
-    return this.values.hashCode();
+    int result = 1;
+    int size = this.size();
+    for (int i = 0; i < size; i++) {
+      result = 31 * result + this.get(i).hashCode();
+    }
+    return result;
   } // hashCode()
 
   // +--------------------+------------------------------------------
@@ -67,19 +93,41 @@ public class JSONArray implements JSONValue {
   /**
    * Write the value as JSON.
    */
-  public void writeJSON(PrintWriter pen) {
-    String output = "{";
-    for (int i = 0; i < this.values.size(); i++) {
-      output = output + "\"" + this.values.get(i).toString() + "\"" + ",\n";
+  public void writeJSON(JSONWriter writer) throws IOException {
+    if ((this.cache == null) && (writer.watcher == null)) {
+      this.writeContents(writer);
+    } else {
+      this.cache().write(writer, this::writeContents);
+    }
+  } // writeJSON(JSONWriter)
+
+  /**
+   * Save our UTF-8 encoding the first time we are written as compact bytes,
+   * and reuse it until we, or anything in us, changes.
+   */
+  public void memoize() {
+    this.cache().memoize = true;
+  } // memoize()
+
+  /**
+   * Write our elements as an array.
+   */
+  void writeContents(JSONWriter writer) throws IOException {
+    writer.startArray();
+    int size = this.size();
+    for (int i = 0; i < size; i++) {
+      this.get(i).writeJSON(writer);
     }
-    output += "}";
-    pen.print(output);
-  } // writeJSON(PrintWriter)
+    writer.endArray();
+  } // writeContents(JSONWriter)
 
   /**
-   * Get the underlying value.
+   * Get the underlying value. Since we cannot tell when the list changes,
+   * we stop saving our encoding.
    */
   public ArrayList<JSONValue> getValue() {
+    this.cache().disabled = true;
+    this.changed();
     return this.values;
   } // getValue()
 
@@ -91,6 +139,7 @@ public class JSONArray implements JSONValue {
    * Add a value to the end of the array.
    */
   public void add(JSONValue value) {
+    this.changed();
     this.values.add(value);
   } // add(JSONValue)
 
@@ -102,16 +151,59 @@ public class JSONArray implements JSONValue {
   } // get(int)
 
   /**
-   * Get the iterator for the elements.
+   * Get the iterator for the elements. Removing through it counts as a
+   * change, so it drops our saved encoding.
    */
   public Iterator<JSONValue> iterator() {
-    return this.values.iterator();
+    Iterator<JSONValue> elements = this.values.iterator();
+    return new Iterator<JSONValue>() {
+      public boolean hasNext() {
+        return elements.hasNext();
+      } // hasNext()
+
+      public JSONValue next() {
+        return elements.next();
+      } // next()
+
+      public void remove() {
+        elements.remove();
+        JSONArray.this.changed();
+      } // remove()
+    };
   } // iterator()
 
+  /**
+   * Call action on each element, in order. Walks our elements directly, so
+   * makes no objects.
+   */
+  public void forEach(Consumer<? super JSONValue> action) {
+    for (int i = 0; i < this.values.size(); i++) {
+      action.accept(this.values.get(i));
+    }
+  } // forEach(Consumer)
+
+  /**
+   * Call action on each element and its index, in order.
+   */
+  public void forEach(ObjIntConsumer<? super JSONValue> action) {
+    for (int i = 0; i < this.values.size(); i++) {
+      action.accept(this.values.get(i), i);
+    }
+  } // forEach(ObjIntConsumer)
+
+  /**
+   * Get a cursor over the elements. Unlike an iterator, a cursor makes no
+   * objects as it moves, and may be reused with reset().
+   */
+  public Cursor cursor() {
+    return new Cursor().reset(this);
+  } // cursor()
+
   /**
    * Set the value at a particular index.
    */
   public void set(int index, JSONValue value) throws IndexOutOfBoundsException {
+    this.changed();
     this.values.set(index, value);
   } // set(int, JSONValue)
 
@@ -121,4 +213,84 @@ public class JSONArray implements JSONValue {
   public int size() {
     return this.values.size();
   } // size()
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Get our cache, making it if need be.
+   */
+  JSONCache cache() {
+    if (this.cache == null) {
+      this.cache = new JSONCache();
+    }
+    return this.cache;
+  } // cache()
+
+  /**
+   * Note that we changed.
+   */
+  void changed() {
+    if (this.cache != null) {
+      this.cache.changed();
+    }
+  } // changed()
+
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /**
+   * A reusable position in an array. Call next() to move to each element in
+   * turn, then value() and index() to see it.
+   */
+  public static class Cursor {
+    /**
+     * The array we are moving through.
+     */
+    JSONArray array;
+
+    /**
+     * The index of the current element.
+     */
+    int index;
+
+    /**
+     * The number of elements.
+     */
+    int size;
+
+    /**
+     * Move back to just before the first element of array.
+     */
+    public Cursor reset(JSONArray array) {
+      this.array = array;
+      this.index = -1;
+      this.size = array.size();
+      return this;
+    } // reset(JSONArray)
+
+    /**
+     * Move to the next element. Returns false if there are no more.
+     */
+    public boolean next() {
+      return ++this.index < this.size;
+    } // next()
+
+    /**
+     * Get the current element.
+     */
+    public JSONValue value() {
+      return this.array.get(this.index);
+    } // value()
+
+    /**
+     * Get the index of the current element.
+     */
+    public int index() {
+      return this.index;
+    } // index()
+  } // class Cursor
+
 } // class JSONArray
@@ -0,0 +1,452 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+
+/**
+ * A tokenizer for JSON held as UTF-8 bytes. The bytes are scanned where they
+ * are, without decoding them to characters first. Everything outside of
+ * strings is ASCII, so only strings are ever decoded, and only when we make
+ * a String from them; strings that are entirely ASCII skip UTF-8 decoding.
+ * Files are memory-mapped and scanned the same way.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public class JSONByteLexer extends JSONLexer {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * An empty buffer, for when we have no input.
+   */
+  static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+
+  /**
+   * How much of a file we map at once. Files larger than this are read
+   * through a series of overlapping mappings.
+   */
+  static final int MAP_SIZE = 1 << 30;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The bytes we are currently scanning, accessed by absolute index.
+   */
+  ByteBuffer input;
+
+  /**
+   * Scratch space for copying bytes out of buffers that have no array.
+   */
+  byte[] scratch;
+
+  /**
+   * Whether the last string scanned was entirely ASCII.
+   */
+  boolean ascii;
+
+  /**
+   * The file we are mapping, or null if all of the input is in input.
+   */
+  FileChannel channel;
+
+  /**
+   * The size of that file.
+   */
+  long size;
+
+  /**
+   * How much of the file to map at once.
+   */
+  int mapSize;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Build a new lexer with no input.
+   */
+  public JSONByteLexer() {
+    this.scratch = new byte[64];
+    this.mapSize = MAP_SIZE;
+    this.release();
+  } // JSONByteLexer()
+
+  // +---------------+-----------------------------------------------
+  // | Input control |
+  // +---------------+
+
+  /**
+   * Start reading the bytes between the position and limit of input. The
+   * buffer is scanned in place; neither its contents nor its position
+   * change.
+   */
+  public void reset(ByteBuffer input) {
+    this.channel = null;
+    this.input = input;
+    this.index = input.position();
+    this.limit = input.limit();
+    this.start = -1;
+    this.offset = -this.index;
+  } // reset(ByteBuffer)
+
+  /**
+   * Start reading the bytes in input[from..to), by absolute index.
+   */
+  public void reset(ByteBuffer input, int from, int to) {
+    this.reset(input);
+    this.index = from;
+    this.limit = to;
+    this.offset = -from;
+  } // reset(ByteBuffer, int, int)
+
+  /**
+   * Start reading a whole file. The file is mapped into memory a chunk at a
+   * time and scanned in place, so even files larger than 2GB never need to
+   * fit in the heap.
+   */
+  public void reset(FileChannel channel) throws IOException {
+    this.reset(EMPTY);
+    this.channel = channel;
+    this.size = channel.size();
+  } // reset(FileChannel)
+
+  /**
+   * Forget the current input.
+   */
+  public void release() {
+    this.reset(EMPTY);
+  } // release()
+
+  // +------------+--------------------------------------------------
+  // | Characters |
+  // +------------+
+
+  /**
+   * Read the next byte, or -1 at the end of the input.
+   */
+  public int read() throws IOException {
+    if (this.index < this.limit || this.fill()) {
+      return this.input.get(this.index++) & 0xFF;
+    }
+    return -1;
+  } // read()
+
+  /**
+   * Look at the next byte without reading it, or -1 at the end of the input.
+   */
+  public int peek() throws IOException {
+    if (this.index < this.limit || this.fill()) {
+      return this.input.get(this.index) & 0xFF;
+    }
+    return -1;
+  } // peek()
+
+  /**
+   * Read the next byte that is not whitespace, or -1 at the end of the
+   * input.
+   */
+  public int nextNonWhitespace() throws IOException {
+    this.start = -1;
+    do {
+      ByteBuffer in = this.input;
+      int i = this.index;
+      int end = this.limit;
+      while (i < end) {
+        byte b = in.get(i++);
+        if (!JSON.isWhitespace(b)) {
+          this.index = i;
+          return b & 0xFF;
+        }
+      }
+      this.index = i;
+    } while (this.fill());
+    return -1;
+  } // nextNonWhitespace()
+
+  // +--------+------------------------------------------------------
+  // | Tokens |
+  // +--------+
+
+  /**
+   * Scan the rest of a string whose opening quote has already been read.
+   * Strings without escapes stay in the input, undecoded; the rest are
+   * decoded into our reusable builder. Either way, malformed UTF-8 is an
+   * error, so every way of getting the string agrees.
+   */
+  public void scanString() throws IOException, ParseException {
+    int i = this.index;
+    this.start = i;
+    boolean ascii = true;
+    while (true) {
+      ByteBuffer in = this.input;
+      int end = this.limit;
+      while (i < end) {
+        byte b = in.get(i);
+        if ('"' == b) {
+          this.index = i + 1;
+          this.escaped = false;
+          this.ascii = ascii;
+          return;
+        } else if (('\\' == b) || ((b >= 0) && (b < 0x20))) {
+          this.index = i;
+          this.scanEscapedString();
+          this.escaped = true;
+          return;
+        }
+        if (b >= 0) {
+          i++;
+        } else {
+          ascii = false;
+          int next = this.skipUTF8(i, end);
+          if (next < 0) {
+            // The sequence runs past what we have, so read it the slow way
+            this.index = i;
+            this.scanEscapedString();
+            this.escaped = true;
+            return;
+          }
+          i = next;
+        }
+      }
+      this.index = i;
+      if (!this.fill()) {
+        throw this.error("Unexpected end of string");
+      }
+      i = this.index;
+    }
+  } // scanString()
+
+  /**
+   * Make a String of the contents of the string we just scanned. Strings
+   * that are pure ASCII are copied without UTF-8 decoding.
+   */
+  public String stringValue() {
+    if (this.escaped) {
+      return this.builder.toString();
+    }
+    return this.decode(this.start, this.index - 1 - this.start, this.ascii);
+  } // stringValue()
+
+  /**
+   * Get the contents of the string we just scanned, decoded into our
+   * reusable builder.
+   */
+  public CharSequence chars() {
+    if (!this.escaped) {
+      this.builder.setLength(0);
+      this.decodeInto(this.builder, this.start, this.index - 1);
+    }
+    return this.builder;
+  } // chars()
+
+  /**
+   * Get the text of the number we just scanned.
+   */
+  public String text() {
+    return this.decode(this.start, this.index - this.start, true);
+  } // text()
+
+  /**
+   * Get the value of the number we just scanned.
+   */
+  public BigDecimal decimal() {
+    return new BigDecimal(this.text());
+  } // decimal()
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Make a string from len bytes of input starting at from.
+   */
+  String decode(int from, int len, boolean ascii) {
+    byte[] bytes;
+    if (this.input.hasArray()) {
+      bytes = this.input.array();
+      from += this.input.arrayOffset();
+    } else {
+      if (this.scratch.length < len) {
+        this.scratch = new byte[Math.max(len, 2 * this.scratch.length)];
+      }
+      bytes = this.scratch;
+      this.input.get(from, bytes, 0, len);
+      from = 0;
+    }
+    if (ascii) {
+      return new String(bytes, from, len, StandardCharsets.ISO_8859_1);
+    } else {
+      return new String(bytes, from, len, StandardCharsets.UTF_8);
+    }
+  } // decode(int, int, boolean)
+
+  /**
+   * Get the byte at index i of the input.
+   */
+  int unitAt(int i) {
+    return this.input.get(i) & 0xFF;
+  } // unitAt(int)
+
+  /**
+   * Decode the UTF-8 bytes of input[from..to), which scanString has already
+   * checked, onto the end of str.
+   */
+  void decodeInto(StringBuilder str, int from, int to) {
+    ByteBuffer in = this.input;
+    int i = from;
+    while (i < to) {
+      int b = in.get(i++);
+      if (b >= 0) {
+        str.append((char) b);
+      } else {
+        int count = ((b & 0xE0) == 0xC0) ? 1 : ((b & 0xF0) == 0xE0) ? 2 : 3;
+        int code = b & (0x3F >> count);
+        for (int j = 0; (j < count) && (i < to); j++) {
+          code = (code << 6) | (in.get(i++) & 0x3F);
+        }
+        if (Character.isValidCodePoint(code)) {
+          str.appendCodePoint(code);
+        } else {
+          str.append('\uFFFD');
+        }
+      }
+    }
+  } // decodeInto(StringBuilder, int, int)
+
+  /**
+   * Finish scanning a string that contains escapes, decoding UTF-8 as we go.
+   * The bytes from the start of the string up to the index have no escapes.
+   */
+  void scanEscapedString() throws IOException, ParseException {
+    StringBuilder str = this.builder;
+    str.setLength(0);
+    this.decodeInto(str, this.start, this.index);
+    this.start = -1;
+    while (true) {
+      int b = this.read();
+      if ('"' == b) {
+        return;
+      } else if ('\\' == b) {
+        str.append(this.readEscape());
+      } else if (b >= 0x80) {
+        str.appendCodePoint(this.readUTF8(b));
+      } else if (b >= 0x20) {
+        str.append((char) b);
+      } else if (-1 == b) {
+        throw this.error("Unexpected end of string");
+      } else {
+        throw this.error("Unescaped control character in string");
+      }
+    }
+  } // scanEscapedString()
+
+  /**
+   * Read the rest of a multi-byte UTF-8 sequence whose first byte, lead, has
+   * been read, and return its code point.
+   */
+  int readUTF8(int lead) throws IOException, ParseException {
+    int count = this.continuations(lead);
+    int code = lead & (0x3F >> count);
+    for (int i = 0; i < count; i++) {
+      int b = this.read();
+      if ((b & 0xC0) != 0x80) {
+        throw this.error("Illegal UTF-8");
+      }
+      code = (code << 6) | (b & 0x3F);
+    }
+    this.checkUTF8(code, count);
+    return code;
+  } // readUTF8(int)
+
+  /**
+   * Check the multi-byte UTF-8 sequence whose lead byte is input[i], by the
+   * same rules as readUTF8, and return the index just past it. Returns -1
+   * if the sequence does not end before end.
+   */
+  int skipUTF8(int i, int end) throws ParseException {
+    ByteBuffer in = this.input;
+    this.index = i;
+    int lead = in.get(i) & 0xFF;
+    int count = this.continuations(lead);
+    if (i + count >= end) {
+      return -1;
+    }
+    int code = lead & (0x3F >> count);
+    for (int j = 1; j <= count; j++) {
+      int b = in.get(i + j) & 0xFF;
+      if ((b & 0xC0) != 0x80) {
+        throw this.error("Illegal UTF-8");
+      }
+      code = (code << 6) | (b & 0x3F);
+    }
+    this.checkUTF8(code, count);
+    return i + count + 1;
+  } // skipUTF8(int, int)
+
+  /**
+   * Get the number of continuation bytes that follow a UTF-8 lead byte.
+   */
+  int continuations(int lead) throws ParseException {
+    if ((lead & 0xE0) == 0xC0) {
+      return 1;
+    } else if ((lead & 0xF0) == 0xE0) {
+      return 2;
+    } else if ((lead & 0xF8) == 0xF0) {
+      return 3;
+    } else {
+      throw this.error("Illegal UTF-8");
+    }
+  } // continuations(int)
+
+  /**
+   * Make sure a decoded UTF-8 sequence of 1 + count bytes is a code point
+   * that is neither overlong nor a surrogate.
+   */
+  void checkUTF8(int code, int count) throws ParseException {
+    int min = (count == 1) ? 0x80 : (count == 2) ? 0x800 : 0x10000;
+    if ((code < min) || (code > Character.MAX_CODE_POINT)
+        || ((code >= Character.MIN_SURROGATE) && (code <= Character.MAX_SURROGATE))) {
+      throw this.error("Illegal UTF-8");
+    }
+  } // checkUTF8(int, int)
+
+  /**
+   * Map the next chunk of the file, starting with any token in progress.
+   * Returns false if we have already mapped the end of the file (or if we
+   * are not reading a file at all).
+   */
+  boolean fill() throws IOException {
+    if (this.channel == null) {
+      return false;
+    }
+    int keep = (this.start >= 0) ? this.start : this.index;
+    long from = this.offset + keep;
+    long end = this.offset + this.limit;
+    if (end >= this.size) {
+      return false;
+    }
+    long length = Math.max(this.mapSize, 2L * (this.limit - keep));
+    length = Math.min(Math.min(length, this.size - from), Integer.MAX_VALUE);
+    if (from + length <= end) {
+      throw new IOException("Token too large to map at " + from);
+    }
+    this.input = this.channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+    this.index -= keep;
+    if (this.start >= 0) {
+      this.start -= keep;
+    }
+    this.limit = (int) length;
+    this.offset = from;
+    return true;
+  } // fill()
+
+} // class JSONByteLexer
@@ -0,0 +1,273 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A serializer for JSON as UTF-8 bytes, for an OutputStream or a
+ * ByteBuffer, with no charset encoder in between. Strings are encoded and
+ * escaped in the same pass: ASCII that needs no escape (almost all of most
+ * documents) is copied straight into the buffer after one lookup in the
+ * escape table, and only other characters take the slow path.
+ *
+ * Buffers come from a small shared pool, so call release() when done.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public class JSONByteWriter extends JSONWriter {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of buffers we keep for reuse. A power of two.
+   */
+  static final int POOL_SIZE = 16;
+
+  /**
+   * The most bytes one character can take: a hexadecimal escape.
+   */
+  static final int MAX_CHAR_BYTES = 6;
+
+  // +---------------+-----------------------------------------------
+  // | Static fields |
+  // +---------------+
+
+  /**
+   * Buffers that writers have released, ready for reuse. Empty slots are
+   * null.
+   */
+  static final AtomicReferenceArray<byte[]> POOL = new AtomicReferenceArray<byte[]>(POOL_SIZE);
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * Where the bytes go, if they go to a stream.
+   */
+  OutputStream out;
+
+  /**
+   * Where the bytes go, if they go to a buffer.
+   */
+  ByteBuffer target;
+
+  /**
+   * Bytes not yet passed on. Null once we have been released.
+   */
+  byte[] buffer;
+
+  /**
+   * The number of bytes in the buffer.
+   */
+  int count;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Build a writer that sends its bytes to out.
+   */
+  public JSONByteWriter(OutputStream out) {
+    this.out = out;
+    this.buffer = take();
+    this.count = 0;
+  } // JSONByteWriter(OutputStream)
+
+  /**
+   * Build a writer that puts its bytes in target, starting at its position.
+   * Flushing throws a BufferOverflowException if they do not fit.
+   */
+  public JSONByteWriter(ByteBuffer target) {
+    this.target = target;
+    this.buffer = take();
+    this.count = 0;
+  } // JSONByteWriter(ByteBuffer)
+
+  // +--------+------------------------------------------------------
+  // | Output |
+  // +--------+
+
+  /**
+   * Pass the buffered bytes on to our stream or buffer.
+   */
+  public void flush() throws IOException {
+    if (this.out != null) {
+      this.out.write(this.buffer, 0, this.count);
+    } else {
+      this.target.put(this.buffer, 0, this.count);
+    }
+    this.count = 0;
+  } // flush()
+
+  /**
+   * Return our buffer to the pool, dropping anything not yet flushed. The
+   * writer may not be used afterwards.
+   */
+  public void release() {
+    if (this.buffer != null) {
+      give(this.buffer);
+      this.buffer = null;
+    }
+  } // release()
+
+  void put(char ch) throws IOException {
+    if (this.count == this.buffer.length) {
+      this.flush();
+    }
+    this.buffer[this.count++] = (byte) ch;
+  } // put(char)
+
+  void put(CharSequence str, int from, int to) throws IOException {
+    this.encode(str, from, to, false);
+  } // put(CharSequence, int, int)
+
+  void put(char[] chars, int from, int to) throws IOException {
+    byte[] buf = this.buffer;
+    while (from < to) {
+      if (this.count == buf.length) {
+        this.flush();
+      }
+      int pos = this.count;
+      int end = Math.min(to, from + buf.length - pos);
+      while (from < end) {
+        buf[pos++] = (byte) chars[from++];
+      }
+      this.count = pos;
+    }
+  } // put(char[], int, int)
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Determine if we can write saved encodings, which are compact.
+   */
+  boolean canSplice() {
+    return this.indent == null;
+  } // canSplice()
+
+  /**
+   * Write the saved encoding of a value, copying it to our buffer if it
+   * fits and straight to our destination if not.
+   */
+  void splice(byte[] encoded) throws IOException {
+    this.separate();
+    if (encoded.length <= this.buffer.length - this.count) {
+      System.arraycopy(encoded, 0, this.buffer, this.count, encoded.length);
+      this.count += encoded.length;
+    } else {
+      this.flush();
+      if (this.out != null) {
+        this.out.write(encoded);
+      } else {
+        this.target.put(encoded);
+      }
+    }
+    this.written();
+  } // splice(byte[])
+
+  /**
+   * Write str in quotes, escaping and encoding it in one pass.
+   */
+  void quote(CharSequence str) throws IOException {
+    this.put('"');
+    this.encode(str, 0, str.length(), true);
+    this.put('"');
+  } // quote(CharSequence)
+
+  /**
+   * Encode str[from..to) as UTF-8, escaping as JSON requires if escaping is
+   * set. Lone surrogates, which UTF-8 cannot hold, are always escaped.
+   */
+  void encode(CharSequence str, int from, int to, boolean escaping) throws IOException {
+    byte[] buf = this.buffer;
+    int i = from;
+    while (i < to) {
+      // Copy plain ASCII for as long as it lasts and fits
+      int pos = this.count;
+      int end = Math.min(to, i + buf.length - pos);
+      while (i < end) {
+        char ch = str.charAt(i);
+        if ((ch >= 0x80) || (escaping && (ESCAPES[ch] != 0))) {
+          break;
+        }
+        buf[pos++] = (byte) ch;
+        i++;
+      }
+      this.count = pos;
+      if (i == to) {
+        return;
+      }
+      if (buf.length - pos < MAX_CHAR_BYTES) {
+        this.flush();
+        pos = 0;
+      }
+      char ch = str.charAt(i++);
+      if (ch < 0x80) {
+        if (escaping && (ESCAPES[ch] != 0)) {
+          this.escape(ch);
+        } else {
+          buf[this.count++] = (byte) ch;
+        }
+      } else if (ch < 0x800) {
+        buf[pos++] = (byte) (0xC0 | (ch >> 6));
+        buf[pos++] = (byte) (0x80 | (ch & 0x3F));
+        this.count = pos;
+      } else if (!Character.isSurrogate(ch)) {
+        buf[pos++] = (byte) (0xE0 | (ch >> 12));
+        buf[pos++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+        buf[pos++] = (byte) (0x80 | (ch & 0x3F));
+        this.count = pos;
+      } else if (Character.isHighSurrogate(ch) && (i < to) && Character.isLowSurrogate(str.charAt(i))) {
+        int code = Character.toCodePoint(ch, str.charAt(i++));
+        buf[pos++] = (byte) (0xF0 | (code >> 18));
+        buf[pos++] = (byte) (0x80 | ((code >> 12) & 0x3F));
+        buf[pos++] = (byte) (0x80 | ((code >> 6) & 0x3F));
+        buf[pos++] = (byte) (0x80 | (code & 0x3F));
+        this.count = pos;
+      } else {
+        buf[pos++] = '\\';
+        buf[pos++] = 'u';
+        for (int shift = 12; shift >= 0; shift -= 4) {
+          buf[pos++] = (byte) HEX_DIGITS[(ch >> shift) & 0xF];
+        }
+        this.count = pos;
+      }
+    }
+  } // encode(CharSequence, int, int, boolean)
+
+  /**
+   * Get a buffer from the pool, or a new one if the pool is empty. Each
+   * thread starts looking at its own slot, to keep threads apart.
+   */
+  static byte[] take() {
+    int start = (int) Thread.currentThread().getId();
+    for (int i = 0; i < POOL_SIZE; i++) {
+      byte[] buf = POOL.getAndSet((start + i) & (POOL_SIZE - 1), null);
+      if (buf != null) {
+        return buf;
+      }
+    }
+    return new byte[BUFFER_SIZE];
+  } // take()
+
+  /**
+   * Put a buffer back in the pool, unless the pool is full.
+   */
+  static void give(byte[] buf) {
+    int start = (int) Thread.currentThread().getId();
+    for (int i = 0; i < POOL_SIZE; i++) {
+      if (POOL.compareAndSet((start + i) & (POOL_SIZE - 1), null, buf)) {
+        return;
+      }
+    }
+  } // give(byte[])
+
+} // class JSONByteWriter
@@ -0,0 +1,951 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+
+/**
+ * A reader and a writer for CBOR (RFC 8949), a binary form of JSON values
+ * for programs talking to programs. Strings and containers carry their
+ * lengths up front and numbers are binary, so reading needs no lexing and
+ * no unescaping, and the bytes are usually fewer than the text.
+ *
+ * Integers are CBOR integers, or bignums (tags 2 and 3) past 64 bits. Reals
+ * with at most fifteen digits are floats, in the smallest width that holds
+ * them exactly; others are decimal fractions (tag 4), so every real reads
+ * back equal. UTF-8 cannot hold lone surrogates, so they are written as
+ * U+FFFD.
+ *
+ * The writer can also share strings, using the stringref extension (tags
+ * 256 and 25): the second and later uses of a string, most often a key, are
+ * written as its index among the strings before it.
+ *
+ * The reader accepts any well-formed CBOR, converting what JSON lacks as
+ * section 6.1 of the RFC suggests: byte strings become base64url strings,
+ * keys that are not strings become their JSON text, infinities, NaNs and
+ * other simple values become null, and unknown tags are dropped.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public class JSONCBOR {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The major types, the top three bits of the first byte of each item.
+   */
+  static final int MAJOR_UNSIGNED = 0;
+  static final int MAJOR_NEGATIVE = 1;
+  static final int MAJOR_BYTES = 2;
+  static final int MAJOR_TEXT = 3;
+  static final int MAJOR_ARRAY = 4;
+  static final int MAJOR_MAP = 5;
+  static final int MAJOR_TAG = 6;
+  static final int MAJOR_SIMPLE = 7;
+
+  /**
+   * The additional information that marks an item of indefinite length.
+   */
+  static final int INDEFINITE = 31;
+
+  /**
+   * The byte that ends an item of indefinite length.
+   */
+  static final int BREAK = 0xFF;
+
+  /**
+   * The first bytes of simple values and floats.
+   */
+  static final int FALSE = 0xF4;
+  static final int TRUE = 0xF5;
+  static final int NULL = 0xF6;
+  static final int HALF = 0xF9;
+  static final int SINGLE = 0xFA;
+  static final int DOUBLE = 0xFB;
+
+  /**
+   * The tags we know.
+   */
+  static final int TAG_POSITIVE_BIGNUM = 2;
+  static final int TAG_NEGATIVE_BIGNUM = 3;
+  static final int TAG_DECIMAL = 4;
+  static final int TAG_STRINGREF = 25;
+  static final int TAG_STRINGREF_NAMESPACE = 256;
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Get the CBOR for a value. If shareStrings is set, repeated strings are
+   * written as references to their first use.
+   */
+  public static byte[] toBytes(JSONValue value, boolean shareStrings) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      write(value, out, shareStrings);
+    } catch (IOException e) {
+      // A ByteArrayOutputStream never fails to write
+      throw new IllegalStateException(e);
+    }
+    return out.toByteArray();
+  } // toBytes(JSONValue, boolean)
+
+  /**
+   * Write the CBOR for a value to a stream. If shareStrings is set, repeated
+   * strings are written as references to their first use.
+   */
+  public static void write(JSONValue value, OutputStream out, boolean shareStrings)
+      throws IOException {
+    Encoder encoder = new Encoder(out, shareStrings);
+    try {
+      if (shareStrings) {
+        encoder.head(MAJOR_TAG, TAG_STRINGREF_NAMESPACE);
+      }
+      encoder.value(value);
+      encoder.flush();
+    } finally {
+      encoder.release();
+    }
+  } // write(JSONValue, OutputStream, boolean)
+
+  /**
+   * Read the one CBOR item in len bytes, starting at bytes[off].
+   */
+  public static JSONValue parse(byte[] bytes, int off, int len) throws ParseException {
+    return parse(ByteBuffer.wrap(bytes, off, len));
+  } // parse(byte[], int, int)
+
+  /**
+   * Read the one CBOR item between the position and the limit of a buffer.
+   * The buffer's position does not change.
+   */
+  public static JSONValue parse(ByteBuffer source) throws ParseException {
+    Decoder decoder = new Decoder(source.slice());
+    JSONValue value = decoder.value();
+    if (decoder.in.hasRemaining()) {
+      throw decoder.error("Unexpected data after value");
+    }
+    return value;
+  } // parse(ByteBuffer)
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Get the shortest string the stringref extension puts in its table when
+   * the table holds count strings: one at least as long as a reference.
+   */
+  static int minShared(int count) {
+    if (count < 24) {
+      return 3;
+    } else if (count < 0x100) {
+      return 4;
+    } else if (count < 0x10000) {
+      return 5;
+    } else {
+      return 7;
+    }
+  } // minShared(int)
+
+  /**
+   * Get the half-precision bits of a float, or -1 if it has none that are
+   * exactly equal.
+   */
+  static int toHalf(float num) {
+    int bits = Float.floatToRawIntBits(num);
+    int sign = (bits >>> 16) & 0x8000;
+    int exponent = ((bits >>> 23) & 0xFF) - 127;
+    int mantissa = bits & 0x7FFFFF;
+    if ((bits & 0x7FFFFFFF) == 0) {
+      return sign;
+    } else if ((exponent >= -14) && (exponent <= 15)) {
+      if ((mantissa & 0x1FFF) == 0) {
+        return sign | ((exponent + 15) << 10) | (mantissa >> 13);
+      }
+    } else if ((exponent >= -24) && (exponent < -14)) {
+      // A subnormal half
+      int full = mantissa | 0x800000;
+      int shift = -1 - exponent;
+      if ((full & ((1 << shift) - 1)) == 0) {
+        return sign | (full >> shift);
+      }
+    }
+    return -1;
+  } // toHalf(float)
+
+  /**
+   * Get the double for the bits of a half-precision float.
+   */
+  static double fromHalf(int half) {
+    int exponent = (half >> 10) & 0x1F;
+    int mantissa = half & 0x3FF;
+    double magnitude;
+    if (exponent == 0) {
+      magnitude = Math.scalb((double) mantissa, -24);
+    } else if (exponent == 31) {
+      magnitude = (mantissa == 0) ? Double.POSITIVE_INFINITY : Double.NaN;
+    } else {
+      magnitude = Math.scalb((double) (mantissa | 0x400), exponent - 25);
+    }
+    return ((half & 0x8000) == 0) ? magnitude : -magnitude;
+  } // fromHalf(int)
+
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /**
+   * Writes values as CBOR, through a pooled buffer.
+   */
+  static class Encoder {
+    /**
+     * Where the bytes go.
+     */
+    OutputStream out;
+
+    /**
+     * Bytes not yet passed on.
+     */
+    byte[] buffer;
+
+    /**
+     * The number of bytes in the buffer.
+     */
+    int count;
+
+    /**
+     * The index of each shared string, or null if we do not share strings.
+     */
+    HashMap<String, Integer> shared;
+
+    /**
+     * The number of strings a reader will have put in its table.
+     */
+    int sharedCount;
+
+    /**
+     * Build an encoder that writes to out.
+     */
+    Encoder(OutputStream out, boolean shareStrings) {
+      this.out = out;
+      this.buffer = JSONByteWriter.take();
+      this.count = 0;
+      this.shared = shareStrings ? new HashMap<String, Integer>() : null;
+      this.sharedCount = 0;
+    } // Encoder(OutputStream, boolean)
+
+    /**
+     * Write any value.
+     */
+    void value(JSONValue value) throws IOException {
+      if (value instanceof JSONString) {
+        this.text(((JSONString) value).value);
+      } else if (value instanceof JSONInteger) {
+        this.integer((JSONInteger) value);
+      } else if (value instanceof JSONReal) {
+        this.real(((JSONReal) value).value);
+      } else if (value instanceof JSONHash) {
+        JSONHash hash = (JSONHash) value;
+        this.pairs(hash.size(), hash.iterator());
+      } else if (value instanceof JSONFrozenHash) {
+        JSONFrozenHash hash = (JSONFrozenHash) value;
+        this.pairs(hash.size(), hash.iterator());
+      } else if (value instanceof JSONArray) {
+        this.array((JSONArray) value);
+      } else if (value instanceof JSONFrozenArray) {
+        JSONFrozenArray arr = (JSONFrozenArray) value;
+        this.elements(arr.size(), arr.iterator());
+      } else if (value instanceof JSONConstant) {
+        Object constant = value.getValue();
+        this.ensure(1);
+        this.buffer[this.count++] = (byte) ((constant == null) ? NULL
+            : ((Boolean) constant) ? TRUE : FALSE);
+      } else {
+        throw new IllegalArgumentException("Cannot write " + value.getClass().getName());
+      }
+    } // value(JSONValue)
+
+    /**
+     * Write an array, directly from the primitives of specialized ones.
+     */
+    void array(JSONArray arr) throws IOException {
+      if ((arr instanceof JSONLongArray) && ((JSONLongArray) arr).isSpecialized()) {
+        JSONLongArray longs = (JSONLongArray) arr;
+        int size = longs.size();
+        this.head(MAJOR_ARRAY, size);
+        for (int i = 0; i < size; i++) {
+          this.integer(longs.getLong(i));
+        }
+      } else if ((arr instanceof JSONDoubleArray) && ((JSONDoubleArray) arr).isSpecialized()) {
+        JSONDoubleArray doubles = (JSONDoubleArray) arr;
+        int size = doubles.size();
+        this.head(MAJOR_ARRAY, size);
+        for (int i = 0; i < size; i++) {
+          this.real(doubles.getDouble(i));
+        }
+      } else {
+        this.elements(arr.size(), arr.iterator());
+      }
+    } // array(JSONArray)
+
+    /**
+     * Write an array of size elements.
+     */
+    void elements(int size, Iterator<JSONValue> elements) throws IOException {
+      this.head(MAJOR_ARRAY, size);
+      int written = 0;
+      while (elements.hasNext()) {
+        this.value(elements.next());
+        written++;
+      }
+      if (written != size) {
+        throw new ConcurrentModificationException();
+      }
+    } // elements(int, Iterator)
+
+    /**
+     * Write a map of size pairs.
+     */
+    void pairs(int size, Iterator<KVPair<JSONString, JSONValue>> pairs) throws IOException {
+      this.head(MAJOR_MAP, size);
+      int written = 0;
+      while (pairs.hasNext()) {
+        KVPair<JSONString, JSONValue> pair = pairs.next();
+        this.text(pair.key().value);
+        this.value(pair.value());
+        written++;
+      }
+      if (written != size) {
+        throw new ConcurrentModificationException();
+      }
+    } // pairs(int, Iterator)
+
+    /**
+     * Write an integer of any size.
+     */
+    void integer(JSONInteger num) throws IOException {
+      if (num.big == null) {
+        this.integer(num.value);
+      } else if (num.big.signum() >= 0) {
+        this.bigInteger(MAJOR_UNSIGNED, TAG_POSITIVE_BIGNUM, num.big);
+      } else {
+        this.bigInteger(MAJOR_NEGATIVE, TAG_NEGATIVE_BIGNUM, num.big.not());
+      }
+    } // integer(JSONInteger)
+
+    /**
+     * Write a long.
+     */
+    void integer(long num) throws IOException {
+      if (num >= 0) {
+        this.head(MAJOR_UNSIGNED, num);
+      } else {
+        this.head(MAJOR_NEGATIVE, ~num);
+      }
+    } // integer(long)
+
+    /**
+     * Write the non-negative magnitude of a big integer as a CBOR integer of
+     * the given major type if it fits in 64 bits, and as a bignum with the
+     * given tag if not.
+     */
+    void bigInteger(int major, int tag, BigInteger magnitude) throws IOException {
+      if (magnitude.bitLength() <= Long.SIZE) {
+        this.head(major, magnitude.longValue());
+        return;
+      }
+      byte[] bytes = magnitude.toByteArray();
+      // Drop the sign byte
+      int from = (bytes[0] == 0) ? 1 : 0;
+      this.head(MAJOR_TAG, tag);
+      this.head(MAJOR_BYTES, bytes.length - from);
+      this.ensure(bytes.length - from);
+      System.arraycopy(bytes, from, this.buffer, this.count, bytes.length - from);
+      this.count += bytes.length - from;
+      if ((this.shared != null) && (bytes.length - from >= minShared(this.sharedCount))) {
+        this.sharedCount++;
+      }
+    } // bigInteger(int, int, BigInteger)
+
+    /**
+     * Write a real, as a float if it is short enough to survive the trip and
+     * as a decimal fraction if not.
+     */
+    void real(BigDecimal num) throws IOException {
+      double approx;
+      if (num.signum() == 0) {
+        this.real(0.0);
+      } else if ((num.precision() <= 15)
+          && (Math.abs(approx = num.doubleValue()) >= Double.MIN_NORMAL)
+          && (Math.abs(approx) <= Double.MAX_VALUE)) {
+        this.real(approx);
+      } else {
+        this.head(MAJOR_TAG, TAG_DECIMAL);
+        this.head(MAJOR_ARRAY, 2);
+        this.integer(-(long) num.scale());
+        BigInteger unscaled = num.unscaledValue();
+        if (unscaled.bitLength() < Long.SIZE) {
+          this.integer(unscaled.longValue());
+        } else {
+          this.integer(new JSONInteger(unscaled));
+        }
+      }
+    } // real(BigDecimal)
+
+    /**
+     * Write a double, in the smallest float that holds it exactly.
+     */
+    void real(double num) throws IOException {
+      this.ensure(9);
+      byte[] buf = this.buffer;
+      float single = (float) num;
+      int half = (single == num) ? toHalf(single) : -1;
+      if (half >= 0) {
+        buf[this.count++] = (byte) HALF;
+        this.put(half, 2);
+      } else if (single == num) {
+        buf[this.count++] = (byte) SINGLE;
+        this.put(Float.floatToRawIntBits(single), 4);
+      } else {
+        buf[this.count++] = (byte) DOUBLE;
+        this.put(Double.doubleToRawLongBits(num), 8);
+      }
+    } // real(double)
+
+    /**
+     * Write a string as UTF-8, or as a reference to its first use.
+     */
+    void text(String str) throws IOException {
+      if (this.shared != null) {
+        Integer index = this.shared.get(str);
+        if (index != null) {
+          this.head(MAJOR_TAG, TAG_STRINGREF);
+          this.head(MAJOR_UNSIGNED, index);
+          return;
+        }
+      }
+      int length = str.length();
+      int bytes = length;
+      for (int i = 0; i < length; i++) {
+        char ch = str.charAt(i);
+        if (ch >= 0x80) {
+          bytes += (ch < 0x800) ? 1 : 2;
+          if (Character.isHighSurrogate(ch) && (i + 1 < length)
+              && Character.isLowSurrogate(str.charAt(i + 1))) {
+            i++;
+          }
+        }
+      }
+      this.head(MAJOR_TEXT, bytes);
+      byte[] buf = this.buffer;
+      for (int i = 0; i < length; i++) {
+        if (this.count > buf.length - 4) {
+          this.flush();
+        }
+        char ch = str.charAt(i);
+        if (ch < 0x80) {
+          buf[this.count++] = (byte) ch;
+        } else if (ch < 0x800) {
+          buf[this.count++] = (byte) (0xC0 | (ch >> 6));
+          buf[this.count++] = (byte) (0x80 | (ch & 0x3F));
+        } else if (Character.isHighSurrogate(ch) && (i + 1 < length)
+            && Character.isLowSurrogate(str.charAt(i + 1))) {
+          int code = Character.toCodePoint(ch, str.charAt(++i));
+          buf[this.count++] = (byte) (0xF0 | (code >> 18));
+          buf[this.count++] = (byte) (0x80 | ((code >> 12) & 0x3F));
+          buf[this.count++] = (byte) (0x80 | ((code >> 6) & 0x3F));
+          buf[this.count++] = (byte) (0x80 | (code & 0x3F));
+        } else {
+          if (Character.isSurrogate(ch)) {
+            ch = '\uFFFD';
+          }
+          buf[this.count++] = (byte) (0xE0 | (ch >> 12));
+          buf[this.count++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+          buf[this.count++] = (byte) (0x80 | (ch & 0x3F));
+        }
+      }
+      if ((this.shared != null) && (bytes >= minShared(this.sharedCount))) {
+        this.shared.put(str, this.sharedCount++);
+      }
+    } // text(String)
+
+    /**
+     * Write the first bytes of an item: its major type and its argument (a
+     * value, length, or tag), taken as unsigned.
+     */
+    void head(int major, long argument) throws IOException {
+      this.ensure(9);
+      byte type = (byte) (major << 5);
+      if (Long.compareUnsigned(argument, 24) < 0) {
+        this.buffer[this.count++] = (byte) (type | argument);
+      } else if (Long.compareUnsigned(argument, 0xFF) <= 0) {
+        this.buffer[this.count++] = (byte) (type | 24);
+        this.put(argument, 1);
+      } else if (Long.compareUnsigned(argument, 0xFFFF) <= 0) {
+        this.buffer[this.count++] = (byte) (type | 25);
+        this.put(argument, 2);
+      } else if (Long.compareUnsigned(argument, 0xFFFFFFFFL) <= 0) {
+        this.buffer[this.count++] = (byte) (type | 26);
+        this.put(argument, 4);
+      } else {
+        this.buffer[this.count++] = (byte) (type | 27);
+        this.put(argument, 8);
+      }
+    } // head(int, long)
+
+    /**
+     * Add the low size bytes of bits to the buffer, most significant first.
+     * The caller makes room.
+     */
+    void put(long bits, int size) {
+      for (int shift = 8 * (size - 1); shift >= 0; shift -= 8) {
+        this.buffer[this.count++] = (byte) (bits >>> shift);
+      }
+    } // put(long, int)
+
+    /**
+     * Make sure the buffer has room for size more bytes, passing it on if
+     * not. Big items are written a buffer at a time.
+     */
+    void ensure(int size) throws IOException {
+      if (this.count > this.buffer.length - size) {
+        this.flush();
+        if (size > this.buffer.length) {
+          this.buffer = new byte[size];
+        }
+      }
+    } // ensure(int)
+
+    /**
+     * Pass the buffered bytes on.
+     */
+    void flush() throws IOException {
+      this.out.write(this.buffer, 0, this.count);
+      this.count = 0;
+    } // flush()
+
+    /**
+     * Return our buffer to the pool.
+     */
+    void release() {
+      if (this.buffer.length == JSONWriter.BUFFER_SIZE) {
+        JSONByteWriter.give(this.buffer);
+      }
+      this.buffer = null;
+    } // release()
+  } // class Encoder
+
+  /**
+   * Reads values from CBOR in a buffer.
+   */
+  static class Decoder {
+    /**
+     * Where the bytes come from.
+     */
+    ByteBuffer in;
+
+    /**
+     * The strings a stringref may refer to, as JSONStrings and byte arrays,
+     * or null outside of a stringref namespace.
+     */
+    ArrayList<Object> shared;
+
+    /**
+     * Where we find the shortest digits of floats.
+     */
+    JSONDecimal decimal;
+
+    /**
+     * Build a decoder that reads from in.
+     */
+    Decoder(ByteBuffer in) {
+      this.in = in;
+      this.shared = null;
+      this.decimal = new JSONDecimal();
+    } // Decoder(ByteBuffer)
+
+    /**
+     * Read the next item.
+     */
+    JSONValue value() throws ParseException {
+      return this.value(this.u8());
+    } // value()
+
+    /**
+     * Read the item that starts with initial.
+     */
+    JSONValue value(int initial) throws ParseException {
+      int info = initial & 0x1F;
+      switch (initial >>> 5) {
+        case MAJOR_UNSIGNED:
+          return this.integer(this.argument(info), false);
+        case MAJOR_NEGATIVE:
+          return this.integer(this.argument(info), true);
+        case MAJOR_BYTES:
+          return base64(this.bytes(info));
+        case MAJOR_TEXT:
+          return this.text(info);
+        case MAJOR_ARRAY:
+          return this.array(info);
+        case MAJOR_MAP:
+          return this.map(info);
+        case MAJOR_TAG:
+          return this.tagged(this.argument(info));
+        default:
+          return this.simple(initial);
+      }
+    } // value(int)
+
+    /**
+     * Read an array, as a specialized one if it starts with a number, as
+     * the parser does.
+     */
+    JSONValue array(int info) throws ParseException {
+      long size = (info == INDEFINITE) ? -1 : this.length(info);
+      JSONArray arr = null;
+      for (long i = 0; i != size; i++) {
+        int initial = this.u8();
+        if ((initial == BREAK) && (size < 0)) {
+          break;
+        }
+        if (arr == null) {
+          if ((initial >>> 5) <= MAJOR_NEGATIVE) {
+            arr = new JSONLongArray();
+          } else if ((initial >= HALF) && (initial <= DOUBLE)) {
+            arr = new JSONDoubleArray();
+          } else {
+            arr = new JSONArray();
+          }
+        }
+        this.element(arr, initial);
+      }
+      return (arr == null) ? new JSONArray() : arr;
+    } // array(int)
+
+    /**
+     * Read the element that starts with initial into arr, without boxing
+     * numbers that arr can hold as primitives.
+     */
+    void element(JSONArray arr, int initial) throws ParseException {
+      int major = initial >>> 5;
+      if ((major <= MAJOR_NEGATIVE) && (arr instanceof JSONLongArray)) {
+        long num = this.argument(initial & 0x1F);
+        if (num >= 0) {
+          ((JSONLongArray) arr).addLong((major == MAJOR_UNSIGNED) ? num : ~num);
+        } else {
+          arr.add(this.integer(num, major == MAJOR_NEGATIVE));
+        }
+      } else if ((initial >= HALF) && (initial <= DOUBLE) && (arr instanceof JSONDoubleArray)) {
+        double num = this.floating(initial);
+        if (Double.isFinite(num)) {
+          ((JSONDoubleArray) arr).addDouble(num);
+        } else {
+          arr.add(JSONConstant.NULL);
+        }
+      } else {
+        arr.add(this.value(initial));
+      }
+    } // element(JSONArray, int)
+
+    /**
+     * Read a map.
+     */
+    JSONValue map(int info) throws ParseException {
+      long size = (info == INDEFINITE) ? -1 : this.length(info);
+      JSONHash hash = new JSONHash();
+      for (long i = 0; i != size; i++) {
+        int initial = this.u8();
+        if ((initial == BREAK) && (size < 0)) {
+          break;
+        }
+        JSONValue key = this.value(initial);
+        if (!(key instanceof JSONString)) {
+          key = new JSONString(JSON.toString(key, JSONFormat.COMPACT));
+        }
+        hash.set((JSONString) key, this.value());
+      }
+      return hash;
+    } // map(int)
+
+    /**
+     * Read the item after a tag.
+     */
+    JSONValue tagged(long tag) throws ParseException {
+      if (tag == TAG_STRINGREF) {
+        Object str = this.reference();
+        return (str instanceof JSONString) ? (JSONString) str : base64((byte[]) str);
+      } else if (tag == TAG_STRINGREF_NAMESPACE) {
+        ArrayList<Object> outer = this.shared;
+        this.shared = new ArrayList<Object>();
+        try {
+          return this.value();
+        } finally {
+          this.shared = outer;
+        }
+      } else if (tag == TAG_POSITIVE_BIGNUM) {
+        return new JSONInteger(new BigInteger(1, this.byteString()));
+      } else if (tag == TAG_NEGATIVE_BIGNUM) {
+        return new JSONInteger(new BigInteger(1, this.byteString()).not());
+      } else if (tag == TAG_DECIMAL) {
+        if (this.u8() != ((MAJOR_ARRAY << 5) | 2)) {
+          throw this.error("Decimal fractions must be two integers");
+        }
+        JSONValue exponent = this.value();
+        JSONValue mantissa = this.value();
+        if (!(exponent instanceof JSONInteger) || !(mantissa instanceof JSONInteger)
+            || !((JSONInteger) exponent).fitsInLong()
+            || (Math.abs(((JSONInteger) exponent).longValue()) > Integer.MAX_VALUE)) {
+          throw this.error("Decimal fractions must be two integers");
+        }
+        return new JSONReal(new BigDecimal(((JSONInteger) mantissa).getValue(),
+            -(int) ((JSONInteger) exponent).longValue()));
+      } else {
+        return this.value();
+      }
+    } // tagged(long)
+
+    /**
+     * Read a simple value or a float.
+     */
+    JSONValue simple(int initial) throws ParseException {
+      if (initial == FALSE) {
+        return JSONConstant.FALSE;
+      } else if (initial == TRUE) {
+        return JSONConstant.TRUE;
+      } else if ((initial >= HALF) && (initial <= DOUBLE)) {
+        return this.real(this.floating(initial));
+      } else if (initial == BREAK) {
+        throw this.error("Unexpected break");
+      } else if (initial > DOUBLE) {
+        throw this.error("Bad simple value");
+      } else {
+        // null, undefined, and the simple values JSON has no use for
+        this.argument(initial & 0x1F);
+        return JSONConstant.NULL;
+      }
+    } // simple(int)
+
+    /**
+     * Read the float that starts with initial.
+     */
+    double floating(int initial) throws ParseException {
+      if (initial == HALF) {
+        return fromHalf((int) this.number(2));
+      } else if (initial == SINGLE) {
+        return Float.intBitsToFloat((int) this.number(4));
+      } else {
+        return Double.longBitsToDouble(this.number(8));
+      }
+    } // floating(int)
+
+    /**
+     * Make a real from a double, with its shortest digits, or null if JSON
+     * has no such number.
+     */
+    JSONValue real(double num) {
+      if (!Double.isFinite(num)) {
+        return JSONConstant.NULL;
+      } else if (num == 0) {
+        return new JSONReal(BigDecimal.ZERO);
+      }
+      this.decimal.set(num);
+      long digits = this.decimal.digits();
+      return new JSONReal(BigDecimal.valueOf((num < 0) ? -digits : digits,
+          -this.decimal.exponent()));
+    } // real(double)
+
+    /**
+     * Make an integer from a CBOR integer's argument, taken as unsigned.
+     */
+    JSONValue integer(long argument, boolean negative) {
+      if (argument >= 0) {
+        return new JSONInteger(negative ? ~argument : argument);
+      }
+      BigInteger big = new BigInteger(Long.toUnsignedString(argument));
+      return new JSONInteger(negative ? big.not() : big);
+    } // integer(long, boolean)
+
+    /**
+     * Read a text string whose first byte had the given additional
+     * information.
+     */
+    JSONValue text(int info) throws ParseException {
+      if (info != INDEFINITE) {
+        int length = this.length(info);
+        JSONString str = new JSONString(this.utf8(length));
+        this.share(str, length);
+        return str;
+      }
+      StringBuilder chunks = new StringBuilder();
+      for (int initial = this.u8(); initial != BREAK; initial = this.u8()) {
+        if (((initial >>> 5) != MAJOR_TEXT) || ((initial & 0x1F) == INDEFINITE)) {
+          throw this.error("Bad chunk of text");
+        }
+        chunks.append(this.utf8(this.length(initial & 0x1F)));
+      }
+      return new JSONString(chunks.toString());
+    } // text(int)
+
+    /**
+     * Read a byte string whose first byte had the given additional
+     * information.
+     */
+    byte[] bytes(int info) throws ParseException {
+      if (info != INDEFINITE) {
+        int length = this.length(info);
+        this.need(length);
+        byte[] bytes = new byte[length];
+        this.in.get(bytes);
+        this.share(bytes, length);
+        return bytes;
+      }
+      ByteArrayOutputStream chunks = new ByteArrayOutputStream();
+      for (int initial = this.u8(); initial != BREAK; initial = this.u8()) {
+        if (((initial >>> 5) != MAJOR_BYTES) || ((initial & 0x1F) == INDEFINITE)) {
+          throw this.error("Bad chunk of bytes");
+        }
+        chunks.writeBytes(this.bytes(initial & 0x1F));
+      }
+      return chunks.toByteArray();
+    } // bytes(int)
+
+    /**
+     * Read a byte string, or a reference to one, for a bignum.
+     */
+    byte[] byteString() throws ParseException {
+      int initial = this.u8();
+      if ((initial >>> 5) == MAJOR_BYTES) {
+        return this.bytes(initial & 0x1F);
+      }
+      if (((initial >>> 5) == MAJOR_TAG) && (this.argument(initial & 0x1F) == TAG_STRINGREF)) {
+        Object str = this.reference();
+        if (str instanceof byte[]) {
+          return (byte[]) str;
+        }
+      }
+      throw this.error("Bignums must be byte strings");
+    } // byteString()
+
+    /**
+     * Read the index of a stringref and get the string it refers to.
+     */
+    Object reference() throws ParseException {
+      int initial = this.u8();
+      long index = ((initial >>> 5) == MAJOR_UNSIGNED) ? this.argument(initial & 0x1F) : -1;
+      if ((this.shared == null) || (index < 0) || (index >= this.shared.size())) {
+        throw this.error("Bad string reference");
+      }
+      return this.shared.get((int) index);
+    } // reference()
+
+    /**
+     * Note a string that later stringrefs may refer to, if it is long
+     * enough.
+     */
+    void share(Object str, int length) {
+      if ((this.shared != null) && (length >= minShared(this.shared.size()))) {
+        this.shared.add(str);
+      }
+    } // share(Object, int)
+
+    /**
+     * Read length bytes of UTF-8.
+     */
+    String utf8(int length) throws ParseException {
+      this.need(length);
+      String str;
+      if (this.in.hasArray()) {
+        str = new String(this.in.array(), this.in.arrayOffset() + this.in.position(), length,
+            StandardCharsets.UTF_8);
+        this.in.position(this.in.position() + length);
+      } else {
+        byte[] bytes = new byte[length];
+        this.in.get(bytes);
+        str = new String(bytes, StandardCharsets.UTF_8);
+      }
+      return str;
+    } // utf8(int)
+
+    /**
+     * Read the argument given by an item's additional information.
+     */
+    long argument(int info) throws ParseException {
+      if (info < 24) {
+        return info;
+      } else if (info <= 27) {
+        return this.number(1 << (info - 24));
+      } else {
+        throw this.error("Bad additional information " + info);
+      }
+    } // argument(int)
+
+    /**
+     * Read the length of a string or container.
+     */
+    int length(int info) throws ParseException {
+      long length = this.argument(info);
+      if ((length < 0) || (length > Integer.MAX_VALUE)) {
+        throw this.error("Item too long");
+      }
+      return (int) length;
+    } // length(int)
+
+    /**
+     * Read a big-endian number of size bytes.
+     */
+    long number(int size) throws ParseException {
+      this.need(size);
+      long result = 0;
+      for (int i = 0; i < size; i++) {
+        result = (result << 8) | (this.in.get() & 0xFF);
+      }
+      return result;
+    } // number(int)
+
+    /**
+     * Read one byte.
+     */
+    int u8() throws ParseException {
+      this.need(1);
+      return this.in.get() & 0xFF;
+    } // u8()
+
+    /**
+     * Make sure there are size more bytes.
+     */
+    void need(int size) throws ParseException {
+      if (this.in.remaining() < size) {
+        throw this.error("Unexpected end of input");
+      }
+    } // need(int)
+
+    /**
+     * Build an exception for a problem at the current position.
+     */
+    ParseException error(String message) {
+      return new ParseException(message, this.in.position());
+    } // error(String)
+
+    /**
+     * Make the base64url string RFC 8949 suggests for a byte string.
+     */
+    static JSONString base64(byte[] bytes) {
+      return new JSONString(Base64.getUrlEncoder().withoutPadding().encodeToString(bytes));
+    } // base64(byte[])
+  } // class Decoder
+
+} // class JSONCBOR
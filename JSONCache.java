@@ -0,0 +1,172 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * The saved UTF-8 encoding of a hash or array, for values that are written
+ * over and over without changing. A container only has one of these once it
+ * asks to be memoized, or once it is written as part of one that has.
+ *
+ * A saved encoding depends on everything inside the container, so when we
+ * encode a memoized container we also note, for each container inside it,
+ * which container it was written as part of: its watcher. A change to a
+ * container then clears the encodings of its chain of watchers. Each link
+ * is used once and remade by the next encoding, so a change only walks the
+ * chain if something has been encoded since the last change.
+ *
+ * A container may be inside two others, but we can only note one watcher.
+ * If a second memoized container finds it already watched by another, the
+ * second does not save its encoding.
+ *
+ * Many threads may write the same memoized container at once, as long as
+ * none changes it meanwhile; a change needs the same exclusive access as
+ * any other change to a hash or array. The encoding is published through a
+ * volatile field, so a thread that finds it sees all of its bytes, and
+ * writes nothing else to splice it. Only encoding makes links, each under
+ * the lock of the cache it links, so two threads encoding different
+ * containers cannot both think they watch the same one.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public class JSONCache {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * Whether to save our container's encoding.
+   */
+  boolean memoize;
+
+  /**
+   * Whether we may never be watched, since our container has handed out
+   * something through which it may change without telling us.
+   */
+  boolean disabled;
+
+  /**
+   * Our container's compact UTF-8 encoding, or null if we have none. Never
+   * changed once set, only dropped.
+   */
+  volatile byte[] encoded;
+
+  /**
+   * Whether some saved encoding includes our container. Guarded by our
+   * lock.
+   */
+  boolean watched;
+
+  /**
+   * The cache of the container we were last written as part of, while we
+   * are watched. Guarded by our lock.
+   */
+  JSONCache parent;
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Note that our container changed, dropping our encoding and those of the
+   * containers watching us.
+   */
+  void changed() {
+    this.encoded = null;
+    JSONCache cache = this;
+    while (cache != null) {
+      JSONCache next = null;
+      synchronized (cache) {
+        if (cache.watched) {
+          cache.watched = false;
+          next = cache.parent;
+          next.encoded = null;
+        }
+      }
+      cache = next;
+    }
+  } // changed()
+
+  /**
+   * Write our container to writer, using or saving its encoding if we can.
+   * contents writes the container itself.
+   */
+  void write(JSONWriter writer, Contents contents) throws IOException {
+    JSONCache outer = writer.watcher;
+    if ((outer != null) && !this.watch(outer)) {
+      writer.unsaveable = true;
+    }
+    byte[] bytes = this.encoded;
+    if ((bytes == null) && this.memoize && !this.disabled && writer.canSplice()) {
+      bytes = this.encode(writer, contents);
+    }
+    if ((bytes != null) && writer.canSplice()) {
+      writer.splice(bytes);
+      return;
+    }
+    writer.watcher = (outer == null) ? null : this;
+    try {
+      contents.write(writer);
+    } finally {
+      writer.watcher = outer;
+    }
+  } // write(JSONWriter, Contents)
+
+  /**
+   * Note that outer's encoding includes our container, unless we may not
+   * be watched or another container's already does. Returns whether outer
+   * may save its encoding.
+   */
+  boolean watch(JSONCache outer) {
+    if (this.disabled) {
+      return false;
+    }
+    synchronized (this) {
+      if (!this.watched) {
+        this.parent = outer;
+        this.watched = true;
+      }
+      return this.parent == outer;
+    }
+  } // watch(JSONCache)
+
+  /**
+   * Encode our container, saving the encoding if nothing inside it is
+   * watched by another container. Anything that keeps us from saving it
+   * keeps writer's watcher from saving its own, too.
+   */
+  byte[] encode(JSONWriter writer, Contents contents) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    JSONByteWriter encoder = new JSONByteWriter(out);
+    try {
+      encoder.watcher = this;
+      contents.write(encoder);
+      encoder.flush();
+    } finally {
+      encoder.release();
+    }
+    byte[] bytes = out.toByteArray();
+    if (encoder.unsaveable) {
+      writer.unsaveable = true;
+    } else {
+      this.encoded = bytes;
+    }
+    return bytes;
+  } // encode(JSONWriter, Contents)
+
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /**
+   * A way to write a container's contents.
+   */
+  interface Contents {
+    /**
+     * Write the contents to writer.
+     */
+    void write(JSONWriter writer) throws IOException;
+  } // interface Contents
+
+} // class JSONCache
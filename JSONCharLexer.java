@@ -0,0 +1,356 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ * A tokenizer for JSON held as characters. Characters are read from the
+ * source in large blocks into a reusable window, so looking ahead never needs
+ * Reader.mark/reset and works with any Reader. In-memory input is scanned in
+ * place.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public class JSONCharLexer extends JSONLexer {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * Where more characters come from. Null when all of the input is already
+   * in the buffer.
+   */
+  Reader source;
+
+  /**
+   * Our reusable window. Grows when a single token does not fit.
+   */
+  char[] window;
+
+  /**
+   * The characters we are currently scanning. Either the window or an
+   * in-memory input.
+   */
+  char[] buffer;
+
+  /**
+   * A reusable view of strings that are still in the buffer.
+   */
+  Slice slice;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Build a new lexer with no input.
+   */
+  public JSONCharLexer() {
+    this.window = new char[WINDOW_SIZE];
+    this.slice = new Slice();
+    this.release();
+  } // JSONCharLexer()
+
+  // +---------------+-----------------------------------------------
+  // | Input control |
+  // +---------------+
+
+  /**
+   * Start reading from a reader.
+   */
+  public void reset(Reader source) {
+    this.source = source;
+    this.buffer = this.window;
+    this.index = 0;
+    this.limit = 0;
+    this.start = -1;
+    this.offset = 0;
+  } // reset(Reader)
+
+  /**
+   * Start reading the characters in chars[from..to). The array is scanned in
+   * place and never modified.
+   */
+  public void reset(char[] chars, int from, int to) {
+    this.source = null;
+    this.buffer = chars;
+    this.index = from;
+    this.limit = to;
+    this.start = -1;
+    this.offset = -from;
+  } // reset(char[], int, int)
+
+  /**
+   * Forget the current input.
+   */
+  public void release() {
+    this.reset(this.window, 0, 0);
+  } // release()
+
+  // +------------+--------------------------------------------------
+  // | Characters |
+  // +------------+
+
+  /**
+   * Read the next character, or -1 at the end of the input.
+   */
+  public int read() throws IOException {
+    if (this.index < this.limit || this.fill()) {
+      return this.buffer[this.index++];
+    }
+    return -1;
+  } // read()
+
+  /**
+   * Look at the next character without reading it, or -1 at the end of the
+   * input.
+   */
+  public int peek() throws IOException {
+    if (this.index < this.limit || this.fill()) {
+      return this.buffer[this.index];
+    }
+    return -1;
+  } // peek()
+
+  /**
+   * Read the next character that is not whitespace, or -1 at the end of the
+   * input.
+   */
+  public int nextNonWhitespace() throws IOException {
+    this.start = -1;
+    do {
+      char[] buf = this.buffer;
+      int i = this.index;
+      int end = this.limit;
+      while (i < end) {
+        char ch = buf[i++];
+        if (!JSON.isWhitespace(ch)) {
+          this.index = i;
+          return ch;
+        }
+      }
+      this.index = i;
+    } while (this.fill());
+    return -1;
+  } // nextNonWhitespace()
+
+  // +--------+------------------------------------------------------
+  // | Tokens |
+  // +--------+
+
+  /**
+   * Scan the rest of a string whose opening quote has already been read.
+   * Strings without escapes stay in the buffer; the rest are decoded into
+   * our reusable builder.
+   */
+  public void scanString() throws IOException, ParseException {
+    int i = this.index;
+    this.start = i;
+    while (true) {
+      char[] buf = this.buffer;
+      int end = this.limit;
+      while (i < end) {
+        char ch = buf[i];
+        if ('"' == ch) {
+          this.index = i + 1;
+          this.escaped = false;
+          return;
+        } else if (('\\' == ch) || (ch < 0x20)) {
+          this.index = i;
+          this.scanEscapedString();
+          this.escaped = true;
+          return;
+        }
+        i++;
+      }
+      this.index = i;
+      if (!this.fill()) {
+        throw this.error("Unexpected end of string");
+      }
+      i = this.index;
+    }
+  } // scanString()
+
+  /**
+   * Make a String of the contents of the string we just scanned. Strings
+   * without escapes are copied straight out of the buffer.
+   */
+  public String stringValue() {
+    if (this.escaped) {
+      return this.builder.toString();
+    }
+    return new String(this.buffer, this.start, this.index - 1 - this.start);
+  } // stringValue()
+
+  /**
+   * Get the contents of the string we just scanned, without copying them.
+   */
+  public CharSequence chars() {
+    if (this.escaped) {
+      return this.builder;
+    }
+    this.slice.reset(this.buffer, this.start, this.index - 1);
+    return this.slice;
+  } // chars()
+
+  /**
+   * Get the text of the number we just scanned.
+   */
+  public String text() {
+    return new String(this.buffer, this.start, this.index - this.start);
+  } // text()
+
+  /**
+   * Get the value of the number we just scanned, straight from the buffer.
+   */
+  public BigDecimal decimal() {
+    return new BigDecimal(this.buffer, this.start, this.index - this.start);
+  } // decimal()
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Get the character at index i of the buffer.
+   */
+  int unitAt(int i) {
+    return this.buffer[i];
+  } // unitAt(int)
+
+  /**
+   * Finish scanning a string that contains escapes, decoding it into our
+   * builder. The characters from the start of the string up to the index
+   * have no escapes.
+   */
+  void scanEscapedString() throws IOException, ParseException {
+    StringBuilder str = this.builder;
+    str.setLength(0);
+    str.append(this.buffer, this.start, this.index - this.start);
+    this.start = -1;
+    while (true) {
+      // Copy a run of plain characters
+      char[] buf = this.buffer;
+      int i = this.index;
+      int end = this.limit;
+      while ((i < end) && ('"' != buf[i]) && ('\\' != buf[i]) && (buf[i] >= 0x20)) {
+        i++;
+      }
+      str.append(buf, this.index, i - this.index);
+      this.index = i;
+      if (i == end) {
+        if (!this.fill()) {
+          throw this.error("Unexpected end of string");
+        }
+        continue;
+      }
+      // Deal with the character that ended the run
+      char ch = buf[this.index++];
+      if ('"' == ch) {
+        return;
+      } else if ('\\' == ch) {
+        str.append(this.readEscape());
+      } else {
+        throw this.error("Unescaped control character in string");
+      }
+    }
+  } // scanEscapedString()
+
+  /**
+   * Move past a run of digits.
+   */
+  void skipDigits() throws IOException {
+    do {
+      while (this.index < this.limit && isDigit(this.buffer[this.index])) {
+        this.index++;
+      }
+    } while (this.index == this.limit && this.fill());
+  } // skipDigits()
+
+  /**
+   * Read more characters into the window, keeping any token in progress.
+   * Returns false if there are no more characters.
+   */
+  boolean fill() throws IOException {
+    if (this.source == null) {
+      return false;
+    }
+    int keep = (this.start >= 0) ? this.start : this.index;
+    if (keep > 0) {
+      System.arraycopy(this.buffer, keep, this.buffer, 0, this.limit - keep);
+      this.limit -= keep;
+      this.index -= keep;
+      if (this.start >= 0) {
+        this.start -= keep;
+      }
+      this.offset += keep;
+    } else if (this.limit == this.buffer.length) {
+      this.window = Arrays.copyOf(this.buffer, 2 * this.buffer.length);
+      this.buffer = this.window;
+    }
+    int count;
+    do {
+      count = this.source.read(this.buffer, this.limit, this.buffer.length - this.limit);
+    } while (count == 0);
+    if (count < 0) {
+      return false;
+    }
+    this.limit += count;
+    return true;
+  } // fill()
+
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /**
+   * A view of part of a character array, so that strings can be examined
+   * without copying them.
+   */
+  static class Slice implements CharSequence {
+    /**
+     * The array we view.
+     */
+    char[] chars;
+
+    /**
+     * Where the view starts in the array.
+     */
+    int from;
+
+    /**
+     * Where the view ends in the array.
+     */
+    int to;
+
+    /**
+     * View chars[from..to).
+     */
+    void reset(char[] chars, int from, int to) {
+      this.chars = chars;
+      this.from = from;
+      this.to = to;
+    } // reset(char[], int, int)
+
+    public int length() {
+      return this.to - this.from;
+    } // length()
+
+    public char charAt(int i) {
+      return this.chars[this.from + i];
+    } // charAt(int)
+
+    public CharSequence subSequence(int start, int end) {
+      return this.toString().subSequence(start, end);
+    } // subSequence(int, int)
+
+    public String toString() {
+      return new String(this.chars, this.from, this.to - this.from);
+    } // toString()
+  } // class Slice
+
+} // class JSONCharLexer
@@ -0,0 +1,155 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * A serializer for JSON as characters, for a Writer, StringBuilder, or any
+ * other Appendable. Characters collect in a buffer that goes to the
+ * destination in one call when it fills, or on flush(). With no
+ * destination, the buffer grows instead, and toString() gives the text.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public class JSONCharWriter extends JSONWriter {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The initial size of the buffer when we keep our characters. Small,
+   * since most values we are asked for as strings are small.
+   */
+  static final int KEPT_SIZE = 128;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * Where the characters go, or null to keep them.
+   */
+  Appendable out;
+
+  /**
+   * Characters not yet passed on.
+   */
+  char[] buffer;
+
+  /**
+   * The number of characters in the buffer.
+   */
+  int count;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Build a writer that sends its characters to out.
+   */
+  public JSONCharWriter(Appendable out) {
+    this.out = out;
+    this.buffer = new char[BUFFER_SIZE];
+    this.count = 0;
+  } // JSONCharWriter(Appendable)
+
+  /**
+   * Build a writer that keeps its characters.
+   */
+  public JSONCharWriter() {
+    this.out = null;
+    this.buffer = new char[KEPT_SIZE];
+    this.count = 0;
+  } // JSONCharWriter()
+
+  // +-------------------------+-------------------------------------
+  // | Standard object methods |
+  // +-------------------------+
+
+  /**
+   * Get the characters written since the last flush: all of them, if we
+   * have no destination.
+   */
+  public String toString() {
+    return new String(this.buffer, 0, this.count);
+  } // toString()
+
+  // +--------+------------------------------------------------------
+  // | Output |
+  // +--------+
+
+  /**
+   * Pass the buffered characters on to our Appendable. Only Writers and
+   * StringBuilders can take them without a copy.
+   */
+  public void flush() throws IOException {
+    if (this.out == null) {
+      return;
+    } else if (this.out instanceof Writer) {
+      ((Writer) this.out).write(this.buffer, 0, this.count);
+    } else if (this.out instanceof StringBuilder) {
+      ((StringBuilder) this.out).append(this.buffer, 0, this.count);
+    } else {
+      this.out.append(CharBuffer.wrap(this.buffer, 0, this.count));
+    }
+    this.count = 0;
+  } // flush()
+
+  void put(char ch) throws IOException {
+    if (this.count == this.buffer.length) {
+      this.spill();
+    }
+    this.buffer[this.count++] = ch;
+  } // put(char)
+
+  void put(CharSequence str, int from, int to) throws IOException {
+    while (from < to) {
+      if (this.count == this.buffer.length) {
+        this.spill();
+      }
+      int end = Math.min(to, from + this.buffer.length - this.count);
+      if (str instanceof String) {
+        ((String) str).getChars(from, end, this.buffer, this.count);
+        this.count += end - from;
+      } else {
+        for (int i = from; i < end; i++) {
+          this.buffer[this.count++] = str.charAt(i);
+        }
+      }
+      from = end;
+    }
+  } // put(CharSequence, int, int)
+
+  void put(char[] chars, int from, int to) throws IOException {
+    while (from < to) {
+      if (this.count == this.buffer.length) {
+        this.spill();
+      }
+      int end = Math.min(to, from + this.buffer.length - this.count);
+      System.arraycopy(chars, from, this.buffer, this.count, end - from);
+      this.count += end - from;
+      from = end;
+    }
+  } // put(char[], int, int)
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Make room in a full buffer, by passing it on or, if we keep our
+   * characters, by doubling it.
+   */
+  void spill() throws IOException {
+    if (this.out == null) {
+      this.buffer = Arrays.copyOf(this.buffer, 2 * this.buffer.length);
+    } else {
+      this.flush();
+    }
+  } // spill()
+
+} // class JSONCharWriter
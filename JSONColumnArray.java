@@ -0,0 +1,515 @@
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * JSON arrays of objects that all have the same keys in the same order, as
+ * in the rows of a query result. Rather than one JSONHash per row, we keep
+ * one array per key: a column. Numeric columns are JSONLongArrays or
+ * JSONDoubleArrays, so a column of numbers takes a few bytes per row and
+ * may be scanned straight through with column(key).
+ *
+ * Elements come back out as views of their row, which read from the
+ * columns and write to them, as long as the keys stay the same. Adding a
+ * row with other keys, adding a key to a row, or calling getValue(), which
+ * hands out the list of values, switches us to one ordinary JSONHash per
+ * row. Rows already handed out then look at those hashes instead, and keep
+ * them even if the array later replaces or drops them.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public class JSONColumnArray extends JSONArray {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The key of each column, in order, as a hash (whose values we ignore)
+   * so that rows may share its table to find columns. Null once we have
+   * switched to values.
+   */
+  JSONHash names;
+
+  /**
+   * The columns, parallel to the keys of names. Null once we have switched
+   * to values.
+   */
+  JSONArray[] columns;
+
+  /**
+   * The number of rows in the columns.
+   */
+  int rows;
+
+  /**
+   * The hash each row became when we switched to values, for the rows
+   * handed out before then. Null while we are columnar.
+   */
+  JSONHash[] detached;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Build an array holding one row, whose keys are those of every row and
+   * whose values pick the kind of each column.
+   */
+  public JSONColumnArray(JSONHash first) {
+    super();
+    this.names = new JSONHash();
+    this.columns = new JSONArray[first.size()];
+    JSONHash.Cursor cursor = first.cursor();
+    for (int i = 0; cursor.next(); i++) {
+      JSONValue value = cursor.value();
+      this.names.set(cursor.key(), null);
+      if (JSONLongArray.fits(value)) {
+        this.columns[i] = new JSONLongArray();
+      } else if (JSONDoubleArray.fits(value)) {
+        this.columns[i] = new JSONDoubleArray();
+      } else {
+        this.columns[i] = new JSONArray();
+      }
+      this.columns[i].add(value);
+    }
+    this.rows = 1;
+  } // JSONColumnArray(JSONHash)
+
+  // +--------------------+------------------------------------------
+  // | Additional methods |
+  // +--------------------+
+
+  /**
+   * Get the underlying value. Switches us to a list of hashes, since the
+   * caller may change the list.
+   */
+  public ArrayList<JSONValue> getValue() {
+    this.generalize();
+    return super.getValue();
+  } // getValue()
+
+  /**
+   * Determine if we still keep our rows as columns.
+   */
+  public boolean isSpecialized() {
+    return this.columns != null;
+  } // isSpecialized()
+
+  /**
+   * Get the keys of our columns, in order.
+   */
+  public List<JSONString> columnKeys() {
+    if (this.columns == null) {
+      throw new IllegalStateException("No longer columnar");
+    }
+    return List.of(Arrays.copyOf(this.names.keys, this.names.size));
+  } // columnKeys()
+
+  /**
+   * Get the values for one key, in row order. While we are columnar, this
+   * is the column itself (often a JSONLongArray or JSONDoubleArray), which
+   * must not be changed except through the rows. Afterwards, it is a new
+   * array of the values from each row.
+   */
+  public JSONArray column(JSONString key) {
+    if (this.columns != null) {
+      int column = this.names.find(key, JSONHash.hash(key));
+      if (column < 0) {
+        throw new IndexOutOfBoundsException("Invalid key: " + key);
+      }
+      return this.columns[column];
+    }
+    JSONArray result = new JSONArray();
+    for (int i = 0; i < super.size(); i++) {
+      result.add(((JSONHash) super.get(i)).get(key));
+    }
+    return result;
+  } // column(JSONString)
+
+  // +---------------+-----------------------------------------------
+  // | Array methods |
+  // +---------------+
+
+  /**
+   * Add a value to the end of the array.
+   */
+  public void add(JSONValue value) {
+    if (this.matches(value)) {
+      JSONHash.Cursor cursor = ((JSONHash) value).cursor();
+      for (int i = 0; cursor.next(); i++) {
+        this.columns[i].add(cursor.value());
+      }
+      this.rows++;
+      this.changed();
+    } else {
+      this.generalize();
+      super.add(value);
+    }
+  } // add(JSONValue)
+
+  /**
+   * Get the value at a particular index.
+   */
+  public JSONValue get(int index) throws IndexOutOfBoundsException {
+    if (this.columns == null) {
+      return super.get(index);
+    }
+    Objects.checkIndex(index, this.rows);
+    return new Row(this, index);
+  } // get(int)
+
+  /**
+   * Get the iterator for the elements. Removing through it switches us to
+   * hashes, since columns cannot lose a row.
+   */
+  public Iterator<JSONValue> iterator() {
+    if (this.columns == null) {
+      return super.iterator();
+    }
+    return new Iterator<JSONValue>() {
+      /**
+       * The index of the next element.
+       */
+      int next = 0;
+
+      /**
+       * The index of the element next() last returned, or -1 if there is
+       * none to remove.
+       */
+      int last = -1;
+
+      public boolean hasNext() {
+        return this.next < JSONColumnArray.this.size();
+      } // hasNext()
+
+      public JSONValue next() {
+        if (!this.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        this.last = this.next;
+        return JSONColumnArray.this.get(this.next++);
+      } // next()
+
+      public void remove() {
+        if (this.last < 0) {
+          throw new IllegalStateException();
+        }
+        JSONColumnArray.this.generalize();
+        JSONColumnArray.this.values.remove(this.last);
+        JSONColumnArray.this.changed();
+        this.next = this.last;
+        this.last = -1;
+      } // remove()
+    };
+  } // iterator()
+
+  /**
+   * Call action on each element, in order.
+   */
+  public void forEach(Consumer<? super JSONValue> action) {
+    if (this.columns == null) {
+      super.forEach(action);
+      return;
+    }
+    for (int i = 0; i < this.rows; i++) {
+      action.accept(new Row(this, i));
+    }
+  } // forEach(Consumer)
+
+  /**
+   * Call action on each element and its index, in order.
+   */
+  public void forEach(ObjIntConsumer<? super JSONValue> action) {
+    if (this.columns == null) {
+      super.forEach(action);
+      return;
+    }
+    for (int i = 0; i < this.rows; i++) {
+      action.accept(new Row(this, i), i);
+    }
+  } // forEach(ObjIntConsumer)
+
+  /**
+   * Set the value at a particular index.
+   */
+  public void set(int index, JSONValue value) throws IndexOutOfBoundsException {
+    if (this.matches(value)) {
+      Objects.checkIndex(index, this.rows);
+      JSONHash.Cursor cursor = ((JSONHash) value).cursor();
+      for (int i = 0; cursor.next(); i++) {
+        this.columns[i].set(index, cursor.value());
+      }
+      this.changed();
+    } else {
+      this.generalize();
+      super.set(index, value);
+    }
+  } // set(int, JSONValue)
+
+  /**
+   * Determine how many values are in the array.
+   */
+  public int size() {
+    return (this.columns == null) ? super.size() : this.rows;
+  } // size()
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Add a row whose values, in column order, are in row. Used by the
+   * parser, which has already checked the keys.
+   */
+  void addRow(JSONValue[] row) {
+    for (int i = 0; i < this.columns.length; i++) {
+      this.columns[i].add(row[i]);
+    }
+    this.rows++;
+    this.changed();
+  } // addRow(JSONValue[])
+
+  /**
+   * Determine if value is a hash that we can keep as a row: one with our
+   * keys, in our order.
+   */
+  boolean matches(JSONValue value) {
+    if ((this.columns == null) || !(value instanceof JSONHash)) {
+      return false;
+    }
+    JSONHash hash = (JSONHash) value;
+    if (hash.size() != this.names.size) {
+      return false;
+    }
+    JSONHash.Cursor cursor = hash.cursor();
+    for (int i = 0; cursor.next(); i++) {
+      if (!cursor.key().equals(this.names.keys[i])) {
+        return false;
+      }
+    }
+    return true;
+  } // matches(JSONValue)
+
+  /**
+   * Switch from columns to a list of hashes. Any saved encoding goes too,
+   * since it does not watch the new hashes.
+   */
+  void generalize() {
+    if (this.columns != null) {
+      this.changed();
+      this.values.ensureCapacity(this.rows);
+      this.detached = new JSONHash[this.rows];
+      for (int i = 0; i < this.rows; i++) {
+        JSONHash hash = new JSONHash();
+        for (int j = 0; j < this.columns.length; j++) {
+          hash.set(this.names.keys[j], this.columns[j].get(i));
+        }
+        this.values.add(hash);
+        this.detached[i] = hash;
+      }
+      this.columns = null;
+      this.names = null;
+    }
+  } // generalize()
+
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /**
+   * One row of a JSONColumnArray. We share the keys, hashes, and table of
+   * the array's names, so finding a key is just as for any other hash; the
+   * values are in the columns. Once the array switches to hashes, we pass
+   * everything on to the hash our row became.
+   */
+  static class Row extends JSONHash {
+    /**
+     * The array we are a row of.
+     */
+    JSONColumnArray array;
+
+    /**
+     * Our index in that array.
+     */
+    int index;
+
+    /**
+     * Build a view of the given row.
+     */
+    Row(JSONColumnArray array, int index) {
+      super();
+      this.array = array;
+      this.index = index;
+      this.keys = array.names.keys;
+      this.hashes = array.names.hashes;
+      this.table = array.names.table;
+      this.size = array.names.size;
+    } // Row(JSONColumnArray, int)
+
+    public boolean equals(Object other) {
+      if (this.array.columns == null) {
+        return this.target().equals(other);
+      } else if (this == other) {
+        return true;
+      } else if (other instanceof JSONFrozenHash) {
+        return other.equals(this);
+      } else if (!(other instanceof JSONHash)) {
+        return false;
+      }
+      JSONHash that = (JSONHash) other;
+      if (this.size != that.size()) {
+        return false;
+      }
+      for (int i = 0; i < this.size; i++) {
+        JSONValue value = that.lookup(this.keys[i], this.hashes[i]);
+        if ((value == null) || !this.value(i).equals(value)) {
+          return false;
+        }
+      }
+      return true;
+    } // equals(Object)
+
+    public int hashCode() {
+      if (this.array.columns == null) {
+        return this.target().hashCode();
+      }
+      int result = 0;
+      for (int i = 0; i < this.size; i++) {
+        result += this.keys[i].hashCode() ^ this.value(i).hashCode();
+      }
+      return result;
+    } // hashCode()
+
+    public JSONValue get(JSONString key) {
+      if (this.array.columns == null) {
+        return this.target().get(key);
+      }
+      int column = this.find(key, hash(key));
+      if (column < 0) {
+        throw new IndexOutOfBoundsException("Invalid key: " + key);
+      }
+      return this.value(column);
+    } // get(JSONString)
+
+    public Iterator<KVPair<JSONString, JSONValue>> iterator() {
+      if (this.array.columns == null) {
+        return this.target().iterator();
+      }
+      return new Iterator<KVPair<JSONString, JSONValue>>() {
+        /**
+         * Where we are in the row.
+         */
+        Cursor cursor = Row.this.cursor();
+
+        /**
+         * Whether the cursor is at a pair we have not returned.
+         */
+        boolean ready = this.cursor.next();
+
+        public boolean hasNext() {
+          return this.ready;
+        } // hasNext()
+
+        public KVPair<JSONString, JSONValue> next() {
+          if (!this.ready) {
+            throw new NoSuchElementException();
+          }
+          KVPair<JSONString, JSONValue> pair = new KVPair<JSONString, JSONValue>(this.cursor.key(), this.cursor.value());
+          this.ready = this.cursor.next();
+          return pair;
+        } // next()
+      };
+    } // iterator()
+
+    public void forEach(BiConsumer<? super JSONString, ? super JSONValue> action) {
+      if (this.array.columns == null) {
+        this.target().forEach(action);
+        return;
+      }
+      for (int i = 0; i < this.size; i++) {
+        action.accept(this.keys[i], this.value(i));
+      }
+    } // forEach(BiConsumer)
+
+    public void set(JSONString key, JSONValue value) {
+      if (this.array.columns != null) {
+        int column = this.find(key, hash(key));
+        if (column >= 0) {
+          this.array.columns[column].set(this.index, value);
+          this.array.changed();
+          return;
+        }
+        this.array.generalize();
+      }
+      this.target().set(key, value);
+    } // set(JSONString, JSONValue)
+
+    public int size() {
+      return (this.array.columns == null) ? this.target().size() : this.size;
+    } // size()
+
+    public void clear() {
+      if (this.array == null) {
+        // Called by our superclass's constructor, before we have an array
+        super.clear();
+        return;
+      }
+      this.array.generalize();
+      this.target().clear();
+    } // clear()
+
+    void start(Cursor cursor) {
+      if (this.array.columns == null) {
+        this.target().start(cursor);
+      } else {
+        cursor.index = 0;
+      }
+    } // start(Cursor)
+
+    boolean advance(Cursor cursor) {
+      if (this.array.columns == null) {
+        return this.target().advance(cursor);
+      }
+      int i = cursor.index;
+      if (i >= this.size) {
+        return false;
+      }
+      cursor.key = this.keys[i];
+      cursor.value = this.value(i);
+      cursor.index = i + 1;
+      return true;
+    } // advance(Cursor)
+
+    JSONValue lookup(JSONString key, int hash) {
+      if (this.array.columns == null) {
+        return this.target().lookup(key, hash);
+      }
+      int column = this.find(key, hash);
+      return (column < 0) ? null : this.value(column);
+    } // lookup(JSONString, int)
+
+    /**
+     * Get our value in a column.
+     */
+    JSONValue value(int column) {
+      return this.array.columns[column].get(this.index);
+    } // value(int)
+
+    /**
+     * Get the hash our row became, once the array keeps hashes.
+     */
+    JSONHash target() {
+      return this.array.detached[this.index];
+    } // target()
+  } // class Row
+
+} // class JSONColumnArray
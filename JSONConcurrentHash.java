@@ -0,0 +1,221 @@
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+
+/**
+ * JSON hashes/objects that many threads may read and change at once. Reads
+ * never lock; writes lock only the one bin they change; and the table grows
+ * a piece at a time, with other threads helping, rather than stopping
+ * everyone while it is rebuilt. All of that comes from the
+ * ConcurrentHashMap we keep our pairs in.
+ *
+ * Iterators are weakly consistent: they never throw
+ * ConcurrentModificationException, and see every pair that was there when
+ * they were made and not removed since, and perhaps some added since. Pairs
+ * are not kept in any particular order.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public class JSONConcurrentHash extends JSONHash {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * Our pairs. The fields of JSONHash are left empty.
+   */
+  final ConcurrentHashMap<JSONString, JSONValue> map = new ConcurrentHashMap<JSONString, JSONValue>();
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Build a new, empty, hash.
+   */
+  public JSONConcurrentHash() {
+    super(unsaveable());
+  } // JSONConcurrentHash()
+
+  // +-------------------------+-------------------------------------
+  // | Standard object methods |
+  // +-------------------------+
+
+  /**
+   * Compare to another object. Equal to any JSONHash or JSONFrozenHash with
+   * the same keys and equal values.
+   */
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    } else if (other instanceof JSONFrozenHash) {
+      return other.equals(this);
+    } else if (!(other instanceof JSONHash)) {
+      return false;
+    }
+    JSONHash that = (JSONHash) other;
+    if (this.size() != that.size()) {
+      return false;
+    }
+    for (Map.Entry<JSONString, JSONValue> entry : this.map.entrySet()) {
+      JSONValue value = that.lookup(entry.getKey(), hash(entry.getKey()));
+      if ((value == null) || !entry.getValue().equals(value)) {
+        return false;
+      }
+    }
+    return true;
+  } // equals(Object)
+
+  /**
+   * Compute the hash code, in the same way as JSONHash.
+   */
+  public int hashCode() {
+    return this.map.hashCode();
+  } // hashCode()
+
+  // +--------------------+------------------------------------------
+  // | Additional methods |
+  // +--------------------+
+
+  /**
+   * Do nothing. Our encoding could go stale as other threads change us, so
+   * it is never saved, and neither is that of anything we are inside.
+   */
+  public void memoize() {
+  } // memoize()
+
+  // +-------------------+-------------------------------------------
+  // | Hashtable methods |
+  // +-------------------+
+
+  /**
+   * Get the value associated with a key.
+   */
+  public JSONValue get(JSONString key) {
+    JSONValue value = this.map.get(key);
+    if (value == null) {
+      throw new IndexOutOfBoundsException("Invalid key: " + key);
+    }
+    return value;
+  } // get(JSONString)
+
+  /**
+   * Iterate the key/value pairs, in no particular order.
+   */
+  public Iterator<KVPair<JSONString, JSONValue>> iterator() {
+    Iterator<Map.Entry<JSONString, JSONValue>> entries = this.map.entrySet().iterator();
+    return new Iterator<KVPair<JSONString, JSONValue>>() {
+      public boolean hasNext() {
+        return entries.hasNext();
+      } // hasNext()
+
+      public KVPair<JSONString, JSONValue> next() {
+        Map.Entry<JSONString, JSONValue> entry = entries.next();
+        return new KVPair<JSONString, JSONValue>(entry.getKey(), entry.getValue());
+      } // next()
+    };
+  } // iterator()
+
+  /**
+   * Call action on each key and its value, in no particular order.
+   */
+  public void forEach(BiConsumer<? super JSONString, ? super JSONValue> action) {
+    this.map.forEach(action);
+  } // forEach(BiConsumer)
+
+  /**
+   * Set the value associated with a key.
+   */
+  public void set(JSONString key, JSONValue value) {
+    this.map.put(key, value);
+    this.changed();
+  } // set(JSONString, JSONValue)
+
+  /**
+   * Set the value associated with a key, unless it already has one. Returns
+   * the value the key ends up with. Happens atomically.
+   */
+  public JSONValue setIfAbsent(JSONString key, JSONValue value) {
+    JSONValue old = this.map.putIfAbsent(key, value);
+    if (old == null) {
+      this.changed();
+    }
+    return (old == null) ? value : old;
+  } // setIfAbsent(JSONString, JSONValue)
+
+  /**
+   * Set the value associated with a key to value if it has none, or else to
+   * the combination of its old value and value. Returns the new value.
+   * Happens atomically, so this is the way to total up results from many
+   * threads.
+   */
+  public JSONValue merge(JSONString key, JSONValue value, BinaryOperator<JSONValue> combine) {
+    JSONValue result = this.map.merge(key, value, combine);
+    this.changed();
+    return result;
+  } // merge(JSONString, JSONValue, BinaryOperator<JSONValue>)
+
+  /**
+   * Find out how many key/value pairs are in the hash table. While other
+   * threads are changing the hash, this is only an estimate.
+   */
+  public int size() {
+    return this.map.size();
+  } // size()
+
+  /**
+   * Clear the whole table.
+   */
+  public void clear() {
+    this.map.clear();
+    super.clear();
+  } // clear()
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Make the cache for a new hash. A change on one thread cannot be ordered
+   * against an encoding on another, so we never let an encoding that
+   * includes us be saved.
+   */
+  static JSONCache unsaveable() {
+    JSONCache cache = new JSONCache();
+    cache.disabled = true;
+    return cache;
+  } // unsaveable()
+
+  /**
+   * Start cursor at the first pair.
+   */
+  void start(Cursor cursor) {
+    cursor.entries = this.map.entrySet().iterator();
+  } // start(Cursor)
+
+  /**
+   * Move cursor to the next pair, returning false if there are no more.
+   */
+  boolean advance(Cursor cursor) {
+    if (!cursor.entries.hasNext()) {
+      return false;
+    }
+    Map.Entry<JSONString, JSONValue> entry = cursor.entries.next();
+    cursor.key = entry.getKey();
+    cursor.value = entry.getValue();
+    return true;
+  } // advance(Cursor)
+
+  /**
+   * Get the value for a key, or null if there is none.
+   */
+  JSONValue lookup(JSONString key, int hash) {
+    return this.map.get(key);
+  } // lookup(JSONString, int)
+
+} // class JSONConcurrentHash
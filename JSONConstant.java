@@ -1,4 +1,4 @@
-import java.io.PrintWriter;
+import java.io.IOException;
 
 /**
  * JSON constants.
@@ -64,10 +64,10 @@ public class JSONConstant implements JSONValue {
   } // toString()
 
   /**
-   * Compare to another object.
+   * Compare to another object. There is only one of each constant.
    */
   public boolean equals(Object other) {
-    return this.toString().equals(other.toString());
+    return this == other;
   } // equals(Object)
 
   /**
@@ -87,9 +87,13 @@ public class JSONConstant implements JSONValue {
   /**
    * Write the value as JSON.
    */
-  public void writeJSON(PrintWriter pen) {
-    pen.print(this.toString());
-  } // writeJSON(PrintWriter)
+  public void writeJSON(JSONWriter writer) throws IOException {
+    if (this.value == null) {
+      writer.nullValue();
+    } else {
+      writer.value(((Boolean) this.value).booleanValue());
+    }
+  } // writeJSON(JSONWriter)
 
   /**
    * Get the underlying value.
@@ -0,0 +1,256 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * The shortest decimal form of a double: the fewest significant digits
+ * that read back as the same double, and of those, the closest. Double's
+ * own toString does not promise that before Java 19, and makes a String
+ * anyway. A JSONDecimal is reused for each double, so finding the digits
+ * makes no objects.
+ *
+ * We use Giulietti's Schubfach method: scale the double's rounding interval
+ * by a power of ten, with one 126-bit multiplication per bound, and see
+ * which of the few candidate integers it holds. The powers of ten are
+ * computed (exactly, with BigIntegers) when the class is loaded.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public class JSONDecimal {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The exponent of the smallest subnormal double.
+   */
+  static final int Q_MIN = -1074;
+
+  /**
+   * The smallest significand of a normal double.
+   */
+  static final long C_MIN = 1L << 52;
+
+  /**
+   * Subnormal significands below this do not have enough digits to pick
+   * out the shortest form, so are scaled up by ten first.
+   */
+  static final long C_TINY = 3;
+
+  /**
+   * The smallest power of ten we scale by.
+   */
+  static final int K_MIN = -324;
+
+  /**
+   * The largest power of ten we scale by.
+   */
+  static final int K_MAX = 292;
+
+  /**
+   * The low 63 bits of a long.
+   */
+  static final long MASK_63 = 0x7FFFFFFFFFFFFFFFL;
+
+  /**
+   * For each k from K_MIN to K_MAX, the high and low 63 bits of the 126-bit
+   * approximation to 10^-k, rounded up.
+   */
+  static final long[] G = new long[2 * (K_MAX - K_MIN + 1)];
+
+  static {
+    for (int k = K_MIN; k <= K_MAX; k++) {
+      // 10^-k is g * 2^r, for 2^125 <= g < 2^126
+      int r = flog2pow10(-k) - 125;
+      BigInteger g;
+      if (k <= 0) {
+        BigInteger power = BigInteger.TEN.pow(-k);
+        g = (r >= 0) ? power.shiftRight(r) : power.shiftLeft(-r);
+      } else {
+        g = BigInteger.ONE.shiftLeft(-r).divide(BigInteger.TEN.pow(k));
+      }
+      g = g.add(BigInteger.ONE);
+      G[2 * (k - K_MIN)] = g.shiftRight(63).longValue();
+      G[2 * (k - K_MIN) + 1] = g.longValue() & MASK_63;
+    }
+  }
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The significant digits of the last double, with no trailing zeros.
+   */
+  long digits;
+
+  /**
+   * The power of ten to multiply digits by to get the last double.
+   */
+  int exponent;
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Get the shortest BigDecimal that reads back as a finite double.
+   */
+  public static BigDecimal shortest(double num) {
+    if (!Double.isFinite(num)) {
+      throw new NumberFormatException("JSON has no " + num);
+    } else if (num == 0) {
+      return BigDecimal.ZERO;
+    }
+    JSONDecimal decimal = new JSONDecimal();
+    decimal.set(num);
+    long digits = (num < 0) ? -decimal.digits() : decimal.digits();
+    return BigDecimal.valueOf(digits, -decimal.exponent());
+  } // shortest(double)
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Find the shortest decimal form of the magnitude of a finite double.
+   */
+  public void set(double num) {
+    long bits = Double.doubleToRawLongBits(num);
+    long t = bits & (C_MIN - 1);
+    int bq = (int) (bits >>> 52) & 0x7FF;
+    if (bq != 0) {
+      int mq = -Q_MIN + 1 - bq;
+      long c = C_MIN | t;
+      if ((0 < mq) && (mq < 53) && (((c >> mq) << mq) == c)) {
+        // An integer small enough that its digits are exact
+        this.found(c >> mq, 0);
+      } else {
+        this.find(-mq, c, 0);
+      }
+    } else if (t == 0) {
+      this.found(0, 0);
+    } else if (t < C_TINY) {
+      this.find(Q_MIN, 10 * t, -1);
+    } else {
+      this.find(Q_MIN, t, 0);
+    }
+  } // set(double)
+
+  /**
+   * Get the significant digits of the last double, with no trailing zeros.
+   * Zero for zero.
+   */
+  public long digits() {
+    return this.digits;
+  } // digits()
+
+  /**
+   * Get the power of ten that digits() is to be multiplied by.
+   */
+  public int exponent() {
+    return this.exponent;
+  } // exponent()
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Find the shortest decimal for c * 2^q, adding dk to the exponent found.
+   */
+  void find(int q, long c, int dk) {
+    int out = (int) c & 1;
+    long cb = c << 2;
+    long cbr = cb + 2;
+    long cbl;
+    int k;
+    if ((c != C_MIN) || (q == Q_MIN)) {
+      cbl = cb - 2;
+      k = flog10pow2(q);
+    } else {
+      // The gap below a power of two is half the gap above it
+      cbl = cb - 1;
+      k = flog10threeQuartersPow2(q);
+    }
+    int h = q + flog2pow10(-k) + 2;
+    long g1 = G[2 * (k - K_MIN)];
+    long g0 = G[2 * (k - K_MIN) + 1];
+    long vb = rop(g1, g0, cb << h);
+    long vbl = rop(g1, g0, cbl << h);
+    long vbr = rop(g1, g0, cbr << h);
+    long s = vb >> 2;
+    if (s >= 100) {
+      // Try for one digit fewer first
+      long sp10 = (s / 10) * 10;
+      long tp10 = sp10 + 10;
+      boolean upin = vbl + out <= sp10 << 2;
+      boolean wpin = (tp10 << 2) + out <= vbr;
+      if (upin != wpin) {
+        this.found(upin ? sp10 : tp10, k);
+        return;
+      }
+    }
+    long t = s + 1;
+    boolean uin = vbl + out <= s << 2;
+    boolean win = (t << 2) + out <= vbr;
+    if (uin != win) {
+      this.found(uin ? s : t, k + dk);
+      return;
+    }
+    // Both are in the interval, so take the closer (or the even one)
+    long cmp = vb - ((s + t) << 1);
+    this.found(((cmp < 0) || ((cmp == 0) && ((s & 1) == 0))) ? s : t, k + dk);
+  } // find(int, long, int)
+
+  /**
+   * Note the digits we found, less any trailing zeros.
+   */
+  void found(long f, int e) {
+    if (f != 0) {
+      while (f % 10 == 0) {
+        f /= 10;
+        e++;
+      }
+    }
+    this.digits = f;
+    this.exponent = e;
+  } // found(long, int)
+
+  /**
+   * Compute the top 64 bits of g * cp / 2^63, rounded to odd, where g is
+   * g1 * 2^63 + g0.
+   */
+  static long rop(long g1, long g0, long cp) {
+    long x1 = Math.multiplyHigh(g0, cp);
+    long y0 = g1 * cp;
+    long y1 = Math.multiplyHigh(g1, cp);
+    long z = (y0 >>> 1) + x1;
+    long vbp = y1 + (z >>> 63);
+    return vbp | (((z & MASK_63) + MASK_63) >>> 63);
+  } // rop(long, long, long)
+
+  /**
+   * Compute floor(log10(2^q)).
+   */
+  static int flog10pow2(int q) {
+    return (int) ((q * 661971961083L) >> 41);
+  } // flog10pow2(int)
+
+  /**
+   * Compute floor(log10(3/4 * 2^q)).
+   */
+  static int flog10threeQuartersPow2(int q) {
+    return (int) ((q * 661971961083L - 274743187321L) >> 41);
+  } // flog10threeQuartersPow2(int)
+
+  /**
+   * Compute floor(log2(10^e)).
+   */
+  static int flog2pow10(int e) {
+    return (int) ((e * 913124641741L) >> 38);
+  } // flog2pow10(int)
+
+} // class JSONDecimal
@@ -0,0 +1,339 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.DoubleStream;
+
+/**
+ * JSON arrays of reals, kept in a double[]. The parser makes these for
+ * arrays whose elements are all reals of at most 15 significant digits,
+ * which a double holds exactly. Elements come back out as JSONReals.
+ *
+ * Like JSONLongArray, we switch to the ordinary list of values if anything
+ * else is added or set, or if getValue() is called.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public class JSONDoubleArray extends JSONArray {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The elements, or null once we have switched to values.
+   */
+  double[] doubles;
+
+  /**
+   * The number of elements in doubles.
+   */
+  int count;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Build a new, empty, array.
+   */
+  public JSONDoubleArray() {
+    super();
+    this.doubles = new double[8];
+    this.count = 0;
+  } // JSONDoubleArray()
+
+  /**
+   * Build an array holding the given doubles.
+   */
+  public JSONDoubleArray(double... elements) {
+    super();
+    this.doubles = elements.clone();
+    this.count = elements.length;
+  } // JSONDoubleArray(double...)
+
+  // +-------------------------+-------------------------------------
+  // | Standard object methods |
+  // +-------------------------+
+
+  /**
+   * Compare to another object. Compares doubles directly when both arrays
+   * still have them.
+   */
+  public boolean equals(Object other) {
+    if ((this.doubles != null) && (other instanceof JSONDoubleArray) && (((JSONDoubleArray) other).doubles != null)) {
+      JSONDoubleArray that = (JSONDoubleArray) other;
+      if (this.count != that.count) {
+        return false;
+      }
+      // Not Arrays.equals, which tells 0.0 from -0.0
+      for (int i = 0; i < this.count; i++) {
+        if (this.doubles[i] != that.doubles[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return super.equals(other);
+  } // equals(Object)
+
+  // +--------------------+------------------------------------------
+  // | Additional methods |
+  // +--------------------+
+
+  /**
+   * Write our elements, straight from the doubles when we have them.
+   */
+  void writeContents(JSONWriter writer) throws IOException {
+    if (this.doubles == null) {
+      super.writeContents(writer);
+      return;
+    }
+    writer.startArray();
+    for (int i = 0; i < this.count; i++) {
+      writer.value(this.doubles[i]);
+    }
+    writer.endArray();
+  } // writeContents(JSONWriter)
+
+  /**
+   * Get the underlying value. Switches us to a list of values, since the
+   * caller may change the list.
+   */
+  public ArrayList<JSONValue> getValue() {
+    this.generalize();
+    return super.getValue();
+  } // getValue()
+
+  /**
+   * Determine if we still keep our elements as doubles.
+   */
+  public boolean isSpecialized() {
+    return this.doubles != null;
+  } // isSpecialized()
+
+  // +---------------+-----------------------------------------------
+  // | Array methods |
+  // +---------------+
+
+  /**
+   * Add a value to the end of the array.
+   */
+  public void add(JSONValue value) {
+    if ((this.doubles != null) && fits(value)) {
+      this.addDouble(((JSONReal) value).value.doubleValue());
+    } else {
+      this.generalize();
+      super.add(value);
+    }
+  } // add(JSONValue)
+
+  /**
+   * Add a double to the end of the array. It should have at most 15
+   * significant digits, or it will not compare equal to the JSONReal with
+   * the same text.
+   */
+  public void addDouble(double value) {
+    if (this.doubles == null) {
+      super.add(new JSONReal(value));
+      return;
+    }
+    this.changed();
+    if (this.count == this.doubles.length) {
+      this.doubles = Arrays.copyOf(this.doubles, Math.max(8, 2 * this.count));
+    }
+    this.doubles[this.count++] = value;
+  } // addDouble(double)
+
+  /**
+   * Get the value at a particular index.
+   */
+  public JSONValue get(int index) throws IndexOutOfBoundsException {
+    if (this.doubles == null) {
+      return super.get(index);
+    }
+    return new JSONReal(this.getDouble(index));
+  } // get(int)
+
+  /**
+   * Get the value at a particular index as a double.
+   *
+   * @throws ArithmeticException
+   *   if the value there is not a number.
+   */
+  public double getDouble(int index) throws IndexOutOfBoundsException {
+    if (this.doubles == null) {
+      JSONValue value = super.get(index);
+      return toDouble(value);
+    }
+    Objects.checkIndex(index, this.count);
+    return this.doubles[index];
+  } // getDouble(int)
+
+  /**
+   * Get the elements as a stream of doubles.
+   *
+   * @throws ArithmeticException
+   *   when the stream reaches an element that is not a number.
+   */
+  public DoubleStream doubleStream() {
+    if (this.doubles == null) {
+      return this.values.stream().mapToDouble(JSONDoubleArray::toDouble);
+    }
+    return Arrays.stream(this.doubles, 0, this.count);
+  } // doubleStream()
+
+  /**
+   * Get the iterator for the elements. Removing through it counts as a
+   * change, as for any array.
+   */
+  public Iterator<JSONValue> iterator() {
+    if (this.doubles == null) {
+      return super.iterator();
+    }
+    return new Iterator<JSONValue>() {
+      /**
+       * The index of the next element.
+       */
+      int next = 0;
+
+      /**
+       * The index of the element next() last returned, or -1 if there is
+       * none to remove.
+       */
+      int last = -1;
+
+      public boolean hasNext() {
+        return this.next < JSONDoubleArray.this.size();
+      } // hasNext()
+
+      public JSONValue next() {
+        if (!this.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        this.last = this.next;
+        return JSONDoubleArray.this.get(this.next++);
+      } // next()
+
+      public void remove() {
+        if (this.last < 0) {
+          throw new IllegalStateException();
+        }
+        JSONDoubleArray.this.remove(this.last);
+        this.next = this.last;
+        this.last = -1;
+      } // remove()
+    };
+  } // iterator()
+
+  /**
+   * Call action on each element, in order.
+   */
+  public void forEach(Consumer<? super JSONValue> action) {
+    if (this.doubles == null) {
+      super.forEach(action);
+      return;
+    }
+    for (int i = 0; i < this.count; i++) {
+      action.accept(new JSONReal(this.doubles[i]));
+    }
+  } // forEach(Consumer)
+
+  /**
+   * Call action on each element and its index, in order.
+   */
+  public void forEach(ObjIntConsumer<? super JSONValue> action) {
+    if (this.doubles == null) {
+      super.forEach(action);
+      return;
+    }
+    for (int i = 0; i < this.count; i++) {
+      action.accept(new JSONReal(this.doubles[i]), i);
+    }
+  } // forEach(ObjIntConsumer)
+
+  /**
+   * Set the value at a particular index.
+   */
+  public void set(int index, JSONValue value) throws IndexOutOfBoundsException {
+    if ((this.doubles != null) && fits(value)) {
+      Objects.checkIndex(index, this.count);
+      this.changed();
+      this.doubles[index] = ((JSONReal) value).value.doubleValue();
+    } else {
+      this.generalize();
+      super.set(index, value);
+    }
+  } // set(int, JSONValue)
+
+  /**
+   * Determine how many values are in the array.
+   */
+  public int size() {
+    return (this.doubles == null) ? super.size() : this.count;
+  } // size()
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Remove the element at an index, for our iterator.
+   */
+  void remove(int index) {
+    this.changed();
+    if (this.doubles == null) {
+      this.values.remove(index);
+    } else {
+      this.count--;
+      System.arraycopy(this.doubles, index + 1, this.doubles, index, this.count - index);
+    }
+  } // remove(int)
+
+  /**
+   * Switch from doubles to the ordinary list of values.
+   */
+  void generalize() {
+    if (this.doubles != null) {
+      this.values.ensureCapacity(this.count);
+      for (int i = 0; i < this.count; i++) {
+        this.values.add(new JSONReal(this.doubles[i]));
+      }
+      this.doubles = null;
+    }
+  } // generalize()
+
+  /**
+   * Determine if a value can be kept as a double without changing it: if
+   * the shortest digits of its double, which are what get() gives back,
+   * are its own.
+   */
+  static boolean fits(JSONValue value) {
+    if (!(value instanceof JSONReal)) {
+      return false;
+    }
+    BigDecimal real = ((JSONReal) value).value;
+    double d = real.doubleValue();
+    return Double.isFinite(d) && (JSONDecimal.shortest(d).compareTo(real) == 0);
+  } // fits(JSONValue)
+
+  /**
+   * Get a number as a double.
+   */
+  static double toDouble(JSONValue value) {
+    if (value instanceof JSONReal) {
+      return ((JSONReal) value).value.doubleValue();
+    } else if (value instanceof JSONInteger) {
+      return ((JSONInteger) value).getValue().doubleValue();
+    }
+    throw new ArithmeticException("Not a number: " + value);
+  } // toDouble(JSONValue)
+
+} // class JSONDoubleArray
@@ -0,0 +1,76 @@
+/**
+ * How a JSONWriter lays out its output: compact, indented (pretty), or one
+ * compact value per line (JSON Lines).
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public class JSONFormat {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * Everything on one line, with no spaces.
+   */
+  public static final JSONFormat COMPACT = new JSONFormat(null, false);
+
+  /**
+   * Each top-level value compact and on its own line.
+   */
+  public static final JSONFormat LINES = new JSONFormat(null, true);
+
+  /**
+   * One key or element per line, indented by two spaces per level.
+   */
+  public static final JSONFormat PRETTY = pretty(2);
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The text to indent each level by, or null for compact output.
+   */
+  String indent;
+
+  /**
+   * Whether to end each top-level value with a newline.
+   */
+  boolean lines;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Build a format.
+   */
+  JSONFormat(String indent, boolean lines) {
+    this.indent = indent;
+    this.lines = lines;
+  } // JSONFormat(String, boolean)
+
+  /**
+   * Get the format that indents each level by the given number of spaces.
+   */
+  public static JSONFormat pretty(int spaces) {
+    return pretty(" ".repeat(spaces));
+  } // pretty(int)
+
+  /**
+   * Get the format that indents each level by indent, which must be spaces
+   * and tabs.
+   */
+  public static JSONFormat pretty(String indent) {
+    for (int i = 0; i < indent.length(); i++) {
+      if ((' ' != indent.charAt(i)) && ('\t' != indent.charAt(i))) {
+        throw new IllegalArgumentException("Indent must be spaces and tabs");
+      }
+    }
+    return new JSONFormat(indent, false);
+  } // pretty(String)
+
+} // class JSONFormat
@@ -0,0 +1,279 @@
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Immutable JSON arrays. As with JSONFrozenHash, with() and plus() make a
+ * new version that shares all but one path with the old one, so versions
+ * may be read from many threads without locking.
+ *
+ * The elements are the leaves of a trie in which each node has 32
+ * children, indexed by five bits of the element's index at a time. Getting
+ * or replacing an element touches one node per level, and there are only
+ * log32(n) levels.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public class JSONFrozenArray implements JSONValue {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The empty array.
+   */
+  public static final JSONFrozenArray EMPTY = new JSONFrozenArray(new Object[32], 0, 0);
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The root of the trie. Nodes are Object[32]; those at the bottom hold
+   * elements, the rest hold nodes (or null, past the end).
+   */
+  Object[] root;
+
+  /**
+   * How far to shift an index to get the position of its path in the root.
+   * Zero when the root holds elements.
+   */
+  int shift;
+
+  /**
+   * The number of elements.
+   */
+  int size;
+
+  /**
+   * Our hash code, or 0 if it is 0 or not yet computed.
+   */
+  int hash;
+
+  /**
+   * Whether we computed our hash code and found it to be 0. Each field is
+   * right on its own, so threads that see only one of the writes (or
+   * neither) just compute the hash again.
+   */
+  boolean hashIsZero;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Build an array with a given trie.
+   */
+  JSONFrozenArray(Object[] root, int shift, int size) {
+    this.root = root;
+    this.shift = shift;
+    this.size = size;
+    this.hashIsZero = false;
+  } // JSONFrozenArray(Object[], int, int)
+
+  /**
+   * Make a frozen copy of an array. Nested objects and arrays are frozen
+   * too.
+   */
+  public static JSONFrozenArray of(JSONArray arr) {
+    JSONFrozenArray result = EMPTY;
+    for (int i = 0; i < arr.size(); i++) {
+      result = result.plus(JSON.freeze(arr.get(i)));
+    }
+    return result;
+  } // of(JSONArray)
+
+  // +-------------------------+-------------------------------------
+  // | Standard object methods |
+  // +-------------------------+
+
+  /**
+   * Convert to a string (e.g., for printing), as compact JSON.
+   */
+  public String toString() {
+    return JSON.toString(this, JSONFormat.COMPACT);
+  } // toString()
+
+  /**
+   * Compare to another object. Equal to any frozen or ordinary array with
+   * equal elements in the same order.
+   */
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    } else if (other instanceof JSONFrozenArray) {
+      JSONFrozenArray that = (JSONFrozenArray) other;
+      if ((this.size != that.size) || (this.hashCode() != that.hashCode())) {
+        return false;
+      }
+      for (int i = 0; i < this.size; i++) {
+        if (!this.get(i).equals(that.get(i))) {
+          return false;
+        }
+      }
+      return true;
+    } else if (!(other instanceof JSONArray)) {
+      return false;
+    }
+    JSONArray that = (JSONArray) other;
+    if (this.size != that.size()) {
+      return false;
+    }
+    for (int i = 0; i < this.size; i++) {
+      if (!this.get(i).equals(that.get(i))) {
+        return false;
+      }
+    }
+    return true;
+  } // equals(Object)
+
+  /**
+   * Compute the hash code, in the same way as JSONArray. Computed once,
+   * since we never change.
+   */
+  public int hashCode() {
+    int result = this.hash;
+    if ((result == 0) && !this.hashIsZero) {
+      result = 1;
+      for (int i = 0; i < this.size; i++) {
+        result = 31 * result + this.get(i).hashCode();
+      }
+      if (result == 0) {
+        this.hashIsZero = true;
+      } else {
+        this.hash = result;
+      }
+    }
+    return result;
+  } // hashCode()
+
+  // +--------------------+------------------------------------------
+  // | Additional methods |
+  // +--------------------+
+
+  /**
+   * Write the value as JSON.
+   */
+  public void writeJSON(JSONWriter writer) throws IOException {
+    writer.startArray();
+    for (int i = 0; i < this.size; i++) {
+      this.get(i).writeJSON(writer);
+    }
+    writer.endArray();
+  } // writeJSON(JSONWriter)
+
+  /**
+   * Get the underlying value, as an unmodifiable list.
+   */
+  public List<JSONValue> getValue() {
+    return new AbstractList<JSONValue>() {
+      public JSONValue get(int index) {
+        return JSONFrozenArray.this.get(index);
+      } // get(int)
+
+      public int size() {
+        return JSONFrozenArray.this.size;
+      } // size()
+    };
+  } // getValue()
+
+  // +---------------+-----------------------------------------------
+  // | Array methods |
+  // +---------------+
+
+  /**
+   * Get the value at a particular index.
+   */
+  public JSONValue get(int index) throws IndexOutOfBoundsException {
+    if ((index < 0) || (index >= this.size)) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + this.size);
+    }
+    Object[] node = this.root;
+    for (int level = this.shift; level > 0; level -= 5) {
+      node = (Object[]) node[(index >>> level) & 31];
+    }
+    return (JSONValue) node[index & 31];
+  } // get(int)
+
+  /**
+   * Make a version of this array with value at index. An index of size()
+   * adds the value to the end.
+   */
+  public JSONFrozenArray with(int index, JSONValue value) throws IndexOutOfBoundsException {
+    if (index == this.size) {
+      return this.plus(value);
+    } else if ((index < 0) || (index > this.size)) {
+      throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + this.size);
+    }
+    return new JSONFrozenArray(put(this.root, this.shift, index, value), this.shift, this.size);
+  } // with(int, JSONValue)
+
+  /**
+   * Make a version of this array with value added to the end.
+   */
+  public JSONFrozenArray plus(JSONValue value) {
+    if (this.size == (1L << (this.shift + 5))) {
+      // The trie is full, so grow a new root above it
+      Object[] newRoot = new Object[32];
+      newRoot[0] = this.root;
+      return new JSONFrozenArray(put(newRoot, this.shift + 5, this.size, value), this.shift + 5, this.size + 1);
+    }
+    return new JSONFrozenArray(put(this.root, this.shift, this.size, value), this.shift, this.size + 1);
+  } // plus(JSONValue)
+
+  /**
+   * Get the iterator for the elements.
+   */
+  public Iterator<JSONValue> iterator() {
+    return this.getValue().iterator();
+  } // iterator()
+
+  /**
+   * Call action on each element, in order. Walks the leaves of the trie
+   * directly, so makes no objects.
+   */
+  public void forEach(Consumer<? super JSONValue> action) {
+    for (int i = 0; i < this.size; i += 32) {
+      Object[] leaf = this.root;
+      for (int level = this.shift; level > 0; level -= 5) {
+        leaf = (Object[]) leaf[(i >>> level) & 31];
+      }
+      int count = Math.min(32, this.size - i);
+      for (int j = 0; j < count; j++) {
+        action.accept((JSONValue) leaf[j]);
+      }
+    }
+  } // forEach(Consumer)
+
+  /**
+   * Determine how many values are in the array.
+   */
+  public int size() {
+    return this.size;
+  } // size()
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Make a copy of node, the root of a trie whose paths start at level, with
+   * value at index. Missing nodes on the path are made.
+   */
+  static Object[] put(Object[] node, int level, int index, JSONValue value) {
+    Object[] copy = (node == null) ? new Object[32] : node.clone();
+    if (level == 0) {
+      copy[index & 31] = value;
+    } else {
+      int pos = (index >>> level) & 31;
+      copy[pos] = put((Object[]) copy[pos], level - 5, index, value);
+    }
+    return copy;
+  } // put(Object[], int, int, JSONValue)
+
+} // class JSONFrozenArray
@@ -0,0 +1,539 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable JSON hashes/objects. Rather than changing a frozen hash, with()
+ * and without() make a new version that shares everything but the path to
+ * the changed key with the old one, so an update costs O(log n). Since no
+ * version ever changes, any number of threads may read one while another
+ * builds its successor, with no locking; publish new versions through a
+ * volatile field or an AtomicReference.
+ *
+ * The pairs are stored in a hash array mapped trie: each level of the trie
+ * uses five more bits of the key's hash to pick one of up to 32 children,
+ * and a bitmap records which children exist so that nodes hold only those.
+ * Beside the trie, we keep a frozen array of the keys in the order they were
+ * first added, with a hole wherever one was removed, so that pairs are
+ * visited in that order, as with JSONHash. Once holes are most of that
+ * array, without() builds it afresh.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public class JSONFrozenHash implements JSONValue {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The empty hash.
+   */
+  public static final JSONFrozenHash EMPTY = new JSONFrozenHash(null, 0, JSONFrozenArray.EMPTY);
+
+  /**
+   * The last shift that still uses bits of the hash. Keys whose hashes agree
+   * in every bit end up in collision nodes below this level.
+   */
+  static final int MAX_SHIFT = 30;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The root of the trie. Null when we are empty.
+   */
+  Node root;
+
+  /**
+   * The number of pairs.
+   */
+  int size;
+
+  /**
+   * Our keys, in the order they were first added, with null for each key
+   * since removed.
+   */
+  JSONFrozenArray order;
+
+  /**
+   * Our hash code, or 0 if it is 0 or not yet computed.
+   */
+  int hash;
+
+  /**
+   * Whether we computed our hash code and found it to be 0. Each field is
+   * right on its own, so threads that see only one of the writes (or
+   * neither) just compute the hash again.
+   */
+  boolean hashIsZero;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Build a hash with a given trie and order of keys.
+   */
+  JSONFrozenHash(Node root, int size, JSONFrozenArray order) {
+    this.root = root;
+    this.size = size;
+    this.order = order;
+    this.hashIsZero = false;
+  } // JSONFrozenHash(Node, int, JSONFrozenArray)
+
+  /**
+   * Make a frozen copy of a hash. Nested objects and arrays are frozen too.
+   */
+  public static JSONFrozenHash of(JSONHash hash) {
+    JSONFrozenHash result = EMPTY;
+    Iterator<KVPair<JSONString, JSONValue>> pairs = hash.iterator();
+    while (pairs.hasNext()) {
+      KVPair<JSONString, JSONValue> pair = pairs.next();
+      result = result.with(pair.key(), JSON.freeze(pair.value()));
+    }
+    return result;
+  } // of(JSONHash)
+
+  // +-------------------------+-------------------------------------
+  // | Standard object methods |
+  // +-------------------------+
+
+  /**
+   * Convert to a string (e.g., for printing), as compact JSON.
+   */
+  public String toString() {
+    return JSON.toString(this, JSONFormat.COMPACT);
+  } // toString()
+
+  /**
+   * Compare to another object. Equal to any frozen or ordinary hash with the
+   * same keys and equal values, in any order.
+   */
+  public boolean equals(Object other) {
+    if (this == other) {
+      return true;
+    } else if (other instanceof JSONFrozenHash) {
+      JSONFrozenHash that = (JSONFrozenHash) other;
+      if ((this.size != that.size) || (this.hashCode() != that.hashCode())) {
+        return false;
+      }
+    } else if (!(other instanceof JSONHash) || (this.size != ((JSONHash) other).size())) {
+      return false;
+    }
+    Iterator<KVPair<JSONString, JSONValue>> itr = this.iterator();
+    while (itr.hasNext()) {
+      KVPair<JSONString, JSONValue> pair = itr.next();
+      JSONValue value = lookup(other, pair.key());
+      if ((value == null) || !value.equals(pair.value())) {
+        return false;
+      }
+    }
+    return true;
+  } // equals(Object)
+
+  /**
+   * Compute the hash code, in the same way as JSONHash. Computed once, since
+   * we never change.
+   */
+  public int hashCode() {
+    int result = this.hash;
+    if ((result == 0) && !this.hashIsZero) {
+      result = 0;
+      Iterator<KVPair<JSONString, JSONValue>> itr = this.iterator();
+      while (itr.hasNext()) {
+        KVPair<JSONString, JSONValue> pair = itr.next();
+        result += pair.key().hashCode() ^ pair.value().hashCode();
+      }
+      if (result == 0) {
+        this.hashIsZero = true;
+      } else {
+        this.hash = result;
+      }
+    }
+    return result;
+  } // hashCode()
+
+  // +--------------------+------------------------------------------
+  // | Additional methods |
+  // +--------------------+
+
+  /**
+   * Write the value as JSON.
+   */
+  public void writeJSON(JSONWriter writer) throws IOException {
+    writer.startObject();
+    Iterator<KVPair<JSONString, JSONValue>> itr = this.iterator();
+    while (itr.hasNext()) {
+      KVPair<JSONString, JSONValue> pair = itr.next();
+      writer.key(pair.key().value);
+      pair.value().writeJSON(writer);
+    }
+    writer.endObject();
+  } // writeJSON(JSONWriter)
+
+  /**
+   * Get the underlying value.
+   */
+  public Iterator<KVPair<JSONString, JSONValue>> getValue() {
+    return this.iterator();
+  } // getValue()
+
+  // +-------------------+-------------------------------------------
+  // | Hashtable methods |
+  // +-------------------+
+
+  /**
+   * Get the value associated with a key.
+   */
+  public JSONValue get(JSONString key) {
+    Entry entry = this.find(key);
+    if (entry == null) {
+      throw new IndexOutOfBoundsException("Invalid key: " + key);
+    }
+    return entry.value;
+  } // get(JSONString)
+
+  /**
+   * Determine if a key has a value.
+   */
+  public boolean containsKey(JSONString key) {
+    return this.find(key) != null;
+  } // containsKey(JSONString)
+
+  /**
+   * Make a version of this hash in which key has the given value. A key
+   * that is already there keeps its place in the order.
+   */
+  public JSONFrozenHash with(JSONString key, JSONValue value) {
+    int hash = JSONHash.hash(key);
+    Entry old = (this.root == null) ? null : this.root.find(key, hash, 0);
+    if (old != null) {
+      if (old.value == value) {
+        return this;
+      }
+      return new JSONFrozenHash(this.root.with(new Entry(key, value, hash, old.position), 0), this.size, this.order);
+    }
+    Entry entry = new Entry(key, value, hash, this.order.size());
+    Node newRoot = (this.root == null) ? Node.single(entry, 0) : this.root.with(entry, 0);
+    return new JSONFrozenHash(newRoot, this.size + 1, this.order.plus(key));
+  } // with(JSONString, JSONValue)
+
+  /**
+   * Make a version of this hash without key.
+   */
+  public JSONFrozenHash without(JSONString key) {
+    Entry old = this.find(key);
+    if (old == null) {
+      return this;
+    }
+    Node newRoot = this.root.without(key, old.hash, 0);
+    if (newRoot == null) {
+      return EMPTY;
+    }
+    JSONFrozenHash result = new JSONFrozenHash(newRoot, this.size - 1, this.order.with(old.position, null));
+    if (result.order.size() > 2 * result.size) {
+      // Mostly holes, so build the hash again without them
+      JSONFrozenHash compact = EMPTY;
+      Iterator<KVPair<JSONString, JSONValue>> pairs = result.iterator();
+      while (pairs.hasNext()) {
+        KVPair<JSONString, JSONValue> pair = pairs.next();
+        compact = compact.with(pair.key(), pair.value());
+      }
+      return compact;
+    }
+    return result;
+  } // without(JSONString)
+
+  /**
+   * Iterate the key/value pairs, in the order their keys were first added.
+   */
+  public Iterator<KVPair<JSONString, JSONValue>> iterator() {
+    return new Iterator<KVPair<JSONString, JSONValue>>() {
+      /**
+       * The position in our order of the next key.
+       */
+      int next = this.skip(0);
+
+      /**
+       * Find the first position, from i on, that still has a key.
+       */
+      int skip(int i) {
+        JSONFrozenArray order = JSONFrozenHash.this.order;
+        while ((i < order.size()) && (order.get(i) == null)) {
+          i++;
+        }
+        return i;
+      } // skip(int)
+
+      public boolean hasNext() {
+        return this.next < JSONFrozenHash.this.order.size();
+      } // hasNext()
+
+      public KVPair<JSONString, JSONValue> next() {
+        if (!this.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        JSONString key = (JSONString) JSONFrozenHash.this.order.get(this.next);
+        this.next = this.skip(this.next + 1);
+        return new KVPair<JSONString, JSONValue>(key, JSONFrozenHash.this.find(key).value);
+      } // next()
+    };
+  } // iterator()
+
+  /**
+   * Call action on each key and its value, in the order the keys were
+   * first added.
+   */
+  public void forEach(BiConsumer<? super JSONString, ? super JSONValue> action) {
+    this.order.forEach((key) -> {
+      if (key != null) {
+        action.accept((JSONString) key, this.find((JSONString) key).value);
+      }
+    });
+  } // forEach(BiConsumer)
+
+  /**
+   * Find out how many key/value pairs are in the hash.
+   */
+  public int size() {
+    return this.size;
+  } // size()
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Find the entry for a key, or null if there is none.
+   */
+  Entry find(JSONString key) {
+    return (this.root == null) ? null : this.root.find(key, JSONHash.hash(key), 0);
+  } // find(JSONString)
+
+  /**
+   * Get the value for a key in a frozen or ordinary hash, or null if there
+   * is none.
+   */
+  static JSONValue lookup(Object hash, JSONString key) {
+    if (hash instanceof JSONFrozenHash) {
+      Entry entry = ((JSONFrozenHash) hash).find(key);
+      return (entry == null) ? null : entry.value;
+    }
+    return ((JSONHash) hash).lookup(key, JSONHash.hash(key));
+  } // lookup(Object, JSONString)
+
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /**
+   * A key/value pair, with the hash of its key and its key's place in the
+   * order.
+   */
+  static class Entry {
+    /**
+     * The key.
+     */
+    final JSONString key;
+
+    /**
+     * The value.
+     */
+    final JSONValue value;
+
+    /**
+     * The hash of the key, as computed by JSONHash.hash.
+     */
+    final int hash;
+
+    /**
+     * The index of the key in its hash's order.
+     */
+    final int position;
+
+    /**
+     * Build a new entry.
+     */
+    Entry(JSONString key, JSONValue value, int hash, int position) {
+      this.key = key;
+      this.value = value;
+      this.hash = hash;
+      this.position = position;
+    } // Entry(JSONString, JSONValue, int, int)
+
+    /**
+     * Determine if this entry is for key, whose hash is given.
+     */
+    boolean matches(JSONString key, int hash) {
+      return (this.hash == hash) && ((this.key == key) || this.key.value.equals(key.value));
+    } // matches(JSONString, int)
+  } // class Entry
+
+  /**
+   * A node of the trie. Nodes are never changed once built. Above
+   * MAX_SHIFT, a node holds one Entry or child Node for each bit set in its
+   * bitmap, in bit order. Below it, a node is a list of entries whose keys
+   * have the same hash.
+   */
+  static class Node {
+    /**
+     * Which of the 32 possible children we have.
+     */
+    final int bitmap;
+
+    /**
+     * The children we have, each an Entry or a Node.
+     */
+    final Object[] slots;
+
+    /**
+     * Build a new node.
+     */
+    Node(int bitmap, Object[] slots) {
+      this.bitmap = bitmap;
+      this.slots = slots;
+    } // Node(int, Object[])
+
+    /**
+     * Build a node at the level for shift that holds just one entry.
+     */
+    static Node single(Entry entry, int shift) {
+      return new Node(bit(entry.hash, shift), new Object[] { entry });
+    } // single(Entry, int)
+
+    /**
+     * Build a node at the level for shift that holds two entries with
+     * different keys.
+     */
+    static Node pair(Entry a, Entry b, int shift) {
+      if (shift > MAX_SHIFT) {
+        return new Node(0, new Object[] { a, b });
+      }
+      int bitA = bit(a.hash, shift);
+      int bitB = bit(b.hash, shift);
+      if (bitA == bitB) {
+        return new Node(bitA, new Object[] { pair(a, b, shift + 5) });
+      } else if (Integer.compareUnsigned(bitA, bitB) < 0) {
+        return new Node(bitA | bitB, new Object[] { a, b });
+      } else {
+        return new Node(bitA | bitB, new Object[] { b, a });
+      }
+    } // pair(Entry, Entry, int)
+
+    /**
+     * Find the entry for key, with the given hash, in this node at the
+     * level for shift.
+     */
+    Entry find(JSONString key, int hash, int shift) {
+      Node node = this;
+      while (shift <= MAX_SHIFT) {
+        int bit = bit(hash, shift);
+        if ((node.bitmap & bit) == 0) {
+          return null;
+        }
+        Object child = node.slots[Integer.bitCount(node.bitmap & (bit - 1))];
+        if (child instanceof Entry) {
+          return ((Entry) child).matches(key, hash) ? (Entry) child : null;
+        }
+        node = (Node) child;
+        shift += 5;
+      }
+      for (Object child : node.slots) {
+        if (((Entry) child).matches(key, hash)) {
+          return (Entry) child;
+        }
+      }
+      return null;
+    } // find(JSONString, int, int)
+
+    /**
+     * Make a copy of this node at the level for shift, with entry added or
+     * replacing the entry for the same key.
+     */
+    Node with(Entry entry, int shift) {
+      if (shift > MAX_SHIFT) {
+        for (int i = 0; i < this.slots.length; i++) {
+          if (((Entry) this.slots[i]).matches(entry.key, entry.hash)) {
+            return this.replace(i, entry);
+          }
+        }
+        Object[] slots = Arrays.copyOf(this.slots, this.slots.length + 1);
+        slots[this.slots.length] = entry;
+        return new Node(0, slots);
+      }
+      int bit = bit(entry.hash, shift);
+      int pos = Integer.bitCount(this.bitmap & (bit - 1));
+      if ((this.bitmap & bit) == 0) {
+        Object[] slots = new Object[this.slots.length + 1];
+        System.arraycopy(this.slots, 0, slots, 0, pos);
+        slots[pos] = entry;
+        System.arraycopy(this.slots, pos, slots, pos + 1, this.slots.length - pos);
+        return new Node(this.bitmap | bit, slots);
+      }
+      Object child = this.slots[pos];
+      if (child instanceof Node) {
+        return this.replace(pos, ((Node) child).with(entry, shift + 5));
+      }
+      Entry old = (Entry) child;
+      if (old.matches(entry.key, entry.hash)) {
+        return this.replace(pos, entry);
+      }
+      return this.replace(pos, pair(old, entry, shift + 5));
+    } // with(Entry, int)
+
+    /**
+     * Make a copy of this node at the level for shift without the entry for
+     * key, which must be present. Returns null if nothing would be left.
+     */
+    Node without(JSONString key, int hash, int shift) {
+      int pos;
+      int bit = 0;
+      if (shift > MAX_SHIFT) {
+        pos = 0;
+        while (!((Entry) this.slots[pos]).matches(key, hash)) {
+          pos++;
+        }
+      } else {
+        bit = bit(hash, shift);
+        pos = Integer.bitCount(this.bitmap & (bit - 1));
+        Object child = this.slots[pos];
+        if (child instanceof Node) {
+          Node newChild = ((Node) child).without(key, hash, shift + 5);
+          if (newChild != null) {
+            return this.replace(pos, newChild);
+          }
+        }
+      }
+      if (this.slots.length == 1) {
+        return null;
+      }
+      Object[] slots = new Object[this.slots.length - 1];
+      System.arraycopy(this.slots, 0, slots, 0, pos);
+      System.arraycopy(this.slots, pos + 1, slots, pos, slots.length - pos);
+      return new Node(this.bitmap & ~bit, slots);
+    } // without(JSONString, int, int)
+
+    /**
+     * Make a copy of this node with a different child at pos.
+     */
+    Node replace(int pos, Object child) {
+      Object[] slots = this.slots.clone();
+      slots[pos] = child;
+      return new Node(this.bitmap, slots);
+    } // replace(int, Object)
+
+    /**
+     * Get the bit for the child that hash belongs in at the level for shift.
+     */
+    static int bit(int hash, int shift) {
+      return 1 << ((hash >>> shift) & 31);
+    } // bit(int, int)
+  } // class Node
+
+} // class JSONFrozenHash
@@ -1,10 +1,17 @@
-import java.io.PrintWriter;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.Random;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
 
 /**
- * JSON hashes/objects.
+ * JSON hashes/objects. Pairs are kept in the order their keys were first
+ * set, which is document order for parsed objects.
+ *
+ * Most objects are small, so a hash starts out with no table at all: keys
+ * are found by scanning the (cached) hashes of the few keys there are.
+ * Once it holds more than SMALL_SIZE pairs, it builds a table.
  * 
  * @author Samuel A. Rebelsky
  * @author Candice Lu
@@ -12,93 +19,149 @@ import java.util.Random;
  */
 public class JSONHash implements JSONValue {
 
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The largest fraction of the slots in the table that may be in use.
+   */
+  static final double LOAD_FACTOR = 0.5;
+
+  /**
+   * The number of entries we first make room for.
+   */
+  static final int INITIAL_SIZE = 4;
+
+  /**
+   * The most entries we keep without a table.
+   */
+  static final int SMALL_SIZE = 8;
+
+  /**
+   * The keys of an empty hash. Shared, so that empty hashes cost nothing.
+   */
+  static final JSONString[] NO_KEYS = new JSONString[0];
+
+  /**
+   * The values of an empty hash.
+   */
+  static final JSONValue[] NO_VALUES = new JSONValue[0];
+
+  /**
+   * The hashes of an empty hash.
+   */
+  static final int[] NO_HASHES = new int[0];
+
   // +--------+------------------------------------------------------
   // | Fields |
   // +--------+
 
   /**
-   * The load factor for expanding the table.
+   * The number of key/value pairs currently stored.
    */
-  static final double LOAD_FACTOR = 0.5;
+  int size;
 
   /**
-   * The number of values currently stored in the hash table. We use this to
-   * determine when to expand the hash table.
+   * The keys, in the order they were first set.
    */
-  int size = 0;
+  JSONString[] keys;
 
   /**
-   * The array that we use to store the ArrayList of key/value pairs. (We use an
-   * array, rather than an ArrayList, because we want to control expansion and
-   * ArrayLists of ArrayLists are just weird.)
+   * The values, parallel to keys.
    */
-  Object[] buckets;
+  JSONValue[] values;
 
   /**
-   * Our helpful random number generator, used primarily when expanding the size
-   * of the table..
+   * The hash of each key, parallel to keys, so that growing the table never
+   * needs to hash a key again.
    */
-  Random rand;
+  int[] hashes;
 
-  static int INITIAL_SIZE = 10;
+  /**
+   * The open-addressing table, with two ints per slot: the hash of the key
+   * in the slot, and one more than the index of its entry in keys (0 for an
+   * empty slot). Keeping the hash next to the index means that a probe
+   * usually touches only one cache line, and only looks at a key when the
+   * hashes match. The number of slots is a power of two. Null while we are
+   * small.
+   */
+  int[] table;
+
+  /**
+   * Our saved encoding, if we are memoized or part of something that is.
+   */
+  JSONCache cache;
 
   // +--------------+------------------------------------------------
   // | Constructors |
   // +--------------+
 
+  /**
+   * Build a new, empty, hash.
+   */
   public JSONHash() {
-    this.rand = new Random();
+    this.clear();
+  } // JSONHash()
+
+  /**
+   * Build a new, empty, hash with the given cache, without calling clear(),
+   * for subclasses that keep their pairs in fields of their own that are
+   * not set until we return.
+   */
+  protected JSONHash(JSONCache cache) {
+    this.keys = NO_KEYS;
+    this.values = NO_VALUES;
+    this.hashes = NO_HASHES;
+    this.table = null;
     this.size = 0;
-    this.buckets = new Object[INITIAL_SIZE];
-  }
+    this.cache = cache;
+  } // JSONHash(JSONCache)
 
   // +-------------------------+-------------------------------------
   // | Standard object methods |
   // +-------------------------+
 
   /**
-   * Convert to a string (e.g., for printing).
+   * Convert to a string (e.g., for printing), as compact JSON.
    */
   public String toString() {
-    String str = "";
-    Iterator<KVPair<JSONString, JSONValue>> itr = this.iterator();
-    while (itr.hasNext()) {
-      str = str + itr.next().toString() + "\n";
-    }
-    return str;
+    return JSON.toString(this, JSONFormat.COMPACT);
   } // toString()
 
   /**
-   * Compare to another object.
+   * Compare to another object. Hashes are equal if they have the same keys
+   * with equal values, in any order, whether or not either is frozen.
    */
   public boolean equals(Object other) {
-    if (other instanceof JSONValue) {
-      JSONHash otherHash = (JSONHash) other;
-      int equality = 0;
-      Iterator<KVPair<JSONString, JSONValue>> itr = this.iterator();
-
-      while (itr.hasNext()) {
-
-        KVPair<JSONString, JSONValue> tempPair = itr.next();
-        if (otherHash.get(tempPair.key()).equals(tempPair.value())) {
-          equality++;
-          System.out.println(equality);
-        }
-      }
-      return equality == this.size;
-    } else {
+    if (this == other) {
+      return true;
+    } else if (other instanceof JSONFrozenHash) {
+      return other.equals(this);
+    } else if (!(other instanceof JSONHash)) {
       return false;
     }
+    JSONHash that = (JSONHash) other;
+    if (this.size() != that.size()) {
+      return false;
+    }
+    for (int i = 0; i < this.size; i++) {
+      JSONValue value = that.lookup(this.keys[i], this.hashes[i]);
+      if ((value == null) || !this.values[i].equals(value)) {
+        return false;
+      }
+    }
+    return true;
   } // equals(Object)
 
   /**
-   * Compute the hash code. // credit Osera
+   * Compute the hash code. The order of the pairs does not matter, to agree
+   * with equals.
    */
   public int hashCode() {
-    int result = 920;
-    while (this.iterator().hasNext()) {
-      int c = this.iterator().next().hashCode();
-      result = 31 * result + c;
+    int result = 0;
+    for (int i = 0; i < this.size; i++) {
+      result += this.keys[i].hashCode() ^ this.values[i].hashCode();
     }
     return result;
   } // hashCode()
@@ -110,11 +173,34 @@ public class JSONHash implements JSONValue {
   /**
    * Write the value as JSON.
    */
-  public void writeJSON(PrintWriter pen) {
-    while (this.iterator().hasNext()) {
-      pen.print(this.iterator().next());
+  public void writeJSON(JSONWriter writer) throws IOException {
+    if ((this.cache == null) && (writer.watcher == null)) {
+      this.writeContents(writer);
+    } else {
+      this.cache().write(writer, this::writeContents);
+    }
+  } // writeJSON(JSONWriter)
+
+  /**
+   * Save our UTF-8 encoding the first time we are written as compact bytes,
+   * and reuse it until we, or anything in us, changes.
+   */
+  public void memoize() {
+    this.cache().memoize = true;
+  } // memoize()
+
+  /**
+   * Write our pairs as an object.
+   */
+  void writeContents(JSONWriter writer) throws IOException {
+    writer.startObject();
+    Cursor cursor = this.cursor();
+    while (cursor.next()) {
+      writer.key(cursor.key().value);
+      cursor.value().writeJSON(writer);
     }
-  } // writeJSON(PrintWriter)
+    writer.endObject();
+  } // writeContents(JSONWriter)
 
   /**
    * Get the underlying value.
@@ -131,122 +217,78 @@ public class JSONHash implements JSONValue {
    * Get the value associated with a key.
    */
   public JSONValue get(JSONString key) {
-    int index = find(key);
-    @SuppressWarnings("unchecked")
-    ArrayList<KVPair<JSONString, JSONValue>> alist = (ArrayList<KVPair<JSONString, JSONValue>>) buckets[index];
-    if (alist == null) {
+    int index = this.find(key, hash(key));
+    if (index < 0) {
       throw new IndexOutOfBoundsException("Invalid key: " + key);
-    } else {
-      KVPair<JSONString, JSONValue> pair;
-      for (int i = 0; i < alist.size(); i++) {
-        pair = alist.get(i);
-        if (pair.key().equals(key)) {
-          return pair.value();
-        }
-      }
-      throw new IndexOutOfBoundsException("Invalid key: " + key);
-    } // get
+    }
+    return this.values[index];
   } // get(JSONString)
 
-  // +----------+-------------------------------------------
-  // | Iterator |
-  // +----------+
-
+  /**
+   * Iterate the key/value pairs in the order their keys were first set.
+   */
   public Iterator<KVPair<JSONString, JSONValue>> iterator() {
-
     return new Iterator<KVPair<JSONString, JSONValue>>() {
-
-      // +--------+------------------------------------------------------
-      // | Fields |
-      // +--------+
-
-      /**
-       * position inside the bucket array
-       */
-      int curBucket = 0;
-
-      /**
-       * position inside the bucket
-       */
-      int curValue = -1;
-
       /**
-       * counter to track how many KVPairs we have already iterated through
+       * The index of the next entry.
        */
-      int counter = 0;
+      int next = 0;
 
-      /*
-       * returns true if there are still KVPairs in remaining buckets
-       */
       public boolean hasNext() {
-        return counter < JSONHash.this.size();
+        return this.next < JSONHash.this.size;
       } // hasNext()
 
-      /*
-       * returns next KVPair in the JSONHash
-       */
       public KVPair<JSONString, JSONValue> next() {
-        ArrayList<KVPair<JSONString, JSONValue>> bucket = (ArrayList<KVPair<JSONString, JSONValue>>) buckets[curBucket];
-
-        // If bucket is null, skip forward to the next non-null bucket
-        while (bucket == null) {
-          curBucket++;
-          bucket = (ArrayList<KVPair<JSONString, JSONValue>>) buckets[curBucket];
-        }
-
-        // if we return something, we increment counter
-        counter++;
-
-        curValue++;
-        // If there is a value ahead
-        if (curValue < bucket.size()) {
-          return bucket.get(curValue);
-        } else {
-          // Next Bucket
-          curBucket++;
-          bucket = (ArrayList<KVPair<JSONString, JSONValue>>) buckets[curBucket];
-
-          // If bucket is empty, find a new one
-          while (bucket == null) {
-            curBucket++;
-            bucket = (ArrayList<KVPair<JSONString, JSONValue>>) buckets[curBucket];
-          }
-
-          curValue = 0;
-          return bucket.get(curValue);
+        if (!this.hasNext()) {
+          throw new NoSuchElementException();
         }
+        int i = this.next++;
+        return new KVPair<JSONString, JSONValue>(JSONHash.this.keys[i], JSONHash.this.values[i]);
       } // next()
     };
-  } // Iterator
+  } // iterator()
 
   /**
-   * Set the value associated with a key.
+   * Call action on each key and its value, in the order the keys were first
+   * set. Walks our arrays directly, so makes no objects.
+   */
+  public void forEach(BiConsumer<? super JSONString, ? super JSONValue> action) {
+    for (int i = 0; i < this.size; i++) {
+      action.accept(this.keys[i], this.values[i]);
+    }
+  } // forEach(BiConsumer)
+
+  /**
+   * Get a cursor over the pairs. Unlike an iterator, a cursor makes no
+   * objects as it moves, and may be reused with reset().
+   */
+  public Cursor cursor() {
+    return new Cursor().reset(this);
+  } // cursor()
+
+  /**
+   * Set the value associated with a key. A key that is already present keeps
+   * its place in the order.
    */
   public void set(JSONString key, JSONValue value) {
+    int hash = hash(key);
+    int index = this.find(key, hash);
+    this.changed();
+    if (index >= 0) {
+      this.values[index] = value;
+      return;
+    }
     // If there are too many entries, expand the table.
-    if (this.size > (this.buckets.length * LOAD_FACTOR)) {
-      expand();
-    } // if there are too many entries
-
-    // Find out where the key belongs and put the pair there.
-    int index = find(key);
-    ArrayList<KVPair<JSONString, JSONValue>> alist = (ArrayList<KVPair<JSONString, JSONValue>>) this.buckets[index];
-    // Special case: Nothing there yet
-    if (alist == null) {
-      alist = new ArrayList<KVPair<JSONString, JSONValue>>();
-      this.buckets[index] = alist;
+    if (this.size == this.keys.length) {
+      this.expand();
     }
-
-    KVPair<JSONString, JSONValue> pair;
-    for (int i = 0; i < alist.size(); i++) {
-      pair = alist.get(i);
-      if (pair.key().equals(key)) {
-        alist.set(i, new KVPair<JSONString, JSONValue>(key, value));
-        return;
-      }
+    index = this.size++;
+    this.keys[index] = key;
+    this.values[index] = value;
+    this.hashes[index] = hash;
+    if (this.table != null) {
+      this.insert(hash, index);
     }
-    alist.add(new KVPair<JSONString, JSONValue>(key, value));
-    ++this.size;
   } // set(JSONString, JSONValue)
 
   /**
@@ -257,47 +299,218 @@ public class JSONHash implements JSONValue {
   } // size()
 
   /**
-   * Find the index of the entry with a given key. If there is no such entry,
-   * return the index of an entry we can use to store that key.
+   * Clear the whole table.
    */
-  int find(JSONValue key) {
-    return Math.abs(key.hashCode()) % this.buckets.length;
-  } // find(K)
+  public void clear() {
+    this.changed();
+    this.keys = NO_KEYS;
+    this.values = NO_VALUES;
+    this.hashes = NO_HASHES;
+    this.table = null;
+    this.size = 0;
+  } // clear()
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
 
   /**
-   * Expand the size of the table.
+   * Find the index of the entry with a given key and hash, or -1 if there is
+   * no such entry.
    */
-  void expand() {
-    // Figure out the size of the new table
-    int newSize = 2 * this.buckets.length + rand.nextInt(10);
-
-    // Remember the old table
-    Object[] oldBuckets = this.buckets;
-    // Create a new table of that size.
-    this.buckets = new Object[newSize];
-    // Move all buckets from the old table to their appropriate
-    // location in the new table.
-    ArrayList<KVPair<JSONString, JSONValue>> alist;
-    KVPair<JSONString, JSONValue> pair;
-    for (int i = 0; i < oldBuckets.length; i++) {
-      alist = (ArrayList<KVPair<JSONString, JSONValue>>) oldBuckets[i];
-      if (alist == null) {
-        continue;
+  int find(JSONString key, int hash) {
+    int[] tab = this.table;
+    if (tab == null) {
+      for (int i = 0; i < this.size; i++) {
+        JSONString other = this.keys[i];
+        if ((this.hashes[i] == hash) && ((other == key) || other.value.equals(key.value))) {
+          return i;
+        }
       }
-      for (int j = 0; j < alist.size(); j++) {
-        pair = alist.get(j);
-        set(pair.key(), pair.value());
-        this.size--;
+      return -1;
+    }
+    int mask = (tab.length >> 1) - 1;
+    for (int slot = hash & mask; tab[2 * slot + 1] != 0; slot = (slot + 1) & mask) {
+      if (tab[2 * slot] == hash) {
+        int index = tab[2 * slot + 1] - 1;
+        JSONString other = this.keys[index];
+        if ((other == key) || other.value.equals(key.value)) {
+          return index;
+        }
       }
     }
+    return -1;
+  } // find(JSONString, int)
+
+  /**
+   * Get our cache, making it if need be.
+   */
+  JSONCache cache() {
+    if (this.cache == null) {
+      this.cache = new JSONCache();
+    }
+    return this.cache;
+  } // cache()
+
+  /**
+   * Note that we changed.
+   */
+  void changed() {
+    if (this.cache != null) {
+      this.cache.changed();
+    }
+  } // changed()
+
+  /**
+   * Start cursor at the first pair.
+   */
+  void start(Cursor cursor) {
+    cursor.index = 0;
+  } // start(Cursor)
+
+  /**
+   * Move cursor to the next pair, returning false if there are no more.
+   */
+  boolean advance(Cursor cursor) {
+    int i = cursor.index;
+    if (i >= this.size) {
+      return false;
+    }
+    cursor.key = this.keys[i];
+    cursor.value = this.values[i];
+    cursor.index = i + 1;
+    return true;
+  } // advance(Cursor)
+
+  /**
+   * Get the value for a key with a given hash, or null if there is none.
+   */
+  JSONValue lookup(JSONString key, int hash) {
+    int index = this.find(key, hash);
+    return (index < 0) ? null : this.values[index];
+  } // lookup(JSONString, int)
+
+  /**
+   * Put the entry at index, whose key has the given hash, in the first free
+   * slot of its probe sequence.
+   */
+  void insert(int hash, int index) {
+    int[] tab = this.table;
+    int mask = (tab.length >> 1) - 1;
+    int slot = hash & mask;
+    while (tab[2 * slot + 1] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    tab[2 * slot] = hash;
+    tab[2 * slot + 1] = index + 1;
+  } // insert(int, int)
+
+  /**
+   * Double the room for entries. Once there is room for more than
+   * SMALL_SIZE, (re)build the table from the cached hashes.
+   */
+  void expand() {
+    int capacity = Math.max(INITIAL_SIZE, 2 * this.keys.length);
+    this.keys = Arrays.copyOf(this.keys, capacity);
+    this.values = Arrays.copyOf(this.values, capacity);
+    this.hashes = Arrays.copyOf(this.hashes, capacity);
+    if (capacity <= SMALL_SIZE) {
+      return;
+    }
+    this.table = new int[2 * slots(capacity)];
+    for (int i = 0; i < this.size; i++) {
+      this.insert(this.hashes[i], i);
+    }
   } // expand()
 
   /**
-   * Clear the whole table.
+   * Get the hash of a key, with the high bits mixed into the low bits that
+   * pick the slot.
    */
-  public void clear() {
-    this.buckets = new Object[INITIAL_SIZE];
-    this.size = 0;
-  } // clear()
+  static int hash(JSONString key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  } // hash(JSONString)
+
+  /**
+   * Get the number of slots for a table with room for capacity entries.
+   */
+  static int slots(int capacity) {
+    return Integer.highestOneBit((int) Math.ceil(capacity / LOAD_FACTOR) - 1) << 1;
+  } // slots(int)
+
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /**
+   * A reusable position in a hash. Call next() to move to each pair in turn,
+   * then key() and value() to see it:
+   *
+   * <pre>
+   *   JSONHash.Cursor cursor = hash.cursor();
+   *   while (cursor.next()) {
+   *     ... cursor.key() ... cursor.value() ...
+   *   }
+   * </pre>
+   */
+  public static class Cursor {
+    /**
+     * The hash we are moving through.
+     */
+    JSONHash hash;
+
+    /**
+     * Where we are in the hash, for hashes that keep arrays.
+     */
+    int index;
+
+    /**
+     * Where we are in the hash, for hashes that keep a map.
+     */
+    Iterator<Map.Entry<JSONString, JSONValue>> entries;
+
+    /**
+     * The key of the current pair.
+     */
+    JSONString key;
+
+    /**
+     * The value of the current pair.
+     */
+    JSONValue value;
+
+    /**
+     * Move back to just before the first pair of hash.
+     */
+    public Cursor reset(JSONHash hash) {
+      this.hash = hash;
+      this.key = null;
+      this.value = null;
+      hash.start(this);
+      return this;
+    } // reset(JSONHash)
+
+    /**
+     * Move to the next pair. Returns false if there are no more.
+     */
+    public boolean next() {
+      return this.hash.advance(this);
+    } // next()
+
+    /**
+     * Get the key of the current pair.
+     */
+    public JSONString key() {
+      return this.key;
+    } // key()
+
+    /**
+     * Get the value of the current pair.
+     */
+    public JSONValue value() {
+      return this.value;
+    } // value()
+  } // class Cursor
 
 } // class JSONHash
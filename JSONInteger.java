@@ -1,4 +1,4 @@
-import java.io.PrintWriter;
+import java.io.IOException;
 import java.math.BigInteger;
 
 /**
@@ -15,9 +15,15 @@ public class JSONInteger implements JSONValue {
   // +--------+
 
   /**
-   * The underlying integer.
+   * The underlying integer, when it fits in a long.
    */
-  BigInteger value;
+  long value;
+
+  /**
+   * The underlying integer, when it does not fit in a long. Null otherwise,
+   * so that each integer has exactly one representation.
+   */
+  BigInteger big;
 
   // +--------------+------------------------------------------------
   // | Constructors |
@@ -27,21 +33,28 @@ public class JSONInteger implements JSONValue {
    * Create a new integer given the underlying string.
    */
   public JSONInteger(String str) {
-    this.value = new BigInteger(str);
+    this(new BigInteger(str));
   } // JSONInteger(String)
 
   /**
    * Create a new integer given a BigInteger.
    */
   public JSONInteger(BigInteger value) {
-    this.value = value;
+    if (value.bitLength() < Long.SIZE) {
+      this.value = value.longValue();
+      this.big = null;
+    } else {
+      this.value = 0;
+      this.big = value;
+    }
   } // JSONInteger(BigInteger)
 
   /**
    * Create a new integer given an integer or long.
    */
   public JSONInteger(long l) {
-    this.value = BigInteger.valueOf(l);
+    this.value = l;
+    this.big = null;
   } // JSONInteger(long)
 
   // +-------------------------+-------------------------------------
@@ -52,24 +65,37 @@ public class JSONInteger implements JSONValue {
    * Convert to a string (e.g., for printing).
    */
   public String toString() {
-    return this.value.toString();
+    if (this.big == null) {
+      return Long.toString(this.value);
+    } else {
+      return this.big.toString();
+    }
   } // toString()
 
   /**
    * Compare to another object.
    */
   public boolean equals(Object other) {
-    if (this.toString().equals(other.toString())) {
-      return true;
+    if (!(other instanceof JSONInteger)) {
+      return false;
+    }
+    JSONInteger that = (JSONInteger) other;
+    // Each integer has one representation, so we need not mix the two
+    if (this.big == null) {
+      return (that.big == null) && (this.value == that.value);
     }
-    return false;
+    return this.big.equals(that.big);
   } // equals(Object)
 
   /**
    * Compute the hash code.
    */
   public int hashCode() {
-    return this.value.hashCode();
+    if (this.big == null) {
+      return Long.hashCode(this.value);
+    } else {
+      return this.big.hashCode();
+    }
   } // hashCode()
 
   // +--------------------+------------------------------------------
@@ -79,15 +105,57 @@ public class JSONInteger implements JSONValue {
   /**
    * Write the value as JSON.
    */
-  public void writeJSON(PrintWriter pen) {
-    pen.println(this.value.toString());
-  } // writeJSON(PrintWriter)
+  public void writeJSON(JSONWriter writer) throws IOException {
+    if (this.big == null) {
+      writer.value(this.value);
+    } else {
+      writer.value(this.big);
+    }
+  } // writeJSON(JSONWriter)
 
   /**
    * Get the underlying value.
    */
   public BigInteger getValue() {
-    return this.value;
+    if (this.big == null) {
+      return BigInteger.valueOf(this.value);
+    } else {
+      return this.big;
+    }
   } // getValue()
 
+  /**
+   * Determine if the value fits in a long.
+   */
+  public boolean fitsInLong() {
+    return this.big == null;
+  } // fitsInLong()
+
+  /**
+   * Get the value as a long.
+   *
+   * @throws ArithmeticException
+   *   if the value does not fit in a long.
+   */
+  public long longValue() {
+    if (this.big != null) {
+      throw new ArithmeticException("Integer does not fit in a long: " + this.big);
+    }
+    return this.value;
+  } // longValue()
+
+  /**
+   * Get the value as an int.
+   *
+   * @throws ArithmeticException
+   *   if the value does not fit in an int.
+   */
+  public int intValue() {
+    int result = (int) this.value;
+    if ((this.big != null) || (result != this.value)) {
+      throw new ArithmeticException("Integer does not fit in an int: " + this);
+    }
+    return result;
+  } // intValue()
+
 } // class JSONInteger
@@ -0,0 +1,103 @@
+/**
+ * A small cache of object keys, so that parsing many objects with the same
+ * keys shares one JSONString per key rather than making a new one each time.
+ * Keys are looked up by their characters, straight from the lexer, so a key
+ * we have seen before costs no allocation at all. Each parser has its own
+ * cache, so no locking is needed.
+ *
+ * The cache is direct-mapped: each key has exactly one slot, and a new key
+ * simply replaces whatever was there. That keeps the cache bounded and
+ * lookups cheap, at the cost of the occasional miss.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public class JSONKeyCache {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The number of slots. A power of two.
+   */
+  static final int SLOTS = 512;
+
+  /**
+   * The longest key we cache. Longer keys are rarely repeated, and would
+   * make lookups slower.
+   */
+  static final int MAX_LENGTH = 32;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The cached keys.
+   */
+  JSONString[] keys;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Build a new, empty, cache.
+   */
+  public JSONKeyCache() {
+    this.keys = new JSONString[SLOTS];
+  } // JSONKeyCache()
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Get the key for the string the lexer just scanned, reusing the one we
+   * made last time if we can.
+   */
+  public JSONString key(JSONLexer lexer) {
+    CharSequence chars = lexer.chars();
+    int length = chars.length();
+    if (length > MAX_LENGTH) {
+      return new JSONString(lexer.stringValue());
+    }
+    // The same hash as String.hashCode, so the String's cached hash agrees
+    int hash = 0;
+    for (int i = 0; i < length; i++) {
+      hash = 31 * hash + chars.charAt(i);
+    }
+    int slot = (hash ^ (hash >>> 16)) & (SLOTS - 1);
+    JSONString key = this.keys[slot];
+    if ((key != null) && matches(key.value, hash, chars)) {
+      return key;
+    }
+    key = new JSONString(chars.toString());
+    key.value.hashCode();
+    this.keys[slot] = key;
+    return key;
+  } // key(JSONLexer)
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Determine if str, whose hash is already computed, has the given hash
+   * and characters.
+   */
+  static boolean matches(String str, int hash, CharSequence chars) {
+    if ((str.hashCode() != hash) || (str.length() != chars.length())) {
+      return false;
+    }
+    for (int i = 0; i < str.length(); i++) {
+      if (str.charAt(i) != chars.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  } // matches(String, int, CharSequence)
+
+} // class JSONKeyCache
@@ -0,0 +1,179 @@
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A JSON array that has not been parsed yet. As with JSONLazyHash, we only
+ * remember where our text is, and parse it (leaving our own elements lazy)
+ * the first time we are used. The first thread to use us parses us while
+ * any others wait.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public class JSONLazyArray extends JSONArray {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The char[] or ByteBuffer that holds our text, or null once we have been
+   * parsed. Only cleared once parsing is done, so a thread that finds it
+   * null sees everything we parsed.
+   */
+  volatile Object input;
+
+  /**
+   * The position in the input of index 0 of that array or buffer.
+   */
+  long offset;
+
+  /**
+   * The index of our opening bracket.
+   */
+  int from;
+
+  /**
+   * The index just past our closing bracket.
+   */
+  int to;
+
+  /**
+   * Whether we are parsing ourselves now. Guarded by our lock.
+   */
+  boolean loading;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Build an array whose text is input[from..to).
+   */
+  JSONLazyArray(Object input, long offset, int from, int to) {
+    super();
+    this.input = input;
+    this.offset = offset;
+    this.from = from;
+    this.to = to;
+  } // JSONLazyArray(Object, long, int, int)
+
+  // +-------------------------+-------------------------------------
+  // | Standard object methods |
+  // +-------------------------+
+
+  public String toString() {
+    this.load();
+    return super.toString();
+  } // toString()
+
+  public boolean equals(Object other) {
+    this.load();
+    return super.equals(other);
+  } // equals(Object)
+
+  public int hashCode() {
+    this.load();
+    return super.hashCode();
+  } // hashCode()
+
+  // +--------------------+------------------------------------------
+  // | Additional methods |
+  // +--------------------+
+
+  public void writeJSON(JSONWriter writer) throws IOException {
+    this.load();
+    super.writeJSON(writer);
+  } // writeJSON(JSONWriter)
+
+  public ArrayList<JSONValue> getValue() {
+    this.load();
+    return super.getValue();
+  } // getValue()
+
+  /**
+   * Determine if we have been parsed yet.
+   */
+  public boolean isLoaded() {
+    return this.input == null;
+  } // isLoaded()
+
+  // +---------------+-----------------------------------------------
+  // | Array methods |
+  // +---------------+
+
+  public void add(JSONValue value) {
+    this.load();
+    super.add(value);
+  } // add(JSONValue)
+
+  public JSONValue get(int index) throws IndexOutOfBoundsException {
+    this.load();
+    return super.get(index);
+  } // get(int)
+
+  public Iterator<JSONValue> iterator() {
+    this.load();
+    return super.iterator();
+  } // iterator()
+
+  public void forEach(Consumer<? super JSONValue> action) {
+    this.load();
+    super.forEach(action);
+  } // forEach(Consumer)
+
+  public void forEach(ObjIntConsumer<? super JSONValue> action) {
+    this.load();
+    super.forEach(action);
+  } // forEach(ObjIntConsumer)
+
+  public void set(int index, JSONValue value) throws IndexOutOfBoundsException {
+    this.load();
+    super.set(index, value);
+  } // set(int, JSONValue)
+
+  public int size() {
+    this.load();
+    return super.size();
+  } // size()
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Parse our text, if we have not already. Threads that get here while
+   * another is parsing us wait for it to finish.
+   */
+  void load() {
+    if (this.input == null) {
+      return;
+    }
+    synchronized (this) {
+      Object text = this.input;
+      if ((text == null) || this.loading) {
+        // Parsed by another thread, or we are parsing now and it called add
+        return;
+      }
+      this.loading = true;
+      try {
+        JSON.parser().load(this, text, this.offset, this.from, this.to);
+        this.input = null;
+      } catch (ParseException e) {
+        this.values.clear();
+        throw new IllegalArgumentException(e.getMessage(), e);
+      } catch (IOException e) {
+        // In-memory input never fails to read
+        throw new IllegalStateException(e);
+      } finally {
+        this.loading = false;
+      }
+    }
+  } // load()
+
+} // class JSONLazyArray
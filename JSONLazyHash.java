@@ -0,0 +1,185 @@
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.Iterator;
+import java.util.function.BiConsumer;
+
+/**
+ * A JSON hash that has not been parsed yet. We only remember where its text
+ * is in the parser's input, and parse it the first time it is used. Its own
+ * nested objects and arrays are lazy in turn, so reading a few fields of a
+ * large document only parses the path to those fields.
+ *
+ * Lazy parsing only checks that brackets match until a value is used, so
+ * errors inside are reported then, as an IllegalArgumentException whose
+ * cause is the ParseException.
+ *
+ * Like other parsed values, lazy ones may be read by many threads at once.
+ * The first to use one parses it while the others wait, so none sees it
+ * half filled in.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public class JSONLazyHash extends JSONHash {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The char[] or ByteBuffer that holds our text, or null once we have been
+   * parsed. Only cleared once parsing is done, so a thread that finds it
+   * null sees everything we parsed.
+   */
+  volatile Object input;
+
+  /**
+   * The position in the input of index 0 of that array or buffer.
+   */
+  long offset;
+
+  /**
+   * The index of our opening brace.
+   */
+  int from;
+
+  /**
+   * The index just past our closing brace.
+   */
+  int to;
+
+  /**
+   * Whether we are parsing ourselves now. Guarded by our lock.
+   */
+  boolean loading;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Build a hash whose text is input[from..to).
+   */
+  JSONLazyHash(Object input, long offset, int from, int to) {
+    super();
+    this.input = input;
+    this.offset = offset;
+    this.from = from;
+    this.to = to;
+  } // JSONLazyHash(Object, long, int, int)
+
+  // +-------------------------+-------------------------------------
+  // | Standard object methods |
+  // +-------------------------+
+
+  public String toString() {
+    this.load();
+    return super.toString();
+  } // toString()
+
+  public boolean equals(Object other) {
+    this.load();
+    return super.equals(other);
+  } // equals(Object)
+
+  public int hashCode() {
+    this.load();
+    return super.hashCode();
+  } // hashCode()
+
+  // +--------------------+------------------------------------------
+  // | Additional methods |
+  // +--------------------+
+
+  public void writeJSON(JSONWriter writer) throws IOException {
+    this.load();
+    super.writeJSON(writer);
+  } // writeJSON(JSONWriter)
+
+  public Iterator<KVPair<JSONString, JSONValue>> getValue() {
+    this.load();
+    return super.getValue();
+  } // getValue()
+
+  /**
+   * Determine if we have been parsed yet.
+   */
+  public boolean isLoaded() {
+    return this.input == null;
+  } // isLoaded()
+
+  // +-------------------+-------------------------------------------
+  // | Hashtable methods |
+  // +-------------------+
+
+  public JSONValue get(JSONString key) {
+    this.load();
+    return super.get(key);
+  } // get(JSONString)
+
+  public Iterator<KVPair<JSONString, JSONValue>> iterator() {
+    this.load();
+    return super.iterator();
+  } // iterator()
+
+  public void forEach(BiConsumer<? super JSONString, ? super JSONValue> action) {
+    this.load();
+    super.forEach(action);
+  } // forEach(BiConsumer)
+
+  public void set(JSONString key, JSONValue value) {
+    this.load();
+    super.set(key, value);
+  } // set(JSONString, JSONValue)
+
+  public int size() {
+    this.load();
+    return super.size();
+  } // size()
+
+  public void clear() {
+    this.input = null;
+    super.clear();
+  } // clear()
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  void start(Cursor cursor) {
+    this.load();
+    super.start(cursor);
+  } // start(Cursor)
+
+  /**
+   * Parse our text, if we have not already. Threads that get here while
+   * another is parsing us wait for it to finish.
+   */
+  void load() {
+    if (this.input == null) {
+      return;
+    }
+    synchronized (this) {
+      Object text = this.input;
+      if ((text == null) || this.loading) {
+        // Parsed by another thread, or we are parsing now and it called set
+        return;
+      }
+      this.loading = true;
+      try {
+        JSON.parser().load(this, text, this.offset, this.from, this.to);
+        this.input = null;
+      } catch (ParseException e) {
+        super.clear();
+        throw new IllegalArgumentException(e.getMessage(), e);
+      } catch (IOException e) {
+        // In-memory input never fails to read
+        throw new IllegalStateException(e);
+      } finally {
+        this.loading = false;
+      }
+    }
+  } // load()
+
+} // class JSONLazyHash
@@ -0,0 +1,469 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.text.ParseException;
+
+/**
+ * A tokenizer for JSON text. Input is held in a buffer (characters or bytes,
+ * depending on the subclass) and scanned with index arithmetic, so looking
+ * ahead is just an index check. The parts of the grammar that only involve
+ * ASCII (numbers, escapes, literals) are shared here.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public abstract class JSONLexer {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The initial size of the window for streamed input.
+   */
+  static final int WINDOW_SIZE = 8192;
+
+  /**
+   * A number that fits in a long. Its value is in number.
+   */
+  public static final int NUMBER_LONG = 0;
+
+  /**
+   * An integer too large for a long. Its text is available from text().
+   */
+  public static final int NUMBER_BIG = 1;
+
+  /**
+   * A number with a fraction or an exponent. Its value is available from
+   * decimal().
+   */
+  public static final int NUMBER_REAL = 2;
+
+  /**
+   * The most negative value we can multiply by ten without overflow.
+   */
+  static final long MULTIPLY_MIN = Long.MIN_VALUE / 10;
+
+  /**
+   * The powers of ten that doubles represent exactly.
+   */
+  static final double[] POWERS_OF_TEN = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6,
+      1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19,
+      1e20, 1e21, 1e22 };
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The index of the next unread unit in the buffer.
+   */
+  int index;
+
+  /**
+   * The index just past the last valid unit in the buffer.
+   */
+  int limit;
+
+  /**
+   * The index of the start of the current token, or -1 if we are not in a
+   * token. Units from here on survive refills, so the text of a token stays
+   * available until we look for the next one.
+   */
+  int start;
+
+  /**
+   * The position in the input of index 0 of the buffer.
+   */
+  long offset;
+
+  /**
+   * A reusable builder for decoded strings.
+   */
+  StringBuilder builder;
+
+  /**
+   * The value of the last number scanned, if it fit in a long.
+   */
+  long number;
+
+  /**
+   * Whether the last string scanned had escapes. If so, its decoded
+   * characters are in builder; if not, they are still in the buffer.
+   */
+  boolean escaped;
+
+  /**
+   * Whether the last number given to doubleValue() had at most 15
+   * significant digits, so that the double it became holds exactly the same
+   * decimal value.
+   */
+  boolean shortDecimal;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Set up the state shared by all lexers.
+   */
+  JSONLexer() {
+    this.builder = new StringBuilder();
+    this.start = -1;
+  } // JSONLexer()
+
+  // +---------------+-----------------------------------------------
+  // | Input control |
+  // +---------------+
+
+  /**
+   * Forget the current input.
+   */
+  public abstract void release();
+
+  /**
+   * Get the position in the input of the next unread unit.
+   */
+  public long position() {
+    return this.offset + this.index;
+  } // position()
+
+  /**
+   * Build an exception for a problem at the current position.
+   */
+  public ParseException error(String message) {
+    return new ParseException(message, (int) Math.min(this.position(), Integer.MAX_VALUE));
+  } // error(String)
+
+  // +------------+--------------------------------------------------
+  // | Characters |
+  // +------------+
+
+  /**
+   * Read the next unit, or -1 at the end of the input.
+   */
+  public abstract int read() throws IOException;
+
+  /**
+   * Look at the next unit without reading it, or -1 at the end of the input.
+   */
+  public abstract int peek() throws IOException;
+
+  /**
+   * Read the next unit that is not whitespace, or -1 at the end of the input.
+   */
+  public abstract int nextNonWhitespace() throws IOException;
+
+  /**
+   * Look at the next unit that is not whitespace without reading it, or -1
+   * at the end of the input.
+   */
+  public int peekNonWhitespace() throws IOException {
+    int ch = this.nextNonWhitespace();
+    if (ch != -1) {
+      this.index--;
+    }
+    return ch;
+  } // peekNonWhitespace()
+
+  // +--------+------------------------------------------------------
+  // | Tokens |
+  // +--------+
+
+  /**
+   * Read the rest of a string whose opening quote has already been read.
+   */
+  public String readString() throws IOException, ParseException {
+    this.scanString();
+    return this.stringValue();
+  } // readString()
+
+  /**
+   * Scan the rest of a string whose opening quote has already been read,
+   * without making a String. The contents are then available from
+   * stringValue() and chars().
+   */
+  public abstract void scanString() throws IOException, ParseException;
+
+  /**
+   * Make a String of the contents of the string we just scanned.
+   */
+  public abstract String stringValue();
+
+  /**
+   * Get the contents of the string we just scanned as a reusable character
+   * sequence. The sequence is only valid until the next token is scanned.
+   */
+  public abstract CharSequence chars();
+
+  /**
+   * Scan the rest of a number whose first character, first (a digit or a
+   * minus sign), has just been read, and return its kind (NUMBER_LONG,
+   * NUMBER_BIG, or NUMBER_REAL). Integers are accumulated as we go, so those
+   * that fit in a long never need their text.
+   */
+  public int scanNumber(int first) throws IOException, ParseException {
+    this.start = this.index - 1;
+    boolean negative = ('-' == first);
+    if (negative && !isDigit(this.peek())) {
+      throw this.error("Missing digits after minus sign");
+    }
+    // Accumulate negatively, so that Long.MIN_VALUE fits
+    long acc = negative ? 0 : '0' - first;
+    boolean overflow = false;
+    int ch;
+    while (isDigit(ch = this.peek())) {
+      int digit = ch - '0';
+      if ((acc < MULTIPLY_MIN) || (acc * 10 < Long.MIN_VALUE + digit)) {
+        overflow = true;
+      } else {
+        acc = acc * 10 - digit;
+      }
+      this.index++;
+    }
+    if (!negative && (acc == Long.MIN_VALUE)) {
+      overflow = true;
+    }
+    int kind = overflow ? NUMBER_BIG : NUMBER_LONG;
+    if ('.' == ch) {
+      this.index++;
+      this.skipRequiredDigits("Missing digits after decimal point");
+      kind = NUMBER_REAL;
+      ch = this.peek();
+    }
+    if (('e' == ch) || ('E' == ch)) {
+      this.index++;
+      ch = this.peek();
+      if (('+' == ch) || ('-' == ch)) {
+        this.index++;
+      }
+      this.skipRequiredDigits("Missing digits in exponent");
+      kind = NUMBER_REAL;
+    }
+    if (NUMBER_LONG == kind) {
+      this.number = negative ? acc : -acc;
+    }
+    return kind;
+  } // scanNumber(int)
+
+  /**
+   * Get the text of the number we just scanned.
+   */
+  public abstract String text();
+
+  /**
+   * Get the value of the number we just scanned as a BigDecimal.
+   */
+  public abstract BigDecimal decimal();
+
+  /**
+   * Get the value of the number we just scanned as a double. Numbers with
+   * at most 18 significant digits and small exponents are converted exactly
+   * without making any objects; the rest go through Double.parseDouble.
+   */
+  public double doubleValue() {
+    int i = this.start;
+    int end = this.index;
+    boolean negative = ('-' == this.unitAt(i));
+    if (negative) {
+      i++;
+    }
+    long mantissa = 0;
+    int digits = 0;
+    int exponent = 0;
+    boolean dropped = false;
+    int ch = 0;
+    // Integer part
+    for (; (i < end) && isDigit(ch = this.unitAt(i)); i++) {
+      if (digits < 18) {
+        mantissa = mantissa * 10 + (ch - '0');
+        digits += (mantissa != 0) ? 1 : 0;
+      } else {
+        dropped = true;
+        exponent++;
+      }
+    }
+    // Fraction
+    if ((i < end) && ('.' == ch)) {
+      for (i++; (i < end) && isDigit(ch = this.unitAt(i)); i++) {
+        if (digits < 18) {
+          mantissa = mantissa * 10 + (ch - '0');
+          digits += (mantissa != 0) ? 1 : 0;
+          exponent--;
+        } else {
+          dropped = true;
+        }
+      }
+    }
+    // Exponent
+    if (i < end) {
+      i++;
+      boolean negativeExponent = ('-' == this.unitAt(i));
+      if (('-' == this.unitAt(i)) || ('+' == this.unitAt(i))) {
+        i++;
+      }
+      int exp = 0;
+      for (; i < end; i++) {
+        if (exp < 100000) {
+          exp = exp * 10 + (this.unitAt(i) - '0');
+        }
+      }
+      exponent += negativeExponent ? -exp : exp;
+    }
+    double result;
+    if (!dropped && (mantissa < (1L << 53)) && (exponent >= -22) && (exponent <= 22)) {
+      result = (exponent < 0) ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+      result = negative ? -result : result;
+    } else {
+      result = Double.parseDouble(this.text());
+    }
+    // Too many digits, overflow, and underflow all lose part of the value
+    this.shortDecimal = !dropped && (digits <= 15) && Double.isFinite(result)
+        && ((result == 0) ? (mantissa == 0) : (Math.abs(result) >= Double.MIN_NORMAL));
+    return result;
+  } // doubleValue()
+
+  /**
+   * Read the characters in rest, throwing an exception if the input does not
+   * match. Used for the tails of true, false, and null.
+   */
+  public void expect(String rest) throws IOException, ParseException {
+    for (int i = 0; i < rest.length(); i++) {
+      if (this.read() != rest.charAt(i)) {
+        throw this.error("Illegal constant value");
+      }
+    }
+  } // expect(String)
+
+  /**
+   * Skip the rest of an object or array whose opening bracket has been read.
+   * Only brackets and strings are examined, so this is much faster than
+   * parsing, but does not check the skipped text beyond matching brackets.
+   */
+  public void skipContainer() throws IOException, ParseException {
+    int depth = 1;
+    while (depth > 0) {
+      int ch = this.read();
+      if ('"' == ch) {
+        this.skipStringBody();
+      } else if (('{' == ch) || ('[' == ch)) {
+        depth++;
+      } else if (('}' == ch) || (']' == ch)) {
+        depth--;
+      } else if (-1 == ch) {
+        throw this.error("Unexpected end of file");
+      }
+    }
+  } // skipContainer()
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Get the unit at index i of the buffer.
+   */
+  abstract int unitAt(int i);
+
+  /**
+   * Skip the rest of a string whose opening quote has been read.
+   */
+  void skipStringBody() throws IOException, ParseException {
+    int ch = this.read();
+    while ('"' != ch) {
+      if ('\\' == ch) {
+        this.read();
+      } else if (-1 == ch) {
+        throw this.error("Unexpected end of string");
+      }
+      ch = this.read();
+    }
+  } // skipStringBody()
+
+  /**
+   * Read more input into the buffer, keeping any token in progress. Returns
+   * false if there is no more input.
+   */
+  abstract boolean fill() throws IOException;
+
+  /**
+   * Read the rest of an escape sequence whose backslash has been read.
+   * Surrogate pairs arrive as two \\u escapes and are decoded one half at a
+   * time.
+   */
+  char readEscape() throws IOException, ParseException {
+    int ch = this.read();
+    switch (ch) {
+      case '"':
+      case '\\':
+      case '/':
+        return (char) ch;
+      case 'b':
+        return '\b';
+      case 'f':
+        return '\f';
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 't':
+        return '\t';
+      case 'u':
+        int code = 0;
+        for (int i = 0; i < 4; i++) {
+          int digit = hexValue(this.read());
+          if (digit < 0) {
+            throw this.error("Illegal unicode escape");
+          }
+          code = (code << 4) | digit;
+        }
+        return (char) code;
+      case -1:
+        throw this.error("Unexpected end of string");
+      default:
+        throw this.error("Illegal escape \\" + (char) ch);
+    }
+  } // readEscape()
+
+  /**
+   * Move past a run of one or more digits.
+   */
+  void skipRequiredDigits(String message) throws IOException, ParseException {
+    if (!isDigit(this.peek())) {
+      throw this.error(message);
+    }
+    this.skipDigits();
+  } // skipRequiredDigits(String)
+
+  /**
+   * Move past a run of digits.
+   */
+  void skipDigits() throws IOException {
+    while (isDigit(this.peek())) {
+      this.index++;
+    }
+  } // skipDigits()
+
+  /**
+   * Get the value of a hexadecimal digit, or -1 if ch is not one.
+   */
+  static int hexValue(int ch) {
+    if ((ch >= '0') && (ch <= '9')) {
+      return ch - '0';
+    } else if ((ch >= 'a') && (ch <= 'f')) {
+      return ch - 'a' + 10;
+    } else if ((ch >= 'A') && (ch <= 'F')) {
+      return ch - 'A' + 10;
+    } else {
+      return -1;
+    }
+  } // hexValue(int)
+
+  /**
+   * Determine if a character is a decimal digit.
+   */
+  static boolean isDigit(int ch) {
+    return (ch >= '0') && (ch <= '9');
+  } // isDigit(int)
+
+} // class JSONLexer
@@ -0,0 +1,272 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Readers and a writer for JSON Lines (also known as NDJSON): UTF-8 text
+ * with one JSON value per line. The input is split into records at the byte level, by
+ * looking for newlines, and the records are parsed independently, so the
+ * streams returned here are parallel and parse on all of the cores of the
+ * common ForkJoinPool. Call sequential() on them to parse on one thread.
+ *
+ * Blank lines are skipped. Since a stream cannot throw a ParseException, a
+ * bad record stops the stream with an IllegalArgumentException whose cause
+ * is the ParseException, positioned relative to the whole input.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public class JSONLines {
+
+  // +----------------+----------------------------------------------
+  // | Static methods |
+  // +----------------+
+
+  /**
+   * Stream the records in a file. The file is memory-mapped, in chunks that
+   * end at newlines, so files larger than 2GB work. If ordered is false, the
+   * records may arrive in any order, which lets parallel streams go faster.
+   */
+  public static Stream<JSONValue> stream(Path path, boolean ordered) throws IOException {
+    return stream(path, ordered, JSONByteLexer.MAP_SIZE);
+  } // stream(Path, boolean)
+
+  /**
+   * Stream the records in the UTF-8 bytes between the position and the limit
+   * of a buffer. The buffer's position does not change.
+   */
+  public static Stream<JSONValue> stream(ByteBuffer source, boolean ordered) {
+    ByteBuffer[] segments = { source.slice() };
+    long[] bases = { 0 };
+    return stream(new Records(segments, bases, 0, 1), ordered);
+  } // stream(ByteBuffer, boolean)
+
+  /**
+   * Stream the records in len bytes of UTF-8, starting at bytes[off].
+   */
+  public static Stream<JSONValue> stream(byte[] bytes, int off, int len, boolean ordered) {
+    return stream(ByteBuffer.wrap(bytes, off, len), ordered);
+  } // stream(byte[], int, int, boolean)
+
+  /**
+   * Write values to a stream, each compact and on its own line.
+   */
+  public static void write(Iterable<? extends JSONValue> values, OutputStream out) throws IOException {
+    JSONByteWriter writer = new JSONByteWriter(out);
+    try {
+      writer.format(JSONFormat.LINES);
+      for (JSONValue value : values) {
+        value.writeJSON(writer);
+      }
+      writer.flush();
+    } finally {
+      writer.release();
+    }
+  } // write(Iterable, OutputStream)
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Stream the records in a file, mapping at most mapSize bytes at a time.
+   */
+  static Stream<JSONValue> stream(Path path, boolean ordered, int mapSize) throws IOException {
+    ArrayList<ByteBuffer> segments = new ArrayList<ByteBuffer>();
+    ArrayList<Long> bases = new ArrayList<Long>();
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      long size = channel.size();
+      long pos = 0;
+      while (pos < size) {
+        int length = (int) Math.min(mapSize, size - pos);
+        ByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, pos, length);
+        // Unless this is the end of the file, stop after the last newline
+        if (pos + length < size) {
+          int end = length;
+          while ((end > 0) && ('\n' != segment.get(end - 1))) {
+            end--;
+          }
+          if (0 == end) {
+            throw new IOException("Record too large to map at " + pos);
+          }
+          segment.limit(end);
+          length = end;
+        }
+        segments.add(segment);
+        bases.add(pos);
+        pos += length;
+      }
+    }
+    long[] starts = new long[bases.size()];
+    for (int i = 0; i < starts.length; i++) {
+      starts[i] = bases.get(i);
+    }
+    return stream(new Records(segments.toArray(new ByteBuffer[0]), starts, 0, starts.length), ordered);
+  } // stream(Path, boolean, int)
+
+  /**
+   * Stream the records from a spliterator.
+   */
+  static Stream<JSONValue> stream(Records records, boolean ordered) {
+    records.ordered = ordered;
+    Stream<JSONValue> result = StreamSupport.stream(records, true);
+    return ordered ? result : result.unordered();
+  } // stream(Records, boolean)
+
+  // +---------------+-----------------------------------------------
+  // | Inner classes |
+  // +---------------+
+
+  /**
+   * The records in a series of buffers, each of which ends at the end of a
+   * record. Splits first between buffers, then at the newline nearest the
+   * middle of a buffer.
+   */
+  static class Records implements Spliterator<JSONValue> {
+    /**
+     * The buffers, each holding whole records.
+     */
+    ByteBuffer[] segments;
+
+    /**
+     * The position in the input of the start of each buffer.
+     */
+    long[] bases;
+
+    /**
+     * The first buffer we still cover.
+     */
+    int lo;
+
+    /**
+     * Just past the last buffer we cover.
+     */
+    int hi;
+
+    /**
+     * Where we are in segments[lo].
+     */
+    int from;
+
+    /**
+     * Where we stop in segments[lo]. Only less than its limit when we cover
+     * just that one buffer.
+     */
+    int to;
+
+    /**
+     * Whether to report our records as ordered.
+     */
+    boolean ordered;
+
+    /**
+     * Cover segments[lo..hi).
+     */
+    Records(ByteBuffer[] segments, long[] bases, int lo, int hi) {
+      this.segments = segments;
+      this.bases = bases;
+      this.lo = lo;
+      this.hi = hi;
+      this.from = 0;
+      this.to = (lo < hi) ? segments[lo].limit() : 0;
+    } // Records(ByteBuffer[], long[], int, int)
+
+    public boolean tryAdvance(Consumer<? super JSONValue> action) {
+      while (this.lo < this.hi) {
+        ByteBuffer segment = this.segments[this.lo];
+        while (this.from < this.to) {
+          int start = this.from;
+          int end = start;
+          boolean blank = true;
+          while ((end < this.to) && ('\n' != segment.get(end))) {
+            blank &= JSON.isWhitespace(segment.get(end));
+            end++;
+          }
+          this.from = Math.min(end + 1, this.to);
+          if (!blank) {
+            action.accept(this.parse(segment, start, end));
+            return true;
+          }
+        }
+        if (++this.lo < this.hi) {
+          this.from = 0;
+          this.to = this.segments[this.lo].limit();
+        }
+      }
+      return false;
+    } // tryAdvance(Consumer)
+
+    public Spliterator<JSONValue> trySplit() {
+      if (this.hi - this.lo > 1) {
+        int mid = (this.lo + this.hi + 1) / 2;
+        Records prefix = new Records(this.segments, this.bases, this.lo, mid);
+        prefix.from = this.from;
+        prefix.ordered = this.ordered;
+        this.lo = mid;
+        this.from = 0;
+        this.to = this.segments[mid].limit();
+        return prefix;
+      } else if (this.lo < this.hi) {
+        // Split just after the first newline past the middle
+        ByteBuffer segment = this.segments[this.lo];
+        int cut = this.from + (this.to - this.from) / 2;
+        while ((cut < this.to) && ('\n' != segment.get(cut))) {
+          cut++;
+        }
+        cut++;
+        if (cut >= this.to) {
+          return null;
+        }
+        Records prefix = new Records(this.segments, this.bases, this.lo, this.lo + 1);
+        prefix.from = this.from;
+        prefix.to = cut;
+        prefix.ordered = this.ordered;
+        this.from = cut;
+        return prefix;
+      }
+      return null;
+    } // trySplit()
+
+    public long estimateSize() {
+      if (this.lo >= this.hi) {
+        return 0;
+      }
+      long size = this.to - this.from;
+      for (int i = this.lo + 1; i < this.hi; i++) {
+        size += this.segments[i].limit();
+      }
+      return size;
+    } // estimateSize()
+
+    public int characteristics() {
+      return NONNULL | IMMUTABLE | (this.ordered ? ORDERED : 0);
+    } // characteristics()
+
+    /**
+     * Parse the record in segment[start..end) with the thread's parser.
+     */
+    JSONValue parse(ByteBuffer segment, int start, int end) {
+      try {
+        return JSON.parse(segment.slice(start, end - start));
+      } catch (ParseException e) {
+        long pos = this.bases[this.lo] + start + e.getErrorOffset();
+        ParseException located = new ParseException(e.getMessage(), (int) Math.min(pos, Integer.MAX_VALUE));
+        throw new IllegalArgumentException("Bad record at " + pos + ": " + e.getMessage(), located);
+      } catch (IOException e) {
+        // Buffers never fail to read
+        throw new IllegalStateException(e);
+      }
+    } // parse(ByteBuffer, int, int)
+  } // class Records
+
+} // class JSONLines
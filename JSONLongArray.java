@@ -0,0 +1,329 @@
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * JSON arrays of integers, kept in a long[] rather than as a JSONInteger
+ * per element. The parser makes these for arrays whose elements are all
+ * integers that fit in a long, which take a tenth of the memory and scan
+ * much faster this way.
+ *
+ * If anything other than such an integer is added or set, the array
+ * quietly switches to the ordinary list of values and carries on as a
+ * plain JSONArray; so does getValue(), which hands out that list.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public class JSONLongArray extends JSONArray {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * The elements, or null once we have switched to values.
+   */
+  long[] longs;
+
+  /**
+   * The number of elements in longs.
+   */
+  int count;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Build a new, empty, array.
+   */
+  public JSONLongArray() {
+    super();
+    this.longs = new long[8];
+    this.count = 0;
+  } // JSONLongArray()
+
+  /**
+   * Build an array holding the given longs.
+   */
+  public JSONLongArray(long... elements) {
+    super();
+    this.longs = elements.clone();
+    this.count = elements.length;
+  } // JSONLongArray(long...)
+
+  // +-------------------------+-------------------------------------
+  // | Standard object methods |
+  // +-------------------------+
+
+  /**
+   * Compare to another object. Compares longs directly when both arrays
+   * still have them.
+   */
+  public boolean equals(Object other) {
+    if ((this.longs != null) && (other instanceof JSONLongArray) && (((JSONLongArray) other).longs != null)) {
+      JSONLongArray that = (JSONLongArray) other;
+      return Arrays.equals(this.longs, 0, this.count, that.longs, 0, that.count);
+    }
+    return super.equals(other);
+  } // equals(Object)
+
+  /**
+   * Compute the hash code, in the same way as JSONArray but without making
+   * any JSONIntegers.
+   */
+  public int hashCode() {
+    if (this.longs == null) {
+      return super.hashCode();
+    }
+    int result = 1;
+    for (int i = 0; i < this.count; i++) {
+      result = 31 * result + Long.hashCode(this.longs[i]);
+    }
+    return result;
+  } // hashCode()
+
+  // +--------------------+------------------------------------------
+  // | Additional methods |
+  // +--------------------+
+
+  /**
+   * Write our elements, straight from the longs when we have them.
+   */
+  void writeContents(JSONWriter writer) throws IOException {
+    if (this.longs == null) {
+      super.writeContents(writer);
+      return;
+    }
+    writer.startArray();
+    for (int i = 0; i < this.count; i++) {
+      writer.value(this.longs[i]);
+    }
+    writer.endArray();
+  } // writeContents(JSONWriter)
+
+  /**
+   * Get the underlying value. Switches us to a list of values, since the
+   * caller may change the list.
+   */
+  public ArrayList<JSONValue> getValue() {
+    this.generalize();
+    return super.getValue();
+  } // getValue()
+
+  /**
+   * Determine if we still keep our elements as longs.
+   */
+  public boolean isSpecialized() {
+    return this.longs != null;
+  } // isSpecialized()
+
+  // +---------------+-----------------------------------------------
+  // | Array methods |
+  // +---------------+
+
+  /**
+   * Add a value to the end of the array.
+   */
+  public void add(JSONValue value) {
+    if ((this.longs != null) && fits(value)) {
+      this.addLong(((JSONInteger) value).value);
+    } else {
+      this.generalize();
+      super.add(value);
+    }
+  } // add(JSONValue)
+
+  /**
+   * Add a long to the end of the array.
+   */
+  public void addLong(long value) {
+    if (this.longs == null) {
+      super.add(new JSONInteger(value));
+      return;
+    }
+    this.changed();
+    if (this.count == this.longs.length) {
+      this.longs = Arrays.copyOf(this.longs, Math.max(8, 2 * this.count));
+    }
+    this.longs[this.count++] = value;
+  } // addLong(long)
+
+  /**
+   * Get the value at a particular index.
+   */
+  public JSONValue get(int index) throws IndexOutOfBoundsException {
+    if (this.longs == null) {
+      return super.get(index);
+    }
+    return new JSONInteger(this.getLong(index));
+  } // get(int)
+
+  /**
+   * Get the value at a particular index as a long.
+   *
+   * @throws ArithmeticException
+   *   if the value there is not an integer that fits in a long.
+   */
+  public long getLong(int index) throws IndexOutOfBoundsException {
+    if (this.longs == null) {
+      JSONValue value = super.get(index);
+      if (!(value instanceof JSONInteger)) {
+        throw new ArithmeticException("Not an integer: " + value);
+      }
+      return ((JSONInteger) value).longValue();
+    }
+    Objects.checkIndex(index, this.count);
+    return this.longs[index];
+  } // getLong(int)
+
+  /**
+   * Get the elements as a stream of longs.
+   *
+   * @throws ArithmeticException
+   *   when the stream reaches an element that is not an integer that fits in
+   *   a long.
+   */
+  public LongStream longStream() {
+    if (this.longs == null) {
+      return this.values.stream().mapToLong((value) -> ((JSONInteger) value).longValue());
+    }
+    return Arrays.stream(this.longs, 0, this.count);
+  } // longStream()
+
+  /**
+   * Get the iterator for the elements. Removing through it counts as a
+   * change, as for any array.
+   */
+  public Iterator<JSONValue> iterator() {
+    if (this.longs == null) {
+      return super.iterator();
+    }
+    return new Iterator<JSONValue>() {
+      /**
+       * The index of the next element.
+       */
+      int next = 0;
+
+      /**
+       * The index of the element next() last returned, or -1 if there is
+       * none to remove.
+       */
+      int last = -1;
+
+      public boolean hasNext() {
+        return this.next < JSONLongArray.this.size();
+      } // hasNext()
+
+      public JSONValue next() {
+        if (!this.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        this.last = this.next;
+        return JSONLongArray.this.get(this.next++);
+      } // next()
+
+      public void remove() {
+        if (this.last < 0) {
+          throw new IllegalStateException();
+        }
+        JSONLongArray.this.remove(this.last);
+        this.next = this.last;
+        this.last = -1;
+      } // remove()
+    };
+  } // iterator()
+
+  /**
+   * Call action on each element, in order.
+   */
+  public void forEach(Consumer<? super JSONValue> action) {
+    if (this.longs == null) {
+      super.forEach(action);
+      return;
+    }
+    for (int i = 0; i < this.count; i++) {
+      action.accept(new JSONInteger(this.longs[i]));
+    }
+  } // forEach(Consumer)
+
+  /**
+   * Call action on each element and its index, in order.
+   */
+  public void forEach(ObjIntConsumer<? super JSONValue> action) {
+    if (this.longs == null) {
+      super.forEach(action);
+      return;
+    }
+    for (int i = 0; i < this.count; i++) {
+      action.accept(new JSONInteger(this.longs[i]), i);
+    }
+  } // forEach(ObjIntConsumer)
+
+  /**
+   * Set the value at a particular index.
+   */
+  public void set(int index, JSONValue value) throws IndexOutOfBoundsException {
+    if ((this.longs != null) && fits(value)) {
+      Objects.checkIndex(index, this.count);
+      this.changed();
+      this.longs[index] = ((JSONInteger) value).value;
+    } else {
+      this.generalize();
+      super.set(index, value);
+    }
+  } // set(int, JSONValue)
+
+  /**
+   * Determine how many values are in the array.
+   */
+  public int size() {
+    return (this.longs == null) ? super.size() : this.count;
+  } // size()
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Remove the element at an index, for our iterator.
+   */
+  void remove(int index) {
+    this.changed();
+    if (this.longs == null) {
+      this.values.remove(index);
+    } else {
+      this.count--;
+      System.arraycopy(this.longs, index + 1, this.longs, index, this.count - index);
+    }
+  } // remove(int)
+
+  /**
+   * Switch from longs to the ordinary list of values.
+   */
+  void generalize() {
+    if (this.longs != null) {
+      this.values.ensureCapacity(this.count);
+      for (int i = 0; i < this.count; i++) {
+        this.values.add(new JSONInteger(this.longs[i]));
+      }
+      this.longs = null;
+    }
+  } // generalize()
+
+  /**
+   * Determine if a value can be kept as a long.
+   */
+  static boolean fits(JSONValue value) {
+    return (value instanceof JSONInteger) && ((JSONInteger) value).fitsInLong();
+  } // fits(JSONValue)
+
+} // class JSONLongArray
@@ -0,0 +1,823 @@
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+
+/**
+ * A JSON parser. Each parser carries its own position in the input, so
+ * separate parsers may be used by separate threads at the same time. A
+ * parser may be reused for many inputs, but only parses one input at a
+ * time.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public class JSONParser {
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * Where our tokens come from: one of the lexers below.
+   */
+  JSONLexer lexer;
+
+  /**
+   * Our lexer for characters. Reused from input to input.
+   */
+  JSONCharLexer chars;
+
+  /**
+   * Our lexer for UTF-8 bytes. Made when first needed, then reused.
+   */
+  JSONByteLexer bytes;
+
+  /**
+   * The keys we have seen, so that repeated keys share one JSONString.
+   */
+  JSONKeyCache keys;
+
+  /**
+   * Whether we are in the middle of parsing an input.
+   */
+  boolean busy;
+
+  /**
+   * Whether to leave nested objects and arrays unparsed until they are
+   * used.
+   */
+  boolean lazy;
+
+  /**
+   * Whether to keep arrays of objects with the same keys as columns.
+   */
+  boolean columnar;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Build a new, idle, parser.
+   */
+  public JSONParser() {
+    this.chars = new JSONCharLexer();
+    this.bytes = null;
+    this.keys = new JSONKeyCache();
+    this.lexer = this.chars;
+    this.busy = false;
+    this.lazy = false;
+    this.columnar = false;
+  } // JSONParser()
+
+  // +---------+-----------------------------------------------------
+  // | Methods |
+  // +---------+
+
+  /**
+   * Parse JSON from a reader. The whole input must be a single value,
+   * optionally surrounded by whitespace.
+   */
+  public JSONValue parse(Reader source) throws ParseException, IOException {
+    this.start(source);
+    try {
+      return this.parseDocument();
+    } finally {
+      this.finish();
+    }
+  } // parse(Reader)
+
+  /**
+   * Parse JSON from a string.
+   */
+  public JSONValue parse(String source) throws ParseException, IOException {
+    this.start(source.toCharArray());
+    try {
+      return this.parseDocument();
+    } finally {
+      this.finish();
+    }
+  } // parse(String)
+
+  /**
+   * Parse JSON from len bytes of UTF-8, starting at bytes[off].
+   */
+  public JSONValue parse(byte[] bytes, int off, int len) throws ParseException, IOException {
+    return this.parse(ByteBuffer.wrap(bytes, off, len));
+  } // parse(byte[], int, int)
+
+  /**
+   * Parse JSON from the UTF-8 bytes between the position and the limit of a
+   * buffer. The bytes are read in place and the buffer's position does not
+   * change.
+   */
+  public JSONValue parse(ByteBuffer source) throws ParseException, IOException {
+    this.start(source);
+    try {
+      return this.parseDocument();
+    } finally {
+      this.finish();
+    }
+  } // parse(ByteBuffer)
+
+  /**
+   * Parse a file of UTF-8 JSON. The file is memory-mapped and scanned in
+   * place, in chunks if it is large.
+   */
+  public JSONValue parseFile(Path path) throws ParseException, IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      this.start(channel);
+      try {
+        return this.parseDocument();
+      } finally {
+        this.finish();
+      }
+    }
+  } // parseFile(Path)
+
+  /**
+   * Parse JSON from a string, leaving the objects and arrays nested inside
+   * the top-level value unparsed until they are first used. The string's
+   * characters are kept until then.
+   */
+  public JSONValue parseLazy(String source) throws ParseException, IOException {
+    this.start(source.toCharArray());
+    this.lazy = true;
+    try {
+      return this.parseDocument();
+    } finally {
+      this.finish();
+    }
+  } // parseLazy(String)
+
+  /**
+   * Parse len bytes of UTF-8, starting at bytes[off], lazily. The array is
+   * kept, and must not change, until every nested value has been used.
+   */
+  public JSONValue parseLazy(byte[] bytes, int off, int len) throws ParseException, IOException {
+    return this.parseLazy(ByteBuffer.wrap(bytes, off, len));
+  } // parseLazy(byte[], int, int)
+
+  /**
+   * Parse the UTF-8 bytes remaining in a buffer lazily. The buffer is kept,
+   * and its contents must not change, until every nested value has been
+   * used. Its position and limit may change.
+   */
+  public JSONValue parseLazy(ByteBuffer source) throws ParseException, IOException {
+    this.start(source);
+    this.lazy = true;
+    try {
+      return this.parseDocument();
+    } finally {
+      this.finish();
+    }
+  } // parseLazy(ByteBuffer)
+
+  /**
+   * Parse JSON from a string, keeping each array whose elements are objects
+   * with the same keys as a JSONColumnArray.
+   */
+  public JSONValue parseColumnar(String source) throws ParseException, IOException {
+    this.start(source.toCharArray());
+    this.columnar = true;
+    try {
+      return this.parseDocument();
+    } finally {
+      this.finish();
+    }
+  } // parseColumnar(String)
+
+  /**
+   * Parse the UTF-8 bytes remaining in a buffer, keeping arrays of objects
+   * with the same keys as columns.
+   */
+  public JSONValue parseColumnar(ByteBuffer source) throws ParseException, IOException {
+    this.start(source);
+    this.columnar = true;
+    try {
+      return this.parseDocument();
+    } finally {
+      this.finish();
+    }
+  } // parseColumnar(ByteBuffer)
+
+  /**
+   * Report the JSON from a reader to a visitor, without building any
+   * values.
+   */
+  public void visit(Reader source, JSONVisitor visitor) throws ParseException, IOException {
+    this.start(source);
+    try {
+      this.visitDocument(visitor);
+    } finally {
+      this.finish();
+    }
+  } // visit(Reader, JSONVisitor)
+
+  /**
+   * Report the JSON in a string to a visitor.
+   */
+  public void visit(String source, JSONVisitor visitor) throws ParseException, IOException {
+    this.start(source.toCharArray());
+    try {
+      this.visitDocument(visitor);
+    } finally {
+      this.finish();
+    }
+  } // visit(String, JSONVisitor)
+
+  /**
+   * Report the JSON in the UTF-8 bytes remaining in a buffer to a visitor.
+   * The buffer's position does not change.
+   */
+  public void visit(ByteBuffer source, JSONVisitor visitor) throws ParseException, IOException {
+    this.start(source);
+    try {
+      this.visitDocument(visitor);
+    } finally {
+      this.finish();
+    }
+  } // visit(ByteBuffer, JSONVisitor)
+
+  /**
+   * Report a file of UTF-8 JSON to a visitor. The file is memory-mapped, as
+   * in parseFile.
+   */
+  public void visitFile(Path path, JSONVisitor visitor) throws ParseException, IOException {
+    try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      this.start(channel);
+      try {
+        this.visitDocument(visitor);
+      } finally {
+        this.finish();
+      }
+    }
+  } // visitFile(Path, JSONVisitor)
+
+  /**
+   * Determine if the parser is in the middle of parsing an input.
+   */
+  public boolean isBusy() {
+    return this.busy;
+  } // isBusy()
+
+  /**
+   * Get the current position in the input.
+   */
+  public long position() {
+    return this.lexer.position();
+  } // position()
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Prepare to parse a new input.
+   */
+  void start(Reader source) {
+    this.claim();
+    this.chars.reset(source);
+    this.lexer = this.chars;
+  } // start(Reader)
+
+  /**
+   * Prepare to parse an in-memory input.
+   */
+  void start(char[] source) {
+    this.claim();
+    this.chars.reset(source, 0, source.length);
+    this.lexer = this.chars;
+  } // start(char[])
+
+  /**
+   * Prepare to parse UTF-8 bytes.
+   */
+  void start(ByteBuffer source) {
+    this.claim();
+    if (this.bytes == null) {
+      this.bytes = new JSONByteLexer();
+    }
+    this.bytes.reset(source);
+    this.lexer = this.bytes;
+  } // start(ByteBuffer)
+
+  /**
+   * Prepare to parse a file.
+   */
+  void start(FileChannel source) throws IOException {
+    this.start(JSONByteLexer.EMPTY);
+    try {
+      this.bytes.reset(source);
+    } catch (IOException e) {
+      this.finish();
+      throw e;
+    }
+  } // start(FileChannel)
+
+  /**
+   * Prepare to parse input[from..to) lazily, where input is the char[] or
+   * ByteBuffer that a lazy value was found in.
+   */
+  void start(Object input, long offset, int from, int to) {
+    if (input instanceof char[]) {
+      this.claim();
+      this.chars.reset((char[]) input, from, to);
+      this.lexer = this.chars;
+    } else {
+      this.start((ByteBuffer) input);
+      this.bytes.reset((ByteBuffer) input, from, to);
+    }
+    this.lexer.offset = offset;
+    this.lazy = true;
+  } // start(Object, long, int, int)
+
+  /**
+   * Mark the parser as busy.
+   */
+  void claim() {
+    if (this.busy) {
+      throw new IllegalStateException("Parser is already in use");
+    }
+    this.busy = true;
+  } // claim()
+
+  /**
+   * Release the current input so that the parser may be reused.
+   */
+  void finish() {
+    this.lexer.release();
+    this.lazy = false;
+    this.columnar = false;
+    this.busy = false;
+  } // finish()
+
+  /**
+   * Parse a complete input: one value and nothing but whitespace after it.
+   */
+  JSONValue parseDocument() throws ParseException, IOException {
+    JSONValue result = parseKernel(lexer.nextNonWhitespace());
+    if (-1 != lexer.nextNonWhitespace()) {
+      throw lexer.error("Characters remain at end");
+    }
+    return result;
+  } // parseDocument()
+
+  /**
+   * Fill in a lazy hash from input[from..to), which holds its text.
+   */
+  void load(JSONHash hash, Object input, long offset, int from, int to) throws ParseException, IOException {
+    this.start(input, offset, from, to);
+    try {
+      lexer.nextNonWhitespace();
+      parseHash(hash);
+    } finally {
+      this.finish();
+    }
+  } // load(JSONHash, Object, long, int, int)
+
+  /**
+   * Fill in a lazy array from input[from..to), which holds its text.
+   */
+  void load(JSONArray arr, Object input, long offset, int from, int to) throws ParseException, IOException {
+    this.start(input, offset, from, to);
+    try {
+      lexer.nextNonWhitespace();
+      parseArray(arr);
+    } finally {
+      this.finish();
+    }
+  } // load(JSONArray, Object, long, int, int)
+
+  /**
+   * Parse a value inside an object or array, whose first character, ch, has
+   * just been read. When we are lazy, objects and arrays are only skipped
+   * over, and we remember where they are.
+   */
+  JSONValue parseMember(int ch) throws ParseException, IOException {
+    if (this.lazy && (('{' == ch) || ('[' == ch))) {
+      int from = lexer.index - 1;
+      lexer.skipContainer();
+      Object input = (lexer == chars) ? chars.buffer : bytes.input;
+      if ('{' == ch) {
+        return new JSONLazyHash(input, lexer.offset, from, lexer.index);
+      } else {
+        return new JSONLazyArray(input, lexer.offset, from, lexer.index);
+      }
+    }
+    return parseKernel(ch);
+  } // parseMember(int)
+
+  /**
+   * Parse the value whose first character, ch, has just been read.
+   *
+   * @throws ParseException
+   */
+  JSONValue parseKernel(int ch) throws ParseException, IOException {
+    if ('"' == ch) {
+      return parseString();
+    } else if (('-' == ch) || JSONLexer.isDigit(ch)) {
+      return parseNumber(ch);
+    } else if ('{' == ch) {
+      return parseHash();
+    } else if ('[' == ch) {
+      return parseArray();
+    } else if (('f' == ch) || ('t' == ch) || ('n' == ch)) {
+      return parseConstant(ch);
+    } else if (-1 == ch) {
+      throw lexer.error("Unexpected end of file");
+    } else {
+      throw lexer.error("Illegal opening " + (char) ch);
+    }
+  } // parseKernel(int)
+
+  /**
+   * Parses the rest of a JSONHash whose opening brace has been read,
+   * while catching empty Hashes as an edge case
+   */
+  JSONHash parseHash() throws IOException, ParseException {
+    return parseHash(new JSONHash());
+  } // parseHash()
+
+  /**
+   * Parses the rest of a JSONHash whose opening brace has been read into
+   * hash.
+   */
+  JSONHash parseHash(JSONHash hash) throws IOException, ParseException {
+    int ch = lexer.nextNonWhitespace();
+    if ('}' == ch) {
+      return hash;
+    }
+    return parsePairs(hash, ch);
+  } // parseHash(JSONHash)
+
+  /**
+   * Parses the rest of a JSONHash into hash, starting with the pair whose
+   * first character, ch, has just been read.
+   */
+  JSONHash parsePairs(JSONHash hash, int ch) throws IOException, ParseException {
+    // continue to parse key value pairs until encounter end other than a comma
+    while (true) {
+      if ('"' != ch) {
+        throw lexer.error("Illegal key " + (char) ch);
+      }
+      lexer.scanString();
+      JSONString key = keys.key(lexer);
+      if (':' != lexer.nextNonWhitespace()) {
+        throw lexer.error("Missing colon");
+      }
+      hash.set(key, parseMember(lexer.nextNonWhitespace()));
+      ch = lexer.nextNonWhitespace();
+      if (',' != ch) {
+        break;
+      }
+      ch = lexer.nextNonWhitespace();
+    }
+    // check if it's legal end
+    if ('}' != ch) {
+      throw lexer.error("Unexpected end " + (char) ch);
+    }
+    return hash;
+  } // parsePairs(JSONHash, int)
+
+  /**
+   * Parses the rest of a JSONArray whose opening bracket has been read,
+   * while catching empty Arrays as an edge case
+   */
+  JSONArray parseArray() throws IOException, ParseException {
+    int ch = lexer.peekNonWhitespace();
+    if (('-' == ch) || JSONLexer.isDigit(ch)) {
+      return parseNumbers();
+    } else if (this.columnar && ('{' == ch)) {
+      return parseRows();
+    }
+    return parseArray(new JSONArray());
+  } // parseArray()
+
+  /**
+   * Parses the rest of a JSONArray whose opening bracket has been read into
+   * arr.
+   */
+  JSONArray parseArray(JSONArray arr) throws IOException, ParseException {
+    int ch = lexer.nextNonWhitespace();
+    if (']' == ch) {
+      return arr;
+    }
+
+    // continue to parse values until encounter end other than a comma
+    while (true) {
+      arr.add(parseMember(ch));
+      ch = lexer.nextNonWhitespace();
+      if (',' != ch) {
+        break;
+      }
+      ch = lexer.nextNonWhitespace();
+    }
+    // check if it's legal end
+    if (']' != ch) {
+      throw lexer.error("Unexpected end " + (char) ch);
+    }
+    return arr;
+  } // parseArray(JSONArray)
+
+  /**
+   * Parses the rest of an array whose opening bracket has been read and
+   * whose first element is a number. If the first number is an integer, or
+   * a real that a double holds exactly, the numbers are kept unboxed in a
+   * JSONLongArray or JSONDoubleArray, which look after themselves if other
+   * values follow.
+   */
+  JSONArray parseNumbers() throws IOException, ParseException {
+    int kind = lexer.scanNumber(lexer.nextNonWhitespace());
+    JSONArray arr;
+    if (JSONLexer.NUMBER_LONG == kind) {
+      arr = new JSONLongArray();
+    } else if ((JSONLexer.NUMBER_REAL == kind) && isShortReal()) {
+      arr = new JSONDoubleArray();
+    } else {
+      arr = new JSONArray();
+    }
+    addNumber(arr, kind);
+    int ch = lexer.nextNonWhitespace();
+    while (',' == ch) {
+      ch = lexer.nextNonWhitespace();
+      if (('-' == ch) || JSONLexer.isDigit(ch)) {
+        addNumber(arr, lexer.scanNumber(ch));
+      } else {
+        arr.add(parseMember(ch));
+      }
+      ch = lexer.nextNonWhitespace();
+    }
+    if (']' != ch) {
+      throw lexer.error("Unexpected end " + (char) ch);
+    }
+    return arr;
+  } // parseNumbers()
+
+  /**
+   * Parses the rest of an array whose opening bracket has been read and
+   * whose first element is an object, as a JSONColumnArray. Objects with
+   * the same keys as the first are read straight into its columns.
+   */
+  JSONArray parseRows() throws IOException, ParseException {
+    lexer.nextNonWhitespace();
+    JSONColumnArray rows = new JSONColumnArray(parseHash());
+    JSONValue[] row = new JSONValue[rows.columns.length];
+    int ch = lexer.nextNonWhitespace();
+    while (',' == ch) {
+      ch = lexer.nextNonWhitespace();
+      if (('{' == ch) && rows.isSpecialized()) {
+        JSONHash other = parseRow(rows, row);
+        if (other != null) {
+          rows.add(other);
+        }
+      } else {
+        rows.add(parseMember(ch));
+      }
+      ch = lexer.nextNonWhitespace();
+    }
+    if (']' != ch) {
+      throw lexer.error("Unexpected end " + (char) ch);
+    }
+    return rows;
+  } // parseRows()
+
+  /**
+   * Parses the rest of an object whose opening brace has been read. If it
+   * has the keys of rows, in order, its values are added to rows (by way of
+   * row, which has room for them) and we return null. Otherwise, we return
+   * the object as a JSONHash.
+   */
+  JSONHash parseRow(JSONColumnArray rows, JSONValue[] row) throws IOException, ParseException {
+    JSONString[] names = rows.names.keys;
+    int column = 0;
+    int ch = lexer.nextNonWhitespace();
+    if ('}' != ch) {
+      while (true) {
+        if ('"' != ch) {
+          throw lexer.error("Illegal key " + (char) ch);
+        }
+        lexer.scanString();
+        JSONString key = keys.key(lexer);
+        if (':' != lexer.nextNonWhitespace()) {
+          throw lexer.error("Missing colon");
+        }
+        JSONValue value = parseMember(lexer.nextNonWhitespace());
+        if ((column == row.length) || !key.equals(names[column])) {
+          // Not a row after all, so read the rest as an ordinary hash
+          JSONHash hash = rowHash(names, row, column);
+          hash.set(key, value);
+          ch = lexer.nextNonWhitespace();
+          if (',' == ch) {
+            return parsePairs(hash, lexer.nextNonWhitespace());
+          } else if ('}' != ch) {
+            throw lexer.error("Unexpected end " + (char) ch);
+          }
+          return hash;
+        }
+        row[column++] = value;
+        ch = lexer.nextNonWhitespace();
+        if (',' != ch) {
+          break;
+        }
+        ch = lexer.nextNonWhitespace();
+      }
+      if ('}' != ch) {
+        throw lexer.error("Unexpected end " + (char) ch);
+      }
+    }
+    if (column < row.length) {
+      return rowHash(names, row, column);
+    }
+    rows.addRow(row);
+    return null;
+  } // parseRow(JSONColumnArray, JSONValue[])
+
+  /**
+   * Make a hash of the first count pairs of a row that turned out not to
+   * have all of the keys it should.
+   */
+  static JSONHash rowHash(JSONString[] names, JSONValue[] row, int count) {
+    JSONHash hash = new JSONHash();
+    for (int i = 0; i < count; i++) {
+      hash.set(names[i], row[i]);
+    }
+    return hash;
+  } // rowHash(JSONString[], JSONValue[], int)
+
+  /**
+   * Add the number we just scanned, of the given kind, to arr, unboxed if
+   * arr keeps numbers of that kind.
+   */
+  void addNumber(JSONArray arr, int kind) {
+    if ((JSONLexer.NUMBER_LONG == kind) && (arr instanceof JSONLongArray)) {
+      ((JSONLongArray) arr).addLong(lexer.number);
+    } else if ((JSONLexer.NUMBER_REAL == kind) && (arr instanceof JSONDoubleArray) && isShortReal()) {
+      ((JSONDoubleArray) arr).addDouble(lexer.doubleValue());
+    } else {
+      arr.add(numberValue(kind));
+    }
+  } // addNumber(JSONArray, int)
+
+  /**
+   * Determine if the real we just scanned is held exactly by a double.
+   */
+  boolean isShortReal() {
+    lexer.doubleValue();
+    return lexer.shortDecimal;
+  } // isShortReal()
+
+  /**
+   * Parses the rest of a JSON string whose opening quote has been read.
+   */
+  JSONString parseString() throws IOException, ParseException {
+    return new JSONString(lexer.readString());
+  } // parseString()
+
+  /**
+   * Parses the rest of a constant value (true/false/null) whose first
+   * letter, ch, has been read.
+   */
+  JSONConstant parseConstant(int ch) throws IOException, ParseException {
+    if ('t' == ch) {
+      lexer.expect("rue");
+      return JSONConstant.TRUE;
+    } else if ('f' == ch) {
+      lexer.expect("alse");
+      return JSONConstant.FALSE;
+    } else {
+      lexer.expect("ull");
+      return JSONConstant.NULL;
+    }
+  } // parseConstant(int)
+
+  /**
+   * Parses the rest of a number whose first character, ch (a digit or a
+   * minus sign), has just been read.
+   */
+  JSONValue parseNumber(int ch) throws IOException, ParseException {
+    return numberValue(lexer.scanNumber(ch));
+  } // parseNumber(int)
+
+  /**
+   * Build the value of the number we just scanned, of the given kind.
+   */
+  JSONValue numberValue(int kind) {
+    if (JSONLexer.NUMBER_LONG == kind) {
+      return new JSONInteger(lexer.number);
+    } else if (JSONLexer.NUMBER_BIG == kind) {
+      return new JSONInteger(new BigInteger(lexer.text()));
+    } else {
+      return new JSONReal(lexer.decimal());
+    }
+  } // numberValue(int)
+
+  /**
+   * Report a complete input to a visitor.
+   */
+  void visitDocument(JSONVisitor visitor) throws ParseException, IOException {
+    visitKernel(lexer.nextNonWhitespace(), visitor);
+    if (-1 != lexer.nextNonWhitespace()) {
+      throw lexer.error("Characters remain at end");
+    }
+  } // visitDocument(JSONVisitor)
+
+  /**
+   * Report the value whose first character, ch, has just been read. The
+   * same grammar as parseKernel, but nothing is built: strings are passed
+   * straight from the lexer and numbers as primitives.
+   */
+  void visitKernel(int ch, JSONVisitor visitor) throws ParseException, IOException {
+    if ('"' == ch) {
+      lexer.scanString();
+      visitor.value(lexer.chars());
+    } else if (('-' == ch) || JSONLexer.isDigit(ch)) {
+      int kind = lexer.scanNumber(ch);
+      if (JSONLexer.NUMBER_LONG == kind) {
+        visitor.value(lexer.number);
+      } else if (JSONLexer.NUMBER_BIG == kind) {
+        visitor.bigValue(lexer.text());
+      } else {
+        visitor.value(lexer.doubleValue());
+      }
+    } else if ('{' == ch) {
+      visitHash(visitor);
+    } else if ('[' == ch) {
+      visitArray(visitor);
+    } else if (('f' == ch) || ('t' == ch) || ('n' == ch)) {
+      JSONConstant constant = parseConstant(ch);
+      if (JSONConstant.NULL == constant) {
+        visitor.nullValue();
+      } else {
+        visitor.value(JSONConstant.TRUE == constant);
+      }
+    } else if (-1 == ch) {
+      throw lexer.error("Unexpected end of file");
+    } else {
+      throw lexer.error("Illegal opening " + (char) ch);
+    }
+  } // visitKernel(int, JSONVisitor)
+
+  /**
+   * Report the rest of an object whose opening brace has been read.
+   */
+  void visitHash(JSONVisitor visitor) throws IOException, ParseException {
+    visitor.startObject();
+    int ch = lexer.nextNonWhitespace();
+    if ('}' == ch) {
+      visitor.endObject();
+      return;
+    }
+    while (true) {
+      if ('"' != ch) {
+        throw lexer.error("Illegal key " + (char) ch);
+      }
+      lexer.scanString();
+      visitor.key(lexer.chars());
+      if (':' != lexer.nextNonWhitespace()) {
+        throw lexer.error("Missing colon");
+      }
+      visitKernel(lexer.nextNonWhitespace(), visitor);
+      ch = lexer.nextNonWhitespace();
+      if (',' != ch) {
+        break;
+      }
+      ch = lexer.nextNonWhitespace();
+    }
+    if ('}' != ch) {
+      throw lexer.error("Unexpected end " + (char) ch);
+    }
+    visitor.endObject();
+  } // visitHash(JSONVisitor)
+
+  /**
+   * Report the rest of an array whose opening bracket has been read.
+   */
+  void visitArray(JSONVisitor visitor) throws IOException, ParseException {
+    visitor.startArray();
+    int ch = lexer.nextNonWhitespace();
+    if (']' == ch) {
+      visitor.endArray();
+      return;
+    }
+    while (true) {
+      visitKernel(ch, visitor);
+      ch = lexer.nextNonWhitespace();
+      if (',' != ch) {
+        break;
+      }
+      ch = lexer.nextNonWhitespace();
+    }
+    if (']' != ch) {
+      throw lexer.error("Unexpected end " + (char) ch);
+    }
+    visitor.endArray();
+  } // visitArray(JSONVisitor)
+
+} // class JSONParser
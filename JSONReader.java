@@ -0,0 +1,528 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.Arrays;
+
+/**
+ * A pull parser for JSON. Rather than building a whole tree, the reader
+ * reports one token at a time from nextToken(), and the caller asks for the
+ * details of the token it is interested in. Only the current token and the
+ * nesting of the containers around it are kept, so documents much larger
+ * than memory can be read in constant space.
+ *
+ * The accessors for numbers and the character view of strings do not make
+ * any objects. Both are only valid until the next call to nextToken().
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public class JSONReader implements Closeable {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * In an object, just after the opening brace.
+   */
+  static final int OBJECT_START = 0;
+
+  /**
+   * In an object, just after a key.
+   */
+  static final int OBJECT_VALUE = 1;
+
+  /**
+   * In an object, just after a value.
+   */
+  static final int OBJECT_NEXT = 2;
+
+  /**
+   * In an array, just after the opening bracket.
+   */
+  static final int ARRAY_START = 3;
+
+  /**
+   * In an array, just after a value.
+   */
+  static final int ARRAY_NEXT = 4;
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * Where our tokens come from.
+   */
+  JSONLexer lexer;
+
+  /**
+   * What to close when we are closed. May be null.
+   */
+  Closeable source;
+
+  /**
+   * The state of each container we are in, outermost first.
+   */
+  int[] states;
+
+  /**
+   * How many containers we are in.
+   */
+  int depth;
+
+  /**
+   * Whether we have read all of the top-level value.
+   */
+  boolean done;
+
+  /**
+   * The current token, or null before the first token and at the end.
+   */
+  JSONToken token;
+
+  /**
+   * The kind of the current number (one of the JSONLexer.NUMBER_ kinds).
+   */
+  int numberKind;
+
+  // +--------------+------------------------------------------------
+  // | Constructors |
+  // +--------------+
+
+  /**
+   * Read JSON from a reader. Closing the JSONReader closes the reader.
+   */
+  public JSONReader(Reader source) {
+    this(new JSONCharLexer(), source);
+    ((JSONCharLexer) this.lexer).reset(source);
+  } // JSONReader(Reader)
+
+  /**
+   * Read JSON from a string.
+   */
+  public JSONReader(String source) {
+    this(new JSONCharLexer(), null);
+    char[] chars = source.toCharArray();
+    ((JSONCharLexer) this.lexer).reset(chars, 0, chars.length);
+  } // JSONReader(String)
+
+  /**
+   * Read JSON from the UTF-8 bytes between the position and the limit of a
+   * buffer. The buffer's position does not change.
+   */
+  public JSONReader(ByteBuffer source) {
+    this(new JSONByteLexer(), null);
+    ((JSONByteLexer) this.lexer).reset(source);
+  } // JSONReader(ByteBuffer)
+
+  /**
+   * Read JSON from len bytes of UTF-8, starting at bytes[off].
+   */
+  public JSONReader(byte[] bytes, int off, int len) {
+    this(ByteBuffer.wrap(bytes, off, len));
+  } // JSONReader(byte[], int, int)
+
+  /**
+   * Set up a reader that gets its tokens from lexer.
+   */
+  JSONReader(JSONLexer lexer, Closeable source) {
+    this.lexer = lexer;
+    this.source = source;
+    this.states = new int[16];
+    this.depth = 0;
+    this.done = false;
+    this.token = null;
+  } // JSONReader(JSONLexer, Closeable)
+
+  /**
+   * Read a file of UTF-8 JSON through memory mappings. Closing the
+   * JSONReader closes the file.
+   */
+  public static JSONReader openFile(Path path) throws IOException {
+    FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    JSONByteLexer lexer = new JSONByteLexer();
+    try {
+      lexer.reset(channel);
+    } catch (IOException e) {
+      channel.close();
+      throw e;
+    }
+    return new JSONReader(lexer, channel);
+  } // openFile(Path)
+
+  // +---------+-----------------------------------------------------
+  // | Reading |
+  // +---------+
+
+  /**
+   * Move to the next token and return it. Returns null once the whole
+   * document has been read.
+   */
+  public JSONToken nextToken() throws IOException, ParseException {
+    int ch = this.lexer.nextNonWhitespace();
+    if (this.depth == 0) {
+      if (this.done) {
+        if (-1 != ch) {
+          throw this.lexer.error("Characters remain at end");
+        }
+        return this.token = null;
+      }
+      return this.value(ch);
+    }
+    switch (this.states[this.depth - 1]) {
+      case OBJECT_START:
+        if ('}' == ch) {
+          return this.end(JSONToken.END_OBJECT);
+        }
+        return this.key(ch);
+      case OBJECT_VALUE:
+        if (':' != ch) {
+          throw this.lexer.error("Missing colon");
+        }
+        this.states[this.depth - 1] = OBJECT_NEXT;
+        return this.value(this.lexer.nextNonWhitespace());
+      case OBJECT_NEXT:
+        if ('}' == ch) {
+          return this.end(JSONToken.END_OBJECT);
+        } else if (',' != ch) {
+          throw this.unexpected(ch);
+        }
+        return this.key(this.lexer.nextNonWhitespace());
+      case ARRAY_START:
+        if (']' == ch) {
+          return this.end(JSONToken.END_ARRAY);
+        }
+        this.states[this.depth - 1] = ARRAY_NEXT;
+        return this.value(ch);
+      default:
+        if (']' == ch) {
+          return this.end(JSONToken.END_ARRAY);
+        } else if (',' != ch) {
+          throw this.unexpected(ch);
+        }
+        return this.value(this.lexer.nextNonWhitespace());
+    }
+  } // nextToken()
+
+  /**
+   * If the current token starts an object or array, skip to the token that
+   * ends it. Otherwise, do nothing. The skipped text is only checked for
+   * matching brackets.
+   */
+  public void skipChildren() throws IOException, ParseException {
+    if (this.token == JSONToken.START_OBJECT) {
+      this.lexer.skipContainer();
+      this.end(JSONToken.END_OBJECT);
+    } else if (this.token == JSONToken.START_ARRAY) {
+      this.lexer.skipContainer();
+      this.end(JSONToken.END_ARRAY);
+    }
+  } // skipChildren()
+
+  /**
+   * Build the value that starts at the current token, leaving the reader on
+   * the last token of that value. Handy for reading the elements of a huge
+   * array one at a time.
+   */
+  public JSONValue readValue() throws IOException, ParseException {
+    if (this.token == null) {
+      throw new IllegalStateException("No current value");
+    }
+    switch (this.token) {
+      case START_OBJECT:
+        JSONHash hash = new JSONHash();
+        while (this.nextToken() != JSONToken.END_OBJECT) {
+          JSONString key = new JSONString(this.getText());
+          this.nextToken();
+          hash.set(key, this.readValue());
+        }
+        return hash;
+      case START_ARRAY:
+        JSONArray arr = new JSONArray();
+        while (this.nextToken() != JSONToken.END_ARRAY) {
+          arr.add(this.readValue());
+        }
+        return arr;
+      case VALUE_STRING:
+        return new JSONString(this.lexer.stringValue());
+      case VALUE_NUMBER:
+        if (JSONLexer.NUMBER_LONG == this.numberKind) {
+          return new JSONInteger(this.lexer.number);
+        } else if (JSONLexer.NUMBER_BIG == this.numberKind) {
+          return new JSONInteger(new BigInteger(this.lexer.text()));
+        } else {
+          return new JSONReal(this.lexer.decimal());
+        }
+      case VALUE_TRUE:
+        return JSONConstant.TRUE;
+      case VALUE_FALSE:
+        return JSONConstant.FALSE;
+      case VALUE_NULL:
+        return JSONConstant.NULL;
+      default:
+        throw new IllegalStateException("No value at " + this.token);
+    }
+  } // readValue()
+
+  /**
+   * Release the input, closing it if we opened it or were given a reader.
+   */
+  public void close() throws IOException {
+    this.lexer.release();
+    this.token = null;
+    if (this.source != null) {
+      this.source.close();
+      this.source = null;
+    }
+  } // close()
+
+  // +-----------+---------------------------------------------------
+  // | Accessors |
+  // +-----------+
+
+  /**
+   * Get the current token.
+   */
+  public JSONToken currentToken() {
+    return this.token;
+  } // currentToken()
+
+  /**
+   * Get the number of objects and arrays that contain the current token.
+   * Start tokens count their own container.
+   */
+  public int depth() {
+    return this.depth;
+  } // depth()
+
+  /**
+   * Get the position in the input just past the current token.
+   */
+  public long position() {
+    return this.lexer.position();
+  } // position()
+
+  /**
+   * Get the text of the current token. Makes a new String.
+   */
+  public String getText() {
+    if (this.token == null) {
+      return null;
+    }
+    switch (this.token) {
+      case FIELD_NAME:
+      case VALUE_STRING:
+        return this.lexer.stringValue();
+      case VALUE_NUMBER:
+        return this.lexer.text();
+      case START_OBJECT:
+        return "{";
+      case END_OBJECT:
+        return "}";
+      case START_ARRAY:
+        return "[";
+      case END_ARRAY:
+        return "]";
+      default:
+        return this.token == JSONToken.VALUE_TRUE ? "true" : this.token == JSONToken.VALUE_FALSE ? "false" : "null";
+    }
+  } // getText()
+
+  /**
+   * Get the characters of the current key or string without making a
+   * String. The sequence is reused, so copy it if you need to keep it.
+   */
+  public CharSequence getCharacters() {
+    if ((this.token == JSONToken.FIELD_NAME) || (this.token == JSONToken.VALUE_STRING)) {
+      return this.lexer.chars();
+    }
+    return this.getText();
+  } // getCharacters()
+
+  /**
+   * Determine if the current number is an integer.
+   */
+  public boolean isIntegral() {
+    this.requireNumber();
+    return JSONLexer.NUMBER_REAL != this.numberKind;
+  } // isIntegral()
+
+  /**
+   * Get the current number as a long.
+   *
+   * @throws ArithmeticException
+   *   if the number is not an integer that fits in a long.
+   */
+  public long getLong() {
+    this.requireNumber();
+    if (JSONLexer.NUMBER_LONG != this.numberKind) {
+      throw new ArithmeticException("Number is not a long: " + this.lexer.text());
+    }
+    return this.lexer.number;
+  } // getLong()
+
+  /**
+   * Get the current number as an int.
+   *
+   * @throws ArithmeticException
+   *   if the number is not an integer that fits in an int.
+   */
+  public int getInt() {
+    return Math.toIntExact(this.getLong());
+  } // getInt()
+
+  /**
+   * Get the current number as a double.
+   */
+  public double getDouble() {
+    this.requireNumber();
+    if (JSONLexer.NUMBER_LONG == this.numberKind) {
+      return this.lexer.number;
+    }
+    return this.lexer.doubleValue();
+  } // getDouble()
+
+  /**
+   * Get the current number as a BigInteger.
+   *
+   * @throws ArithmeticException
+   *   if the number has a fractional part.
+   */
+  public BigInteger getBigInteger() {
+    this.requireNumber();
+    if (JSONLexer.NUMBER_LONG == this.numberKind) {
+      return BigInteger.valueOf(this.lexer.number);
+    } else if (JSONLexer.NUMBER_BIG == this.numberKind) {
+      return new BigInteger(this.lexer.text());
+    } else {
+      return this.lexer.decimal().toBigIntegerExact();
+    }
+  } // getBigInteger()
+
+  /**
+   * Get the current number as a BigDecimal.
+   */
+  public BigDecimal getDecimal() {
+    this.requireNumber();
+    if (JSONLexer.NUMBER_LONG == this.numberKind) {
+      return BigDecimal.valueOf(this.lexer.number);
+    }
+    return this.lexer.decimal();
+  } // getDecimal()
+
+  /**
+   * Get the current constant as a boolean.
+   */
+  public boolean getBoolean() {
+    if (this.token == JSONToken.VALUE_TRUE) {
+      return true;
+    } else if (this.token == JSONToken.VALUE_FALSE) {
+      return false;
+    }
+    throw new IllegalStateException("Current token is not a boolean: " + this.token);
+  } // getBoolean()
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Read the value whose first character, ch, has just been read.
+   */
+  JSONToken value(int ch) throws IOException, ParseException {
+    if ('{' == ch) {
+      this.push(OBJECT_START);
+      return this.token = JSONToken.START_OBJECT;
+    } else if ('[' == ch) {
+      this.push(ARRAY_START);
+      return this.token = JSONToken.START_ARRAY;
+    }
+    if ('"' == ch) {
+      this.lexer.scanString();
+      this.token = JSONToken.VALUE_STRING;
+    } else if (('-' == ch) || JSONLexer.isDigit(ch)) {
+      this.numberKind = this.lexer.scanNumber(ch);
+      this.token = JSONToken.VALUE_NUMBER;
+    } else if ('t' == ch) {
+      this.lexer.expect("rue");
+      this.token = JSONToken.VALUE_TRUE;
+    } else if ('f' == ch) {
+      this.lexer.expect("alse");
+      this.token = JSONToken.VALUE_FALSE;
+    } else if ('n' == ch) {
+      this.lexer.expect("ull");
+      this.token = JSONToken.VALUE_NULL;
+    } else if (-1 == ch) {
+      throw this.lexer.error("Unexpected end of file");
+    } else {
+      throw this.lexer.error("Illegal opening " + (char) ch);
+    }
+    if (this.depth == 0) {
+      this.done = true;
+    }
+    return this.token;
+  } // value(int)
+
+  /**
+   * Read the key whose opening quote, ch, has just been read.
+   */
+  JSONToken key(int ch) throws IOException, ParseException {
+    if (-1 == ch) {
+      throw this.unexpected(ch);
+    } else if ('"' != ch) {
+      throw this.lexer.error("Illegal key " + (char) ch);
+    }
+    this.lexer.scanString();
+    this.states[this.depth - 1] = OBJECT_VALUE;
+    return this.token = JSONToken.FIELD_NAME;
+  } // key(int)
+
+  /**
+   * Enter a container.
+   */
+  void push(int state) {
+    if (this.depth == this.states.length) {
+      this.states = Arrays.copyOf(this.states, 2 * this.depth);
+    }
+    this.states[this.depth++] = state;
+  } // push(int)
+
+  /**
+   * Leave a container.
+   */
+  JSONToken end(JSONToken token) {
+    if (--this.depth == 0) {
+      this.done = true;
+    }
+    return this.token = token;
+  } // end(JSONToken)
+
+  /**
+   * Build an exception for a character that does not belong.
+   */
+  ParseException unexpected(int ch) {
+    if (-1 == ch) {
+      return this.lexer.error("Unexpected end of file");
+    }
+    return this.lexer.error("Unexpected " + (char) ch);
+  } // unexpected(int)
+
+  /**
+   * Make sure that the current token is a number.
+   */
+  void requireNumber() {
+    if (this.token != JSONToken.VALUE_NUMBER) {
+      throw new IllegalStateException("Current token is not a number: " + this.token);
+    }
+  } // requireNumber()
+
+} // class JSONReader
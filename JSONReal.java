@@ -1,4 +1,4 @@
-import java.io.PrintWriter;
+import java.io.IOException;
 import java.math.BigDecimal;
 
 /**
@@ -19,6 +19,11 @@ public class JSONReal implements JSONValue {
    */
   BigDecimal value;
 
+  /**
+   * Our hash code, or 0 if we have not computed it yet.
+   */
+  int hash;
+
   // +--------------+------------------------------------------------
   // | Constructors |
   // +--------------+
@@ -38,10 +43,10 @@ public class JSONReal implements JSONValue {
   } // JSONReal(BigDecimal)
 
   /**
-   * Create a new real given a double.
+   * Create a new real given a double, with the double's shortest digits.
    */
   public JSONReal(double d) {
-    this.value = BigDecimal.valueOf(d);
+    this.value = JSONDecimal.shortest(d);
   } // JSONReal(double)
 
   // +-------------------------+-------------------------------------
@@ -56,17 +61,25 @@ public class JSONReal implements JSONValue {
   } // toString()
 
   /**
-   * Compare to another object.
+   * Compare to another object. Reals are equal if they have the same
+   * numeric value, so 1.5 equals 1.50.
    */
   public boolean equals(Object other) {
-    return this.toString().equals(other.toString());
+    return (this == other)
+        || ((other instanceof JSONReal) && (this.value.compareTo(((JSONReal) other).value) == 0));
   } // equals(Object)
 
   /**
-   * Compute the hash code.
+   * Compute the hash code. Computed once, since reals never change.
    */
   public int hashCode() {
-    return this.value.hashCode();
+    int result = this.hash;
+    if (result == 0) {
+      // Ignore the scale, to agree with equals
+      result = (this.value.signum() == 0) ? 1 : this.value.stripTrailingZeros().hashCode();
+      this.hash = result;
+    }
+    return result;
   } // hashCode()
 
   // +--------------------+------------------------------------------
@@ -76,9 +89,9 @@ public class JSONReal implements JSONValue {
   /**
    * Write the value as JSON.
    */
-  public void writeJSON(PrintWriter pen) {
-    pen.println(this.value.toString());
-  } // writeJSON(PrintWriter)
+  public void writeJSON(JSONWriter writer) throws IOException {
+    writer.value(this.value);
+  } // writeJSON(JSONWriter)
 
   /**
    * Get the underlying value.
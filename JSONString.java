@@ -1,4 +1,4 @@
-import java.io.PrintWriter;
+import java.io.IOException;
 
 /**
  * JSON strings.
@@ -41,10 +41,11 @@ public class JSONString implements JSONValue {
   } // toString()
 
   /**
-   * Compare to another object.
+   * Compare to another object. Only strings equal strings.
    */
   public boolean equals(Object other) {
-    return this.value.toString().equals((other.toString()));
+    return (this == other)
+        || ((other instanceof JSONString) && this.value.equals(((JSONString) other).value));
   } // equals(Object)
 
   /**
@@ -59,11 +60,11 @@ public class JSONString implements JSONValue {
   // +--------------------+
 
   /**
-   * Write the value as JSON.
+   * Write the value as JSON, in quotes and escaped.
    */
-  public void writeJSON(PrintWriter pen) {
-    pen.println(this.value);
-  } // writeJSON(PrintWriter)
+  public void writeJSON(JSONWriter writer) throws IOException {
+    writer.value(this.value);
+  } // writeJSON(JSONWriter)
 
   /**
    * Get the underlying value.
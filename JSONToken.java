@@ -0,0 +1,72 @@
+/**
+ * The kinds of tokens a JSONReader reports.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public enum JSONToken {
+  /**
+   * The opening brace of an object.
+   */
+  START_OBJECT,
+
+  /**
+   * The closing brace of an object.
+   */
+  END_OBJECT,
+
+  /**
+   * The opening bracket of an array.
+   */
+  START_ARRAY,
+
+  /**
+   * The closing bracket of an array.
+   */
+  END_ARRAY,
+
+  /**
+   * A key in an object.
+   */
+  FIELD_NAME,
+
+  /**
+   * A string value.
+   */
+  VALUE_STRING,
+
+  /**
+   * A numeric value, integer or real.
+   */
+  VALUE_NUMBER,
+
+  /**
+   * The constant true.
+   */
+  VALUE_TRUE,
+
+  /**
+   * The constant false.
+   */
+  VALUE_FALSE,
+
+  /**
+   * The constant null.
+   */
+  VALUE_NULL;
+
+  /**
+   * Determine if this token starts an object or an array.
+   */
+  public boolean isStart() {
+    return (this == START_OBJECT) || (this == START_ARRAY);
+  } // isStart()
+
+  /**
+   * Determine if this token is a complete value on its own.
+   */
+  public boolean isScalar() {
+    return (this.ordinal() >= VALUE_STRING.ordinal());
+  } // isScalar()
+} // enum JSONToken
@@ -1,4 +1,7 @@
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.nio.ByteBuffer;
 
 /**
  * JSON values.
@@ -33,7 +36,59 @@ public interface JSONValue {
   /**
    * Write the value as JSON.
    */
-  public void writeJSON(PrintWriter pen);
+  public default void writeJSON(PrintWriter pen) {
+    try {
+      this.writeJSON((Appendable) pen);
+    } catch (IOException e) {
+      // PrintWriters record errors rather than throwing them
+      throw new IllegalStateException(e);
+    }
+  } // writeJSON(PrintWriter)
+
+  /**
+   * Write the value as JSON to a Writer, StringBuilder, or other
+   * Appendable.
+   */
+  public default void writeJSON(Appendable out) throws IOException {
+    JSONWriter writer = new JSONCharWriter(out);
+    this.writeJSON(writer);
+    writer.flush();
+  } // writeJSON(Appendable)
+
+  /**
+   * Write the value as UTF-8 JSON to a stream.
+   */
+  public default void writeJSON(OutputStream out) throws IOException {
+    JSONByteWriter writer = new JSONByteWriter(out);
+    try {
+      this.writeJSON(writer);
+      writer.flush();
+    } finally {
+      writer.release();
+    }
+  } // writeJSON(OutputStream)
+
+  /**
+   * Write the value as UTF-8 JSON into a buffer, starting at its position,
+   * which moves past what we write.
+   *
+   * @throws java.nio.BufferOverflowException
+   *   if the buffer does not have room.
+   */
+  public default void writeJSON(ByteBuffer target) throws IOException {
+    JSONByteWriter writer = new JSONByteWriter(target);
+    try {
+      this.writeJSON(writer);
+      writer.flush();
+    } finally {
+      writer.release();
+    }
+  } // writeJSON(ByteBuffer)
+
+  /**
+   * Report the parts of the value to a writer.
+   */
+  public void writeJSON(JSONWriter writer) throws IOException;
 
   /**
    * Get the underlying value.
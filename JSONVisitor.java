@@ -0,0 +1,96 @@
+/**
+ * Callbacks for a push parser. JSONParser.visit reports each part of a
+ * document to a visitor as it is scanned, without building any JSONValues.
+ * Keys and strings arrive as reusable character sequences that are only
+ * valid during the call, and numbers arrive as primitives (apart from
+ * integers too large for a long, which arrive as their digits), so a visitor
+ * that only aggregates makes no objects per node.
+ *
+ * Every callback does nothing by default, so visitors need only override the
+ * ones they care about.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public interface JSONVisitor {
+
+  // +------------+--------------------------------------------------
+  // | Containers |
+  // +------------+
+
+  /**
+   * The start of an object.
+   */
+  public default void startObject() {
+  } // startObject()
+
+  /**
+   * A key in the current object. The characters are reused once the call
+   * returns, so copy them if you need to keep them.
+   */
+  public default void key(CharSequence key) {
+  } // key(CharSequence)
+
+  /**
+   * The end of the current object.
+   */
+  public default void endObject() {
+  } // endObject()
+
+  /**
+   * The start of an array.
+   */
+  public default void startArray() {
+  } // startArray()
+
+  /**
+   * The end of the current array.
+   */
+  public default void endArray() {
+  } // endArray()
+
+  // +--------+------------------------------------------------------
+  // | Values |
+  // +--------+
+
+  /**
+   * A string. The characters are reused once the call returns, so copy them
+   * if you need to keep them.
+   */
+  public default void value(CharSequence str) {
+  } // value(CharSequence)
+
+  /**
+   * An integer that fits in a long.
+   */
+  public default void value(long num) {
+  } // value(long)
+
+  /**
+   * An integer too large for a long, as its digits (with any minus sign).
+   * By default, passed on as the nearest double, which may lose digits.
+   */
+  public default void bigValue(CharSequence digits) {
+    this.value(Double.parseDouble(digits.toString()));
+  } // bigValue(CharSequence)
+
+  /**
+   * A number with a fraction or exponent.
+   */
+  public default void value(double num) {
+  } // value(double)
+
+  /**
+   * True or false.
+   */
+  public default void value(boolean bool) {
+  } // value(boolean)
+
+  /**
+   * Null.
+   */
+  public default void nullValue() {
+  } // nullValue()
+
+} // interface JSONVisitor
@@ -0,0 +1,515 @@
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+/**
+ * A serializer for JSON text. Values report their parts to a writer in
+ * order (the same calls a JSONVisitor gets from the parser), and the writer
+ * adds the commas and colons between them and escapes strings. Output goes
+ * into a buffer (characters or bytes, depending on the subclass) that is
+ * passed on to the destination only when it fills, so writing a document is
+ * one pass that makes no intermediate strings.
+ *
+ * Output is compact unless format() asks for indentation or for a newline
+ * after each top-level value.
+ *
+ * @author Samuel A. Rebelsky
+ * @author Candice Lu
+ * @author Siho Kim
+ */
+public abstract class JSONWriter {
+
+  // +-----------+---------------------------------------------------
+  // | Constants |
+  // +-----------+
+
+  /**
+   * The size of our buffer.
+   */
+  static final int BUFFER_SIZE = 4096;
+
+  /**
+   * The digits of hexadecimal escapes.
+   */
+  static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  /**
+   * The two digits of each number from 0 to 99, so integers can be written
+   * a pair of digits at a time.
+   */
+  static final char[] DIGIT_PAIRS = new char[200];
+
+  static {
+    for (int i = 0; i < 100; i++) {
+      DIGIT_PAIRS[2 * i] = (char) ('0' + i / 10);
+      DIGIT_PAIRS[2 * i + 1] = (char) ('0' + i % 10);
+    }
+  }
+
+  /**
+   * The largest decimal exponent we write a number without: like
+   * JavaScript, we write 1e21 and up with one.
+   */
+  static final int PLAIN_MAX = 21;
+
+  /**
+   * The smallest decimal exponent we write a number without: like
+   * JavaScript, we write 1e-7 and below with one.
+   */
+  static final int PLAIN_MIN = -6;
+
+  /**
+   * How to escape each ASCII character: 0 for characters that need no
+   * escape, 'u' for those that need a hexadecimal escape, and otherwise the
+   * character to put after the backslash.
+   */
+  static final byte[] ESCAPES = new byte[128];
+
+  static {
+    for (int ch = 0; ch < ' '; ch++) {
+      ESCAPES[ch] = 'u';
+    }
+    ESCAPES['\b'] = 'b';
+    ESCAPES['\f'] = 'f';
+    ESCAPES['\n'] = 'n';
+    ESCAPES['\r'] = 'r';
+    ESCAPES['\t'] = 't';
+    ESCAPES['"'] = '"';
+    ESCAPES['\\'] = '\\';
+  }
+
+  // +--------+------------------------------------------------------
+  // | Fields |
+  // +--------+
+
+  /**
+   * Whether the next key or value needs a comma before it.
+   */
+  boolean comma;
+
+  /**
+   * Whether we just wrote a key, so the next value goes right after it.
+   */
+  boolean afterKey;
+
+  /**
+   * How many objects and arrays we are inside.
+   */
+  int depth;
+
+  /**
+   * While we are encoding a memoized container, the cache of the container
+   * we are writing the contents of. Null otherwise.
+   */
+  JSONCache watcher;
+
+  /**
+   * Whether we found something that keeps the container we are encoding
+   * from saving its encoding.
+   */
+  boolean unsaveable;
+
+  /**
+   * The text to indent each level by, or null to write everything on one
+   * line.
+   */
+  String indent;
+
+  /**
+   * Whether to end each top-level value with a newline.
+   */
+  boolean lines;
+
+  /**
+   * Room to build the digits of an integer (twenty characters, with the
+   * sign) before they go into the output.
+   */
+  char[] digits = new char[20];
+
+  /**
+   * Where we find the shortest digits of doubles, made when first needed.
+   */
+  JSONDecimal decimal;
+
+  // +---------------+-----------------------------------------------
+  // | Configuration |
+  // +---------------+
+
+  /**
+   * Lay out what we write as format says.
+   */
+  public JSONWriter format(JSONFormat format) {
+    this.indent = format.indent;
+    this.lines = format.lines;
+    return this;
+  } // format(JSONFormat)
+
+  // +------------+--------------------------------------------------
+  // | Containers |
+  // +------------+
+
+  /**
+   * Start an object.
+   */
+  public void startObject() throws IOException {
+    this.separate();
+    this.put('{');
+    this.comma = false;
+    this.depth++;
+  } // startObject()
+
+  /**
+   * Write a key in the current object. Its value comes next.
+   */
+  public void key(CharSequence key) throws IOException {
+    this.separate();
+    this.quote(key);
+    this.put(':');
+    if (this.indent != null) {
+      this.put(' ');
+    }
+    this.afterKey = true;
+  } // key(CharSequence)
+
+  /**
+   * End the current object.
+   */
+  public void endObject() throws IOException {
+    this.depth--;
+    if ((this.indent != null) && this.comma) {
+      this.newline();
+    }
+    this.put('}');
+    this.written();
+  } // endObject()
+
+  /**
+   * Start an array.
+   */
+  public void startArray() throws IOException {
+    this.separate();
+    this.put('[');
+    this.comma = false;
+    this.depth++;
+  } // startArray()
+
+  /**
+   * End the current array.
+   */
+  public void endArray() throws IOException {
+    this.depth--;
+    if ((this.indent != null) && this.comma) {
+      this.newline();
+    }
+    this.put(']');
+    this.written();
+  } // endArray()
+
+  // +--------+------------------------------------------------------
+  // | Values |
+  // +--------+
+
+  /**
+   * Write a string.
+   */
+  public void value(CharSequence str) throws IOException {
+    this.separate();
+    this.quote(str);
+    this.written();
+  } // value(CharSequence)
+
+  /**
+   * Write an integer.
+   */
+  public void value(long num) throws IOException {
+    this.separate();
+    this.putLong(num);
+    this.written();
+  } // value(long)
+
+  /**
+   * Write an integer of any size.
+   */
+  public void value(BigInteger num) throws IOException {
+    this.separate();
+    this.put(num.toString());
+    this.written();
+  } // value(BigInteger)
+
+  /**
+   * Write a real, always with a decimal point so that it reads back as a
+   * real. Reals with at most fifteen digits are written by way of the
+   * nearest double, whose shortest digits are exactly theirs; others (or
+   * ones out of range for doubles) by way of their unscaled digits.
+   */
+  public void value(BigDecimal num) throws IOException {
+    this.separate();
+    double approx;
+    if (num.signum() == 0) {
+      this.put("0.0");
+    } else if ((num.precision() <= 15)
+        && (Math.abs(approx = num.doubleValue()) >= Double.MIN_NORMAL)
+        && (Math.abs(approx) <= Double.MAX_VALUE)) {
+      this.putDouble(approx);
+    } else {
+      char[] chars = num.unscaledValue().abs().toString().toCharArray();
+      int end = chars.length;
+      long exponent = -(long) num.scale();
+      while (chars[end - 1] == '0') {
+        end--;
+        exponent++;
+      } // while
+      this.putDecimal(num.signum() < 0, chars, 0, end, exponent);
+    }
+    this.written();
+  } // value(BigDecimal)
+
+  /**
+   * Write a finite double as the shortest decimal that reads back as it.
+   */
+  public void value(double num) throws IOException {
+    if (!Double.isFinite(num)) {
+      throw new IllegalArgumentException("JSON has no " + num);
+    }
+    this.separate();
+    this.putDouble(num);
+    this.written();
+  } // value(double)
+
+  /**
+   * Write true or false.
+   */
+  public void value(boolean bool) throws IOException {
+    this.separate();
+    this.put(bool ? "true" : "false");
+    this.written();
+  } // value(boolean)
+
+  /**
+   * Write null.
+   */
+  public void nullValue() throws IOException {
+    this.separate();
+    this.put("null");
+    this.written();
+  } // nullValue()
+
+  // +--------+------------------------------------------------------
+  // | Output |
+  // +--------+
+
+  /**
+   * Pass everything written so far on to the destination.
+   */
+  public abstract void flush() throws IOException;
+
+  /**
+   * Add one ASCII character to the output.
+   */
+  abstract void put(char ch) throws IOException;
+
+  /**
+   * Add str[from..to), which needs no escaping, to the output.
+   */
+  abstract void put(CharSequence str, int from, int to) throws IOException;
+
+  /**
+   * Add chars[from..to), which are ASCII and need no escaping, to the
+   * output.
+   */
+  abstract void put(char[] chars, int from, int to) throws IOException;
+
+  // +---------------+-----------------------------------------------
+  // | Local helpers |
+  // +---------------+
+
+  /**
+   * Determine if we can write a saved encoding with splice().
+   */
+  boolean canSplice() {
+    return false;
+  } // canSplice()
+
+  /**
+   * Write the saved encoding of a value.
+   */
+  void splice(byte[] encoded) throws IOException {
+    throw new UnsupportedOperationException("Cannot write bytes");
+  } // splice(byte[])
+
+  /**
+   * Add all of an ASCII string to the output.
+   */
+  void put(String str) throws IOException {
+    this.put(str, 0, str.length());
+  } // put(String)
+
+  /**
+   * Add the digits of an integer to the output, building them from the
+   * right, two at a time. We work with the negative of positive numbers,
+   * since every long has a negative.
+   */
+  void putLong(long num) throws IOException {
+    char[] chars = this.digits;
+    int pos = chars.length;
+    long rest = (num < 0) ? num : -num;
+    while (rest <= -100) {
+      long quotient = rest / 100;
+      int pair = 2 * (int) (quotient * 100 - rest);
+      rest = quotient;
+      chars[--pos] = DIGIT_PAIRS[pair + 1];
+      chars[--pos] = DIGIT_PAIRS[pair];
+    } // while
+    int pair = 2 * (int) -rest;
+    chars[--pos] = DIGIT_PAIRS[pair + 1];
+    if (rest <= -10) {
+      chars[--pos] = DIGIT_PAIRS[pair];
+    }
+    if (num < 0) {
+      chars[--pos] = '-';
+    }
+    this.put(chars, pos, chars.length);
+  } // putLong(long)
+
+  /**
+   * Add the shortest decimal that reads back as a finite double to the
+   * output.
+   */
+  void putDouble(double num) throws IOException {
+    boolean negative = Double.doubleToRawLongBits(num) < 0;
+    if (num == 0) {
+      this.put(negative ? "-0.0" : "0.0");
+      return;
+    }
+    if (this.decimal == null) {
+      this.decimal = new JSONDecimal();
+    }
+    this.decimal.set(num);
+    long rest = this.decimal.digits();
+    char[] chars = this.digits;
+    int pos = chars.length;
+    while (rest > 0) {
+      chars[--pos] = (char) ('0' + rest % 10);
+      rest /= 10;
+    } // while
+    this.putDecimal(negative, chars, pos, chars.length,
+        this.decimal.exponent());
+  } // putDouble(double)
+
+  /**
+   * Add the real chars[from..to) * 10^exponent to the output, where the
+   * digits have no leading or trailing zeros. Reals of ordinary size are
+   * written without an exponent; all have a decimal point.
+   */
+  void putDecimal(boolean negative, char[] chars, int from, int to,
+      long exponent) throws IOException {
+    // The number is 0.ddd * 10^point
+    long point = to - from + exponent;
+    if (negative) {
+      this.put('-');
+    }
+    if ((point > PLAIN_MAX) || (point <= PLAIN_MIN)) {
+      this.put(chars[from]);
+      this.put('.');
+      if (to - from > 1) {
+        this.put(chars, from + 1, to);
+      } else {
+        this.put('0');
+      }
+      this.put('e');
+      this.putLong(point - 1);
+    } else if (point <= 0) {
+      this.put("0.");
+      for (long i = point; i < 0; i++) {
+        this.put('0');
+      } // for
+      this.put(chars, from, to);
+    } else if (point < to - from) {
+      this.put(chars, from, from + (int) point);
+      this.put('.');
+      this.put(chars, from + (int) point, to);
+    } else {
+      this.put(chars, from, to);
+      for (long i = to - from; i < point; i++) {
+        this.put('0');
+      } // for
+      this.put(".0");
+    }
+  } // putDecimal(boolean, char[], int, int, long)
+
+  /**
+   * Get ready for a key, or a value that does not follow a key: write a
+   * comma if it needs one, and start a new line if we are indenting.
+   */
+  void separate() throws IOException {
+    if (this.afterKey) {
+      this.afterKey = false;
+      return;
+    }
+    if (this.comma) {
+      this.put(',');
+    }
+    if ((this.indent != null) && (this.depth > 0)) {
+      this.newline();
+    }
+  } // separate()
+
+  /**
+   * Note that we finished a value. After a top-level value, that may mean
+   * a newline rather than a comma.
+   */
+  void written() throws IOException {
+    if (this.lines && (this.depth == 0)) {
+      this.put('\n');
+      this.comma = false;
+    } else {
+      this.comma = true;
+    }
+  } // written()
+
+  /**
+   * Start a new line, indented to the current depth.
+   */
+  void newline() throws IOException {
+    this.put('\n');
+    for (int i = 0; i < this.depth; i++) {
+      this.put(this.indent);
+    }
+  } // newline()
+
+  /**
+   * Write str in quotes, escaping the characters that JSON requires us to.
+   * Runs of ordinary characters are copied all at once.
+   */
+  void quote(CharSequence str) throws IOException {
+    this.put('"');
+    int run = 0;
+    int length = str.length();
+    for (int i = 0; i < length; i++) {
+      char ch = str.charAt(i);
+      if ((ch < ESCAPES.length) && (ESCAPES[ch] != 0)) {
+        this.put(str, run, i);
+        this.escape(ch);
+        run = i + 1;
+      }
+    }
+    this.put(str, run, length);
+    this.put('"');
+  } // quote(CharSequence)
+
+  /**
+   * Write the escape for a quote, backslash, or control character.
+   */
+  void escape(char ch) throws IOException {
+    char code = (char) ESCAPES[ch];
+    this.put('\\');
+    this.put(code);
+    if ('u' == code) {
+      this.put('0');
+      this.put('0');
+      this.put(HEX_DIGITS[ch >> 4]);
+      this.put(HEX_DIGITS[ch & 0xF]);
+    }
+  } // escape(char)
+
+} // class JSONWriter
@@ -1,5 +1,7 @@
 //package src;
+import java.io.PrintWriter;
 import java.io.StringReader;
+import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.util.ArrayList;
@@ -10,6 +12,8 @@ import java.util.NoSuchElementException;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -315,5 +319,1054 @@ public class ZakGarikaiJSONTests {
         () -> JSON.parse(new StringReader(badTable.toString())),
         "prevIndex after add");
   } // exceptionHashTest()
+
+  /*
+   * Check if separate threads can parse at the same time without disturbing
+   * each other
+   */
+  @Test
+  void concurrentParseTest() throws Exception {
+    JSONHash expected = new JSONHash();
+    StringBuilder parsingString = new StringBuilder();
+    parsingString.append("{");
+    for (int i = 0; i < words.length; i++) {
+      expected.set(new JSONString(words[i]), new JSONInteger(i));
+      parsingString.append('"'+words[i]+'"').append(":"+i+",");
+    } // for
+    parsingString.setLength(parsingString.length()-1);
+    parsingString.append('}');
+    String source = parsingString.toString();
+    Thread[] threads = new Thread[4];
+    boolean[] ok = new boolean[threads.length];
+    for (int t = 0; t < threads.length; t++) {
+      final int id = t;
+      threads[t] = new Thread(() -> {
+        try {
+          boolean same = true;
+          for (int i = 0; i < 200; i++) {
+            same &= expected.equals(JSON.parse(new StringReader(source)));
+          } // for
+          ok[id] = same;
+        } catch (Exception e) {
+          ok[id] = false;
+        } // try-catch
+      });
+      threads[t].start();
+    } // for
+    for (int t = 0; t < threads.length; t++) {
+      threads[t].join();
+      assertTrue(ok[t]);
+    } // for
+  } // concurrentParseTest()
+
+  /*
+   * Check if the parser works with readers that cannot mark, and that hand
+   * over only a few characters at a time
+   */
+  @Test
+  void unmarkableReaderTest() throws Exception {
+    String source = "{\"list\": [1, -2, 3.5, true, null], \"empty\": {}, \"word\": \"" + words[0] + "\"}";
+    java.io.Reader reader = new java.io.Reader() {
+      int next = 0;
+      public int read(char[] buf, int off, int len) {
+        if (next >= source.length()) {
+          return -1;
+        } // if
+        buf[off] = source.charAt(next++);
+        return 1;
+      } // read(char[], int, int)
+      public void close() {
+      } // close()
+    };
+    assertFalse(reader.markSupported());
+    JSONHash hash = (JSONHash) JSON.parse(reader);
+    assertEquals(new JSONString(words[0]), hash.get(new JSONString("word")));
+    assertEquals(5, ((JSONArray) hash.get(new JSONString("list"))).size());
+    assertEquals(new JSONInteger(-2), ((JSONArray) hash.get(new JSONString("list"))).get(1));
+  } // unmarkableReaderTest()
+
+  /*
+   * Check if the parser reads every kind of escape in strings, including
+   * unicode escapes and surrogate pairs
+   */
+  @Test
+  void stringEscapeTest() throws Exception {
+    assertEquals("/", JSON.parse("\"\\u002F\"").toString());
+    assertEquals("a\"b\\c/d\be\ff\ng\rh\ti",
+        JSON.parse("\"a\\\"b\\\\c\\/d\\be\\ff\\ng\\rh\\ti\"").toString());
+    assertEquals("\uD83D\uDE00!", JSON.parse("\"\\uD83D\\ude00!\"").toString());
+    assertEquals(" padded ", JSON.parse("\" padded \"").toString());
+    // long strings are read whole, with or without escapes
+    String longWord = words[0].repeat(10000);
+    assertEquals(longWord, JSON.parse(new StringReader('"' + longWord + '"')).toString());
+    assertEquals(longWord + "\n", JSON.parse(new StringReader('"' + longWord + "\\n\"")).toString());
+    assertThrows(Exception.class, () -> JSON.parse("\"\\x\""));
+    assertThrows(Exception.class, () -> JSON.parse("\"\\u12\""));
+    assertThrows(Exception.class, () -> JSON.parse("\"unterminated"));
+  } // stringEscapeTest()
+
+  /*
+   * Check if parsed integers stay in a long when they fit and become
+   * BigIntegers only when they do not
+   */
+  @Test
+  void integerRangeTest() throws Exception {
+    JSONInteger max = (JSONInteger) JSON.parse(Long.toString(Long.MAX_VALUE));
+    assertTrue(max.fitsInLong());
+    assertEquals(Long.MAX_VALUE, max.longValue());
+    JSONInteger min = (JSONInteger) JSON.parse(Long.toString(Long.MIN_VALUE));
+    assertEquals(Long.MIN_VALUE, min.longValue());
+    assertThrows(ArithmeticException.class, () -> min.intValue());
+    JSONInteger big = (JSONInteger) JSON.parse("-9223372036854775809");
+    assertFalse(big.fitsInLong());
+    assertEquals(new BigInteger("-9223372036854775809"), big.getValue());
+    assertThrows(ArithmeticException.class, () -> big.longValue());
+    assertEquals(-42, ((JSONInteger) JSON.parse("-42")).intValue());
+    assertEquals(new JSONInteger(new BigInteger("17")), new JSONInteger(17));
+    assertEquals(new BigDecimal("2.5e2"), ((JSONReal) JSON.parse("2.5e2")).getValue());
+  } // integerRangeTest()
+
+  /*
+   * Check if the parser reads UTF-8 bytes directly, from arrays and from
+   * buffers without arrays
+   */
+  @Test
+  void parseBytesTest() throws Exception {
+    String source = "{\"caf\u00e9\": [\"plain\", \"\u00e9\\t\uD83D\uDE00\", 1.5, -3]}";
+    byte[] utf8 = ("//" + source).getBytes(java.nio.charset.StandardCharsets.UTF_8);
+    JSONValue expected = JSON.parse(source);
+    JSONHash fromArray = (JSONHash) JSON.parse(utf8, 2, utf8.length - 2);
+    assertEquals(expected, fromArray);
+    JSONArray arr = (JSONArray) fromArray.get(new JSONString("caf\u00e9"));
+    assertEquals(new JSONString("\u00e9\t\uD83D\uDE00"), arr.get(1));
+    java.nio.ByteBuffer direct = java.nio.ByteBuffer.allocateDirect(utf8.length);
+    direct.put(utf8).position(2);
+    assertEquals(expected, JSON.parse(direct));
+    assertEquals(2, direct.position());
+    // malformed UTF-8 is an error however the string is read
+    byte[][] bad = { { (byte) 0x80 }, { (byte) 0xc0, (byte) 0x80 }, { (byte) 0xed, (byte) 0xa0, (byte) 0x80 },
+        { (byte) 0xe9, 'a' }, { (byte) 0xf8, 'a', 'b', 'c', 'd' } };
+    for (byte[] seq : bad) {
+      for (String escape : new String[] { "", "\\n" }) {
+        String text = new String(seq, java.nio.charset.StandardCharsets.ISO_8859_1);
+        byte[] value = ("[\"" + text + "abc" + escape + "\"]").getBytes(java.nio.charset.StandardCharsets.ISO_8859_1);
+        byte[] key = ("{\"" + text + "abc" + escape + "\": 1}").getBytes(java.nio.charset.StandardCharsets.ISO_8859_1);
+        assertThrows(java.text.ParseException.class, () -> JSON.parse(value, 0, value.length));
+        assertThrows(java.text.ParseException.class, () -> JSON.parse(key, 0, key.length));
+        assertThrows(java.text.ParseException.class,
+            () -> JSON.visit(java.nio.ByteBuffer.wrap(value), new JSONVisitor() { }));
+        assertThrows(java.text.ParseException.class,
+            () -> JSON.visit(java.nio.ByteBuffer.wrap(key), new JSONVisitor() { }));
+      } // for
+    } // for
+  } // parseBytesTest()
+
+  /*
+   * Check if the parser reads mapped files, including files mapped in many
+   * small chunks
+   */
+  @Test
+  void parseFileTest() throws Exception {
+    StringBuilder parsingString = new StringBuilder();
+    parsingString.append("[");
+    for (int i = 0; i < words.length; i++) {
+      parsingString.append("{\"" + words[i] + "\": " + i + ", \"w\": \"" + words[i] + "\"},\n");
+    } // for
+    // multi-byte characters that straddle the small chunks below
+    parsingString.append("{\"\u00e9t\u00e9\": \"\uD83D\uDE00 na\u00efve \u4e2d\u6587\"},\n");
+    parsingString.append("null]");
+    java.nio.file.Path path = java.nio.file.Files.createTempFile("parseFileTest", ".json");
+    try {
+      java.nio.file.Files.writeString(path, parsingString);
+      JSONArray expected = (JSONArray) JSON.parse(parsingString.toString());
+      assertEquals(expected, JSON.parseFile(path));
+      JSONParser parser = new JSONParser();
+      try (java.nio.channels.FileChannel channel = java.nio.channels.FileChannel.open(path)) {
+        parser.start(channel);
+        parser.bytes.mapSize = 5;
+        assertEquals(expected, parser.parseDocument());
+        parser.finish();
+      } // try
+    } finally {
+      java.nio.file.Files.delete(path);
+    } // try-finally
+  } // parseFileTest()
+
+  /*
+   * Check if the pull parser reports the right tokens, skips children, and
+   * builds values on request
+   */
+  @Test
+  void readerTokenTest() throws Exception {
+    String source = "{\"skip\": {\"a\": [1, {\"b\": \"]\"}]}, \"list\": [7, 2.5, \"" + words[1] + "\", false, null], \"keep\": {\"c\": 3}}";
+    JSONReader reader = new JSONReader(source);
+    assertEquals(JSONToken.START_OBJECT, reader.nextToken());
+    assertEquals(JSONToken.FIELD_NAME, reader.nextToken());
+    assertEquals("skip", reader.getCharacters().toString());
+    assertEquals(JSONToken.START_OBJECT, reader.nextToken());
+    reader.skipChildren();
+    assertEquals(JSONToken.END_OBJECT, reader.currentToken());
+    assertEquals(JSONToken.FIELD_NAME, reader.nextToken());
+    assertEquals(JSONToken.START_ARRAY, reader.nextToken());
+    assertEquals(JSONToken.VALUE_NUMBER, reader.nextToken());
+    assertTrue(reader.isIntegral());
+    assertEquals(7, reader.getLong());
+    assertEquals(JSONToken.VALUE_NUMBER, reader.nextToken());
+    assertFalse(reader.isIntegral());
+    assertEquals(2.5, reader.getDouble());
+    assertEquals(JSONToken.VALUE_STRING, reader.nextToken());
+    assertEquals(words[1], reader.getText());
+    assertEquals(JSONToken.VALUE_FALSE, reader.nextToken());
+    assertFalse(reader.getBoolean());
+    assertEquals(JSONToken.VALUE_NULL, reader.nextToken());
+    assertEquals(JSONToken.END_ARRAY, reader.nextToken());
+    assertEquals(JSONToken.FIELD_NAME, reader.nextToken());
+    assertEquals(JSONToken.START_OBJECT, reader.nextToken());
+    assertEquals(JSON.parse("{\"c\": 3}"), reader.readValue());
+    assertEquals(JSONToken.END_OBJECT, reader.nextToken());
+    assertNull(reader.nextToken());
+    // errors are still reported
+    JSONReader bad = new JSONReader(new StringReader("[1 2]"));
+    assertThrows(Exception.class, () -> {
+      while (bad.nextToken() != null) {
+      } // while
+    });
+  } // readerTokenTest()
+
+  /*
+   * Check if the visitor sees every part of a document, in order, from both
+   * characters and bytes
+   */
+  @Test
+  void visitorTest() throws Exception {
+    String source = "{\"a\": [1, -2.5, 1e400, \"x\\ny\", -123456789012345678901234567890], \"b\": {},"
+        + " \"c\": true, \"d\": null}";
+    StringBuilder events = new StringBuilder();
+    JSONVisitor visitor = new JSONVisitor() {
+      public void startObject() { events.append('{'); }
+      public void endObject() { events.append('}'); }
+      public void startArray() { events.append('['); }
+      public void endArray() { events.append(']'); }
+      public void key(CharSequence key) { events.append(key).append(':'); }
+      public void value(CharSequence str) { events.append('"').append(str).append("\" "); }
+      public void value(long num) { events.append(num).append("L "); }
+      public void value(double num) { events.append(num).append("D "); }
+      public void bigValue(CharSequence digits) { events.append(digits).append("B "); }
+      public void value(boolean bool) { events.append(bool).append(' '); }
+      public void nullValue() { events.append("null "); }
+    };
+    String expected = "{a:[1L -2.5D InfinityD \"x\ny\" -123456789012345678901234567890B ]b:{}c:true d:null }";
+    JSON.visit(source, visitor);
+    assertEquals(expected, events.toString());
+    events.setLength(0);
+    JSON.visit(java.nio.ByteBuffer.wrap(source.getBytes("UTF-8")), visitor);
+    assertEquals(expected, events.toString());
+    assertThrows(java.text.ParseException.class, () -> JSON.visit("[1, 2", visitor));
+  } // visitorTest()
+
+  /*
+   * Check if JSON Lines input gives its records in order, in any mode and
+   * across mapped chunks
+   */
+  @Test
+  void jsonLinesTest() throws Exception {
+    StringBuilder source = new StringBuilder();
+    ArrayList<JSONValue> expected = new ArrayList<JSONValue>();
+    for (int i = 0; i < 200; i++) {
+      String line = "{\"id\": " + i + ", \"tags\": [\"" + words[i % words.length] + "\"]}";
+      source.append(line).append((i % 7 == 0) ? "\r\n\n" : "\n");
+      expected.add(JSON.parse(line));
+    } // for
+    byte[] bytes = source.toString().getBytes("UTF-8");
+    assertEquals(expected, JSONLines.stream(bytes, 0, bytes.length, true).collect(java.util.stream.Collectors.toList()));
+    assertEquals(199 * 100, JSONLines.stream(bytes, 0, bytes.length, false)
+        .mapToLong((v) -> ((JSONInteger) ((JSONHash) v).get(new JSONString("id"))).longValue()).sum());
+    java.nio.file.Path path = java.nio.file.Files.createTempFile("jsonLinesTest", ".jsonl");
+    try {
+      java.nio.file.Files.write(path, bytes);
+      assertEquals(expected, JSONLines.stream(path, true, 100).collect(java.util.stream.Collectors.toList()));
+      assertThrows(java.io.IOException.class, () -> JSONLines.stream(path, true, 10));
+    } finally {
+      java.nio.file.Files.delete(path);
+    } // try-finally
+    byte[] bad = "[1]\n[2,]\n".getBytes("UTF-8");
+    assertThrows(IllegalArgumentException.class, () -> JSONLines.stream(bad, 0, bad.length, true).toArray());
+  } // jsonLinesTest()
+
+  /*
+   * Check if lazy parsing only parses what we use, and gives the same values
+   * as eager parsing
+   */
+  @Test
+  void lazyParseTest() throws Exception {
+    String source = "{\"id\": 4, \"meta\": {\"name\": \"" + words[3] + "\", \"tags\": [1, [2], {}]}, \"bad\": [1 2]}";
+    JSONHash hash = (JSONHash) JSON.parseLazy(source);
+    assertEquals(new JSONInteger(4), hash.get(new JSONString("id")));
+    JSONLazyHash meta = (JSONLazyHash) hash.get(new JSONString("meta"));
+    assertFalse(meta.isLoaded());
+    assertEquals(words[3], meta.get(new JSONString("name")).getValue());
+    assertTrue(meta.isLoaded());
+    JSONLazyArray tags = (JSONLazyArray) meta.get(new JSONString("tags"));
+    assertEquals(3, tags.size());
+    assertEquals(JSON.parse("[2]"), tags.get(1));
+    // errors inside show up when we look
+    JSONValue bad = hash.get(new JSONString("bad"));
+    assertThrows(IllegalArgumentException.class, () -> bad.toString());
+    // the same from bytes
+    byte[] bytes = ("[0, " + source + "]").getBytes("UTF-8");
+    JSONArray arr = (JSONArray) JSON.parseLazy(bytes, 0, bytes.length);
+    JSONHash inner = (JSONHash) ((JSONHash) arr.get(1)).get(new JSONString("meta"));
+    assertEquals(new JSONString(words[3]), inner.get(new JSONString("name")));
+    assertThrows(java.text.ParseException.class, () -> JSON.parseLazy("[{\"a\": 1}"));
+    assertThrows(IllegalArgumentException.class, () -> bad.toString());
+    // threads that use a lazy value at once all see it whole
+    StringBuilder big = new StringBuilder("{\"all\": {");
+    for (int i = 0; i < 2000; i++) {
+      big.append(i == 0 ? "" : ", ").append("\"k").append(i).append("\": ").append(i);
+    } // for
+    String text = big.append("}}").toString();
+    for (int round = 0; round < 20; round++) {
+      JSONHash all = (JSONHash) ((JSONHash) JSON.parseLazy(text)).get(new JSONString("all"));
+      java.util.concurrent.CyclicBarrier barrier = new java.util.concurrent.CyclicBarrier(4);
+      Thread[] threads = new Thread[4];
+      boolean[] ok = new boolean[threads.length];
+      for (int t = 0; t < threads.length; t++) {
+        final int id = t;
+        threads[t] = new Thread(() -> {
+          try {
+            barrier.await();
+            ok[id] = all.get(new JSONString("k1999")).equals(new JSONInteger(1999)) && (all.size() == 2000);
+          } catch (Exception e) {
+            ok[id] = false;
+          } // try-catch
+        });
+        threads[t].start();
+      } // for
+      for (int t = 0; t < threads.length; t++) {
+        threads[t].join();
+        assertTrue(ok[t]);
+      } // for
+    } // for
+  } // lazyParseTest()
+
+  /*
+   * Check if JSONHash keeps its pairs in the order keys were first set, even
+   * as it grows
+   */
+  @Test
+  void hashOrderTest() throws Exception {
+    JSONHash hash = new JSONHash();
+    for (int i = 0; i < 1000; i++) {
+      hash.set(new JSONString(words[i % words.length] + i), new JSONInteger(i));
+    } // for
+    hash.set(new JSONString(words[0] + 0), new JSONInteger(-1));
+    assertEquals(1000, hash.size());
+    java.util.Iterator<KVPair<JSONString, JSONValue>> itr = hash.iterator();
+    for (int i = 0; i < 1000; i++) {
+      KVPair<JSONString, JSONValue> pair = itr.next();
+      assertEquals(words[i % words.length] + i, pair.key().getValue());
+      assertEquals(new JSONInteger((i == 0) ? -1 : i), pair.value());
+      assertEquals(pair.value(), hash.get(new JSONString(words[i % words.length] + i)));
+    } // for
+    assertFalse(itr.hasNext());
+    assertThrows(IndexOutOfBoundsException.class, () -> hash.get(new JSONString("missing")));
+    JSONHash parsed = (JSONHash) JSON.parse("{\"z\": 1, \"a\": 2, \"m\": 3}");
+    StringBuilder order = new StringBuilder();
+    parsed.iterator().forEachRemaining((pair) -> order.append(pair.key()));
+    assertEquals("zam", order.toString());
+  } // hashOrderTest()
+
+  /*
+   * Check if repeated keys share one JSONString, and that the cache never
+   * mixes up keys
+   */
+  @Test
+  void keyCacheTest() throws Exception {
+    String longKey = "a key that is much too long to be worth caching";
+    JSONArray records = (JSONArray) JSON.parse("[{\"id\": 1, \"" + longKey + "\": 2}, {\"id\": 3, \"" + longKey + "\": 4}]");
+    KVPair<JSONString, JSONValue> first = ((JSONHash) records.get(0)).iterator().next();
+    KVPair<JSONString, JSONValue> second = ((JSONHash) records.get(1)).iterator().next();
+    assertTrue(first.key() == second.key());
+    assertEquals(new JSONInteger(4), ((JSONHash) records.get(1)).get(new JSONString(longKey)));
+    // every word is a key, and each must come back as itself
+    StringBuilder source = new StringBuilder("{");
+    for (int i = 0; i < words.length; i++) {
+      source.append((i == 0) ? "" : ", ").append("\"").append(words[i]).append("\": ").append(i);
+    } // for
+    JSONHash hash = (JSONHash) JSON.parse(source.append("}").toString());
+    for (int i = 0; i < words.length; i++) {
+      assertEquals(new JSONInteger(i), hash.get(new JSONString(words[i])));
+    } // for
+  } // keyCacheTest()
+
+  /*
+   * Check if values are only equal to values of the same type and structure,
+   * with hash codes that agree
+   */
+  @Test
+  void structuralEqualsTest() throws Exception {
+    assertNotEquals(new JSONString("1"), new JSONInteger(1));
+    assertNotEquals(new JSONInteger(1), new JSONReal("1"));
+    assertNotEquals(new JSONString("null"), JSONConstant.NULL);
+    assertEquals(new JSONReal("1.5"), new JSONReal("1.50"));
+    assertEquals(new JSONReal("1.5").hashCode(), new JSONReal("1.50").hashCode());
+    assertEquals(new JSONInteger(new BigInteger("99999999999999999999")), JSON.parse("99999999999999999999"));
+    JSONValue a = JSON.parse("{\"x\": [1, \"two\", {\"y\": null}], \"z\": true}");
+    JSONValue b = JSON.parse("{\"z\": true, \"x\": [1, \"two\", {\"y\": null}]}");
+    assertEquals(a, b);
+    assertEquals(a.hashCode(), b.hashCode());
+    assertEquals(a, JSON.parseLazy("{\"z\": true, \"x\": [1, \"two\", {\"y\": null}]}"));
+    assertNotEquals(a, JSON.parse("{\"z\": true, \"x\": [\"two\", 1, {\"y\": null}]}"));
+    assertNotEquals(a, JSON.parse("{\"z\": true, \"w\": [1, \"two\", {\"y\": null}]}"));
+    java.util.HashSet<JSONValue> seen = new java.util.HashSet<JSONValue>();
+    seen.add(a);
+    assertTrue(seen.contains(b));
+  } // structuralEqualsTest()
+
+  /*
+   * Check if small hashes work without a table, and keep working once they
+   * grow one
+   */
+  @Test
+  void smallHashTest() throws Exception {
+    JSONHash hash = new JSONHash();
+    assertEquals(0, hash.size());
+    assertEquals(JSONHash.NO_KEYS, hash.keys);
+    for (int i = 0; i <= JSONHash.SMALL_SIZE; i++) {
+      assertNull(hash.table);
+      hash.set(new JSONString(words[i]), new JSONInteger(i));
+      for (int j = 0; j <= i; j++) {
+        assertEquals(new JSONInteger(j), hash.get(new JSONString(words[j])));
+      } // for
+      assertThrows(IndexOutOfBoundsException.class, () -> hash.get(new JSONString(words[20])));
+    } // for
+    assertNull(((JSONHash) JSON.parse("{\"a\": 1, \"b\": 2}")).table);
+    assertTrue(hash.table != null);
+    hash.clear();
+    assertNull(hash.table);
+  } // smallHashTest()
+
+  /*
+   * Check if frozen hashes and arrays make new versions without changing
+   * old ones, even with many entries and colliding keys
+   */
+  @Test
+  void frozenTest() throws Exception {
+    JSONFrozenHash hash = JSONFrozenHash.EMPTY;
+    JSONFrozenArray arr = JSONFrozenArray.EMPTY;
+    for (int i = 0; i < 2000; i++) {
+      hash = hash.with(new JSONString("k" + i), new JSONInteger(i));
+      arr = arr.plus(new JSONInteger(i));
+    } // for
+    JSONFrozenHash before = hash;
+    JSONFrozenArray shorter = arr;
+    hash = hash.with(new JSONString("k7"), new JSONInteger(-7)).without(new JSONString("k8"));
+    arr = arr.with(7, new JSONInteger(-7)).plus(JSONConstant.NULL);
+    assertEquals(new JSONInteger(7), before.get(new JSONString("k7")));
+    assertEquals(new JSONInteger(-7), hash.get(new JSONString("k7")));
+    assertTrue(before.containsKey(new JSONString("k8")));
+    assertFalse(hash.containsKey(new JSONString("k8")));
+    assertEquals(2000, before.size());
+    assertEquals(1999, hash.size());
+    assertEquals(new JSONInteger(7), shorter.get(7));
+    assertEquals(new JSONInteger(-7), arr.get(7));
+    assertEquals(2001, arr.size());
+    assertEquals(new JSONInteger(1999), arr.get(1999));
+    int count = 0;
+    for (java.util.Iterator<KVPair<JSONString, JSONValue>> itr = before.iterator(); itr.hasNext(); itr.next()) {
+      count++;
+    } // for
+    assertEquals(2000, count);
+    // "Aa" and "BB" have the same hash
+    JSONFrozenHash same = JSONFrozenHash.EMPTY.with(new JSONString("Aa"), new JSONInteger(1)).with(new JSONString("BB"), new JSONInteger(2));
+    assertEquals(new JSONInteger(1), same.get(new JSONString("Aa")));
+    assertEquals(new JSONInteger(2), same.get(new JSONString("BB")));
+    assertEquals(1, same.without(new JSONString("Aa")).size());
+    assertEquals(new JSONInteger(2), same.without(new JSONString("Aa")).get(new JSONString("BB")));
+    // freezing keeps the structure
+    JSONValue frozen = JSON.freeze(JSON.parse("{\"a\": [1, {\"b\": 2}], \"c\": \"d\"}"));
+    JSONFrozenArray inner = (JSONFrozenArray) ((JSONFrozenHash) frozen).get(new JSONString("a"));
+    assertEquals(JSONFrozenHash.EMPTY.with(new JSONString("b"), new JSONInteger(2)), inner.get(1));
+    assertEquals(frozen, JSON.freeze(JSON.parse("{\"c\": \"d\", \"a\": [1, {\"b\": 2}]}")));
+    // hash codes agree with the unfrozen ones, zero included, however often asked
+    JSONHash source = (JSONHash) JSON.parse("{\"c\": \"d\", \"a\": [1, {\"b\": 2}]}");
+    for (int i = 0; i < 2; i++) {
+      assertEquals(source.hashCode(), frozen.hashCode());
+      assertEquals(0, JSONFrozenHash.EMPTY.hashCode());
+      assertEquals(new JSONArray().hashCode(), JSON.freeze(new JSONArray()).hashCode());
+    } // for
+    // and so do frozen values themselves, in both directions and nested
+    JSONValue[] thawed = { source, JSON.parseColumnar("{\"c\": \"d\", \"a\": [1, {\"b\": 2}]}"),
+        JSON.parseLazy("{\"a\": [1, {\"b\": 2}], \"c\": \"d\"}") };
+    for (JSONValue value : thawed) {
+      assertEquals(value, frozen);
+      assertEquals(frozen, value);
+    } // for
+    JSONConcurrentHash live = new JSONConcurrentHash();
+    live.set(new JSONString("a"), source.get(new JSONString("a")));
+    live.set(new JSONString("c"), new JSONString("d"));
+    assertEquals(live, frozen);
+    assertEquals(frozen, live);
+    JSONValue numbers = JSON.parse("[1, 2, 3]");
+    assertEquals(numbers, JSON.freeze(numbers));
+    assertEquals(JSON.freeze(numbers), numbers);
+    assertNotEquals(JSON.parse("[1, 2]"), JSON.freeze(numbers));
+    assertNotEquals(JSON.freeze(numbers), JSON.parse("[1, 3, 2]"));
+    assertNotEquals(JSON.parse("{\"c\": \"d\"}"), frozen);
+    assertNotEquals(frozen, JSON.parse("{\"c\": \"d\", \"a\": [1, {\"b\": 3}]}"));
+    // pairs stay in the order their keys were first added
+    String text = "{\"z\":1,\"a\":[1,2],\"m\":3}";
+    JSONFrozenHash ordered = (JSONFrozenHash) JSON.freeze(JSON.parse(text));
+    assertEquals(text, ordered.toString());
+    ordered = ordered.with(new JSONString("a"), JSONConstant.NULL).without(new JSONString("z")).with(new JSONString("z"), JSONConstant.TRUE);
+    assertEquals("{\"a\":null,\"m\":3,\"z\":true}", ordered.toString());
+    StringBuilder keys = new StringBuilder();
+    ordered.forEach((key, value) -> keys.append(key));
+    assertEquals("amz", keys.toString());
+    // and removing most of them leaves the rest in order
+    JSONFrozenHash fewer = before;
+    for (int i = 0; i < 1990; i++) {
+      fewer = fewer.without(new JSONString("k" + (i < 995 ? i : i + 5)));
+    } // for
+    assertEquals(10, fewer.size());
+    assertTrue(fewer.order.size() <= 20);
+    assertEquals("{\"k995\":995,\"k996\":996,\"k997\":997,\"k998\":998,\"k999\":999,"
+        + "\"k1995\":1995,\"k1996\":1996,\"k1997\":1997,\"k1998\":1998,\"k1999\":1999}", fewer.toString());
+  } // frozenTest()
+
+  /*
+   * Check if many threads can add to one hash at once without losing
+   * anything
+   */
+  @Test
+  void concurrentHashTest() throws Exception {
+    JSONConcurrentHash hash = new JSONConcurrentHash();
+    Thread[] threads = new Thread[8];
+    for (int t = 0; t < threads.length; t++) {
+      int id = t;
+      threads[t] = new Thread(() -> {
+        for (int i = 0; i < 1000; i++) {
+          hash.set(new JSONString("t" + id + "-" + i), new JSONInteger(i));
+          hash.merge(new JSONString(words[i % words.length]), new JSONInteger(1),
+              (a, b) -> new JSONInteger(((JSONInteger) a).longValue() + ((JSONInteger) b).longValue()));
+        } // for
+      });
+      threads[t].start();
+    } // for
+    for (Thread thread : threads) {
+      thread.join();
+    } // for
+    assertEquals(8 * 1000 + words.length, hash.size());
+    assertEquals(new JSONInteger(999), hash.get(new JSONString("t3-999")));
+    long total = 0;
+    for (int i = 0; i < words.length; i++) {
+      total += ((JSONInteger) hash.get(new JSONString(words[i]))).longValue();
+    } // for
+    assertEquals(8 * 1000, total);
+    // equal to an ordinary hash with the same pairs
+    JSONHash plain = new JSONHash();
+    java.util.Iterator<KVPair<JSONString, JSONValue>> itr = hash.iterator();
+    while (itr.hasNext()) {
+      KVPair<JSONString, JSONValue> pair = itr.next();
+      plain.set(pair.key(), pair.value());
+    } // while
+    assertEquals(plain, hash);
+    assertEquals(hash, plain);
+    assertEquals(plain.hashCode(), hash.hashCode());
+    // never memoized, alone or inside something that is
+    hash.memoize();
+    hash.writeJSON(new java.io.ByteArrayOutputStream());
+    assertNull(hash.cache.encoded);
+    JSONHash outer = new JSONHash();
+    outer.set(new JSONString("live"), hash);
+    outer.memoize();
+    outer.writeJSON(new java.io.ByteArrayOutputStream());
+    assertNull(outer.cache.encoded);
+    hash.clear();
+    assertEquals(0, hash.size());
+    assertEquals(new JSONHash(), hash);
+  } // concurrentHashTest()
+
+  /*
+   * Check if forEach and cursors visit everything in order, for every kind
+   * of hash and array
+   */
+  @Test
+  void internalIterationTest() throws Exception {
+    String source = "{\"a\": 1, \"b\": [10, 20, 30], \"c\": {\"d\": 4}}";
+    JSONHash[] hashes = { (JSONHash) JSON.parse(source), (JSONHash) ((JSONHash) JSON.parseLazy("{\"x\": " + source + "}")).get(new JSONString("x")) };
+    for (JSONHash hash : hashes) {
+      StringBuilder seen = new StringBuilder();
+      hash.forEach((key, value) -> seen.append(key));
+      JSONHash.Cursor cursor = hash.cursor();
+      while (cursor.next()) {
+        seen.append(cursor.key()).append(cursor.value() instanceof JSONInteger ? "#" : "");
+      } // while
+      assertEquals("abca#bc", seen.toString());
+      JSONArray arr = (JSONArray) hash.get(new JSONString("b"));
+      long[] sum = new long[1];
+      arr.forEach((value, i) -> sum[0] += i * ((JSONInteger) value).longValue());
+      assertEquals(80, sum[0]);
+      JSONArray.Cursor elements = arr.cursor();
+      for (int round = 0; round < 2; round++) {
+        elements.reset(arr);
+        int count = 0;
+        while (elements.next()) {
+          assertEquals(arr.get(elements.index()), elements.value());
+          count++;
+        } // while
+        assertEquals(3, count);
+      } // for
+    } // for
+    JSONConcurrentHash shared = new JSONConcurrentHash();
+    shared.set(new JSONString("only"), JSONConstant.TRUE);
+    JSONHash.Cursor cursor = shared.cursor();
+    assertTrue(cursor.next());
+    assertEquals(JSONConstant.TRUE, cursor.value());
+    assertFalse(cursor.next());
+    StringBuilder frozen = new StringBuilder();
+    ((JSONFrozenArray) JSON.freeze(JSON.parse("[1, 2, 3]"))).forEach((value) -> frozen.append(value));
+    assertEquals("123", frozen.toString());
+  } // internalIterationTest()
+
+  /*
+   * Check if homogeneous numeric arrays are kept unboxed, and become
+   * ordinary arrays when anything else turns up
+   */
+  @Test
+  void numericArrayTest() throws Exception {
+    JSONValue longs = JSON.parse("[3, -1, 4, 1, 5]");
+    assertTrue(longs instanceof JSONLongArray);
+    assertEquals(4, ((JSONLongArray) longs).getLong(2));
+    assertEquals(12, ((JSONLongArray) longs).longStream().sum());
+    JSONArray plain = new JSONArray();
+    for (long i : new long[] { 3, -1, 4, 1, 5 }) {
+      plain.add(new JSONInteger(i));
+    } // for
+    assertEquals(plain, longs);
+    assertEquals(longs, plain);
+    assertEquals(plain.hashCode(), longs.hashCode());
+    JSONValue doubles = JSON.parse("[0.5, 2.25, -1e2]");
+    assertTrue(doubles instanceof JSONDoubleArray);
+    assertEquals(2.25, ((JSONDoubleArray) doubles).getDouble(1));
+    assertEquals(-97.25, ((JSONDoubleArray) doubles).doubleStream().sum());
+    assertEquals(new JSONReal("-1e2"), ((JSONArray) doubles).get(2));
+    // elements have the shortest digits of their doubles, as parsed reals do
+    JSONArray tricky = (JSONArray) JSON.parse("[2.82879384806159E17]");
+    JSONArray generic = (JSONArray) JSON.parse("[\"x\", 2.82879384806159E17]");
+    assertEquals(new JSONReal("2.82879384806159E17"), tricky.get(0));
+    assertEquals(generic.get(1), tricky.get(0));
+    tricky.add(JSONConstant.NULL);
+    assertEquals(generic.get(1), tricky.get(0));
+    // reals whose doubles have other shortest digits are kept as they are
+    JSONReal longer = new JSONReal("2.82879384806159008E17");
+    JSONDoubleArray added = new JSONDoubleArray();
+    added.add(longer);
+    assertFalse(added.isSpecialized());
+    assertEquals(longer, added.get(0));
+    JSONDoubleArray replaced = new JSONDoubleArray(1.5);
+    replaced.set(0, longer);
+    assertFalse(replaced.isSpecialized());
+    assertEquals(longer, replaced.get(0));
+    // mixed numbers stay generic, so the types of the elements do not change
+    JSONValue mixed = JSON.parse("[1, 2.5]");
+    assertFalse(((JSONLongArray) mixed).isSpecialized());
+    assertEquals(new JSONInteger(1), ((JSONArray) mixed).get(0));
+    // anything else switches back to a list of values
+    JSONLongArray fallback = (JSONLongArray) JSON.parse("[1, 2, \"x\", 3]");
+    assertFalse(fallback.isSpecialized());
+    assertEquals(4, fallback.size());
+    assertEquals(new JSONString("x"), fallback.get(2));
+    assertEquals(3, fallback.getLong(3));
+    JSONLongArray grown = new JSONLongArray();
+    grown.addLong(7);
+    grown.add(JSONConstant.NULL);
+    assertEquals(JSON.parse("[7, null]"), grown);
+    assertThrows(ArithmeticException.class, () -> grown.getLong(1));
+    // removing through an iterator works as for any array
+    for (String text : new String[] { "[1, 2, 3, 2]", "[1.5, 2.5, 3.5, 2.5]" }) {
+      JSONArray numbers = (JSONArray) JSON.parse(text);
+      numbers.memoize();
+      numbers.writeJSON(new java.io.ByteArrayOutputStream());
+      java.util.Iterator<JSONValue> it = numbers.iterator();
+      assertThrows(IllegalStateException.class, () -> it.remove());
+      it.next();
+      it.next();
+      it.remove();
+      assertThrows(IllegalStateException.class, () -> it.remove());
+      it.next();
+      it.next();
+      it.remove();
+      assertFalse(it.hasNext());
+      JSONArray expected = (JSONArray) JSON.parse(text);
+      expected.getValue().remove(3);
+      expected.getValue().remove(1);
+      assertEquals(expected, numbers);
+      assertNull(numbers.cache.encoded);
+      java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+      numbers.writeJSON(out);
+      assertEquals(expected, JSON.parse(out.toString("UTF-8")));
+    } // for
+  } // numericArrayTest()
+
+  /*
+   * Check if arrays of objects with the same keys are kept as columns, and
+   * become ordinary arrays of hashes when the keys differ
+   */
+  @Test
+  void columnarTest() throws Exception {
+    String source = "[{\"id\": 1, \"price\": 2.5, \"name\": \"a\"},"
+        + " {\"id\": 2, \"price\": 0.25, \"name\": \"b\"},"
+        + " {\"id\": 3, \"price\": 10.0, \"name\": null}]";
+    JSONValue columns = JSON.parseColumnar(source);
+    assertTrue(columns instanceof JSONColumnArray);
+    JSONColumnArray rows = (JSONColumnArray) columns;
+    assertTrue(rows.isSpecialized());
+    assertEquals(3, rows.size());
+    assertEquals(6, ((JSONLongArray) rows.column(new JSONString("id"))).longStream().sum());
+    assertEquals(12.75, ((JSONDoubleArray) rows.column(new JSONString("price"))).doubleStream().sum());
+    assertEquals(new JSONString("b"), ((JSONHash) rows.get(1)).get(new JSONString("name")));
+    // the same as an ordinary parse, in both directions
+    JSONValue plain = JSON.parse(source);
+    assertEquals(plain, columns);
+    assertEquals(columns, plain);
+    assertEquals(plain.hashCode(), columns.hashCode());
+    for (String text : new String[] { "[{\"p\": 2.82879384806159008E17}, {\"p\": 1.5}]",
+        "[{\"p\": 1.5}, {\"p\": 2.82879384806159008E17}]" }) {
+      JSONValue parsed = JSON.parseColumnar(text);
+      assertEquals(JSON.parse(text), parsed);
+      assertEquals(JSON.parse(text).toString(), parsed.toString());
+    } // for
+    // rows write through to the columns
+    JSONHash row = (JSONHash) rows.get(2);
+    row.set(new JSONString("id"), new JSONInteger(30));
+    assertEquals(33, ((JSONLongArray) rows.column(new JSONString("id"))).longStream().sum());
+    // a new key switches to hashes, which rows already handed out see
+    row.set(new JSONString("extra"), JSONConstant.TRUE);
+    assertFalse(rows.isSpecialized());
+    assertEquals(4, row.size());
+    assertEquals(JSONConstant.TRUE, ((JSONHash) rows.get(2)).get(new JSONString("extra")));
+    // rows with other keys, in any position, are kept as they are
+    String[] odd = { "[{\"a\": 1, \"b\": 2}, {\"a\": 3}]", "[{\"a\": 1}, {\"a\": 2, \"b\": 3}]",
+        "[{\"a\": 1, \"b\": 2}, {\"b\": 3, \"a\": 4}, {\"a\": 5, \"b\": 6}]", "[{\"a\": 1}, 2, {\"a\": 3}]" };
+    for (String text : odd) {
+      JSONColumnArray mixed = (JSONColumnArray) JSON.parseColumnar(text);
+      assertFalse(mixed.isSpecialized());
+      assertEquals(JSON.parse(text), mixed);
+    } // for
+    assertEquals(JSON.parse("[1, {\"a\": 2}]"), JSON.parseColumnar("[1, {\"a\": 2}]"));
+    assertFalse(JSON.parse(source) instanceof JSONColumnArray);
+    // rows handed out keep their hash when the array replaces it
+    JSONColumnArray replaced = (JSONColumnArray) JSON.parseColumnar("[{\"a\": 1}, {\"a\": 2}]");
+    JSONHash first = (JSONHash) replaced.get(0);
+    replaced.set(0, new JSONInteger(5));
+    assertEquals(1, first.size());
+    assertEquals(new JSONInteger(1), first.get(new JSONString("a")));
+    assertEquals(JSON.parse("[5, {\"a\": 2}]"), replaced);
+    // removing through an iterator switches to hashes
+    JSONColumnArray dropped = (JSONColumnArray) JSON.parseColumnar("[{\"a\": 1}, {\"a\": 2}, {\"a\": 3}]");
+    java.util.Iterator<JSONValue> it = dropped.iterator();
+    JSONHash kept = (JSONHash) it.next();
+    it.next();
+    it.remove();
+    assertThrows(IllegalStateException.class, () -> it.remove());
+    assertEquals(new JSONInteger(3), ((JSONHash) it.next()).get(new JSONString("a")));
+    assertFalse(it.hasNext());
+    assertFalse(dropped.isSpecialized());
+    assertEquals(JSON.parse("[{\"a\": 1}, {\"a\": 3}]"), dropped);
+    assertEquals(new JSONInteger(1), kept.get(new JSONString("a")));
+  } // columnarTest()
+
+  /*
+   * Check if values write themselves as JSON that parses back to equal
+   * values
+   */
+  @Test
+  void writeJSONTest() throws Exception {
+    String source = "{\"s\": \"a\\\"b\\\\c\\n\\u0001\u00e9\", \"n\": [1, -2, 123456789012345678901234567890,"
+        + " 2.5, 1E+3], \"c\": [true, false, null], \"h\": {}, \"a\": []}";
+    String expected = "{\"s\":\"a\\\"b\\\\c\\n\\u0001\u00e9\",\"n\":[1,-2,123456789012345678901234567890,"
+        + "2.5,1000.0],\"c\":[true,false,null],\"h\":{},\"a\":[]}";
+    JSONValue value = JSON.parse(source);
+    StringWriter out = new StringWriter();
+    value.writeJSON(out);
+    assertEquals(expected, out.toString());
+    StringBuilder builder = new StringBuilder();
+    JSON.parseLazy(source).writeJSON(builder);
+    assertEquals(expected, builder.toString());
+    StringWriter printed = new StringWriter();
+    JSON.freeze(value).writeJSON(new PrintWriter(printed));
+    assertEquals(value, JSON.parse(printed.toString()));
+    // specialized arrays write their elements directly
+    StringBuilder numbers = new StringBuilder();
+    JSON.parse("[[1, 2, 3], [0.5, -0.25]]").writeJSON(numbers);
+    assertEquals("[[1,2,3],[0.5,-0.25]]", numbers.toString());
+    // large enough to fill the buffer many times over
+    JSONArray big = new JSONArray();
+    for (int i = 0; i < 10000; i++) {
+      big.add(new JSONString("item " + i));
+    } // for
+    StringWriter bigOut = new StringWriter();
+    big.writeJSON(bigOut);
+    assertEquals(big, JSON.parse(bigOut.toString()));
+  } // writeJSONTest()
+
+  /*
+   * Check if values write themselves as UTF-8 that matches the character
+   * output, across buffer boundaries
+   */
+  @Test
+  void byteWriterTest() throws Exception {
+    StringBuilder text = new StringBuilder();
+    for (int i = 0; i < 3000; i++) {
+      text.append("ab\"\u00e9\u4e2d\uD83D\uDE00\n\u0007").append(i);
+    } // for
+    JSONHash hash = new JSONHash();
+    hash.set(new JSONString("k\u00e9y"), new JSONString(text.toString()));
+    hash.set(new JSONString("n"), JSON.parse("[1, 2.5, null, true]"));
+    StringBuilder chars = new StringBuilder();
+    hash.writeJSON(chars);
+    java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+    hash.writeJSON(bytes);
+    assertArrayEquals(chars.toString().getBytes("UTF-8"), bytes.toByteArray());
+    assertEquals(hash, JSON.parse(java.nio.ByteBuffer.wrap(bytes.toByteArray())));
+    java.nio.ByteBuffer target = java.nio.ByteBuffer.allocate(bytes.size() + 10);
+    target.put((byte) ' ');
+    hash.writeJSON(target);
+    assertEquals(bytes.size() + 1, target.position());
+    assertThrows(java.nio.BufferOverflowException.class,
+        () -> hash.writeJSON(java.nio.ByteBuffer.allocate(100)));
+    // lone surrogates cannot be encoded, so are escaped
+    java.io.ByteArrayOutputStream lone = new java.io.ByteArrayOutputStream();
+    new JSONString("a\uD800b").writeJSON(lone);
+    assertEquals("\"a\\ud800b\"", lone.toString("UTF-8"));
+  } // byteWriterTest()
+
+  /*
+   * Check if the compact, pretty, and line-delimited formats lay values
+   * out as they should, and toString gives compact JSON
+   */
+  @Test
+  void formatTest() throws Exception {
+    JSONValue value = JSON.parse("{\"a\": [1, {}, []], \"b\": {\"c\": null}}");
+    assertEquals("{\"a\":[1,{},[]],\"b\":{\"c\":null}}", value.toString());
+    assertEquals(value.toString(), JSON.freeze(value).toString());
+    assertEquals("{\n  \"a\": [\n    1,\n    {},\n    []\n  ],\n  \"b\": {\n    \"c\": null\n  }\n}",
+        JSON.toString(value, JSONFormat.PRETTY));
+    assertEquals("[\n\t\"x\"\n]", JSON.toString(JSON.parse("[\"x\"]"), JSONFormat.pretty("\t")));
+    assertEquals(value, JSON.parse(JSON.toString(value, JSONFormat.pretty(3))));
+    assertThrows(IllegalArgumentException.class, () -> JSONFormat.pretty("--"));
+    StringBuilder lines = new StringBuilder();
+    JSONWriter writer = new JSONCharWriter(lines).format(JSONFormat.LINES);
+    value.writeJSON(writer);
+    new JSONInteger(7).writeJSON(writer);
+    writer.flush();
+    assertEquals(value.toString() + "\n7\n", lines.toString());
+    ArrayList<JSONValue> records = new ArrayList<JSONValue>();
+    for (int i = 0; i < 100; i++) {
+      records.add(JSON.parse("{\"n\": " + i + ", \"s\": \"line\\nbreak\"}"));
+    } // for
+    java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+    JSONLines.write(records, out);
+    Object[] back = JSONLines.stream(out.toByteArray(), 0, out.size(), true).toArray();
+    assertArrayEquals(records.toArray(), back);
+    // large enough to grow the buffer many times
+    JSONArray big = new JSONArray();
+    for (int i = 0; i < 5000; i++) {
+      big.add(value);
+    } // for
+    assertEquals(big, JSON.parse(big.toString()));
+  } // formatTest()
+
+  /*
+   * Check if memoized containers reuse their encoding, and drop it when
+   * they or anything in them changes
+   */
+  @Test
+  void memoizeTest() throws Exception {
+    JSONHash catalog = (JSONHash) JSON.parse("{\"items\": [{\"id\": 1}, {\"id\": 2}], \"flags\": {\"on\": true}}");
+    catalog.memoize();
+    JSONArray items = (JSONArray) catalog.get(new JSONString("items"));
+    JSONHash second = (JSONHash) items.get(1);
+    java.io.ByteArrayOutputStream out = new java.io.ByteArrayOutputStream();
+    catalog.writeJSON(out);
+    assertNotNull(catalog.cache.encoded);
+    assertEquals(catalog.toString(), out.toString("UTF-8"));
+    // a change deep inside drops the saved encoding
+    second.set(new JSONString("id"), new JSONInteger(20));
+    assertNull(catalog.cache.encoded);
+    out.reset();
+    catalog.writeJSON(out);
+    assertEquals("{\"items\":[{\"id\":1},{\"id\":20}],\"flags\":{\"on\":true}}", out.toString("UTF-8"));
+    // spliced into a larger document, in any format
+    JSONArray page = new JSONArray();
+    page.add(catalog);
+    page.add(catalog);
+    out.reset();
+    page.writeJSON(out);
+    assertEquals("[" + catalog + "," + catalog + "]", out.toString("UTF-8"));
+    out.reset();
+    JSON.write(page, out, JSONFormat.PRETTY);
+    assertEquals(JSON.toString(page, JSONFormat.PRETTY), out.toString("UTF-8"));
+    // a container inside two memoized ones only lets the first save
+    JSONHash other = new JSONHash();
+    other.set(new JSONString("shared"), second);
+    other.memoize();
+    out.reset();
+    other.writeJSON(out);
+    assertNull(other.cache.encoded);
+    second.set(new JSONString("id"), new JSONInteger(2));
+    out.reset();
+    catalog.writeJSON(out);
+    assertEquals("{\"items\":[{\"id\":1},{\"id\":2}],\"flags\":{\"on\":true}}", out.toString("UTF-8"));
+    // a list handed out may change behind our backs, so is never saved
+    items.getValue().add(JSONConstant.NULL);
+    out.reset();
+    catalog.writeJSON(out);
+    assertNull(catalog.cache.encoded);
+    assertEquals(catalog, JSON.parse(out.toString("UTF-8")));
+    // removing through an iterator is a change, too
+    JSONArray letters = (JSONArray) JSON.parse("[\"a\", \"b\"]");
+    letters.memoize();
+    out.reset();
+    letters.writeJSON(out);
+    java.util.Iterator<JSONValue> it = letters.iterator();
+    it.next();
+    it.remove();
+    out.reset();
+    letters.writeJSON(out);
+    assertEquals("[\"b\"]", out.toString("UTF-8"));
+    // threads may write a memoized value at once, and only one of several
+    // memoized containers around a shared one saves its encoding
+    JSONHash shared = (JSONHash) JSON.parse("{\"n\": 1, \"list\": [1, 2, 3]}");
+    shared.memoize();
+    JSONArray[] pages = new JSONArray[8];
+    Thread[] threads = new Thread[pages.length];
+    String[] written = new String[pages.length];
+    for (int t = 0; t < threads.length; t++) {
+      final int id = t;
+      pages[t] = new JSONArray();
+      pages[t].add(shared);
+      pages[t].memoize();
+      threads[t] = new Thread(() -> {
+        try {
+          java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+          for (int i = 0; i < 200; i++) {
+            bytes.reset();
+            pages[id].writeJSON(bytes);
+          } // for
+          written[id] = bytes.toString("UTF-8");
+        } catch (Exception e) {
+          written[id] = e.toString();
+        } // try-catch
+      });
+      threads[t].start();
+    } // for
+    for (int t = 0; t < threads.length; t++) {
+      threads[t].join();
+      assertEquals("[{\"n\":1,\"list\":[1,2,3]}]", written[t]);
+    } // for
+    shared.set(new JSONString("n"), new JSONInteger(2));
+    for (JSONArray each : pages) {
+      out.reset();
+      each.writeJSON(out);
+      assertEquals("[{\"n\":2,\"list\":[1,2,3]}]", out.toString("UTF-8"));
+    } // for
+  } // memoizeTest()
+
+  /*
+   * Check if numbers are written in their shortest forms, with a decimal
+   * point for every real and an exponent only for very large or small ones
+   */
+  @Test
+  void numberFormatTest() throws Exception {
+    assertEquals("[0,7,-42,1234567890,9223372036854775807,-9223372036854775808]",
+        JSON.toString(JSON.parse("[0, 7, -42, 1234567890, 9223372036854775807,"
+            + " -9223372036854775808]"), JSONFormat.COMPACT));
+    JSONDoubleArray doubles = new JSONDoubleArray();
+    double[] nums = {0.1, 0.3, 1.0, -0.0, 100.0, 1e20, 1e21, 1e23, 0.000001, 1e-7,
+        2.5e-300, 5e-324, Double.MAX_VALUE, 123.456};
+    for (double num : nums) {
+      doubles.addDouble(num);
+    } // for
+    assertEquals("[0.1,0.3,1.0,-0.0,100.0,100000000000000000000.0,1.0e21,1.0e23,"
+        + "0.000001,1.0e-7,2.5e-300,4.9e-324,1.7976931348623157e308,123.456]",
+        JSON.toString(doubles, JSONFormat.COMPACT));
+    // the same through bytes
+    java.io.ByteArrayOutputStream bytes = new java.io.ByteArrayOutputStream();
+    JSON.write(doubles, bytes, JSONFormat.COMPACT);
+    assertEquals(JSON.toString(doubles, JSONFormat.COMPACT), bytes.toString("UTF-8"));
+    // shortest digits read back as the same double
+    java.util.Random random = new java.util.Random(24);
+    JSONDoubleArray randoms = new JSONDoubleArray();
+    for (int i = 0; i < 1000; i++) {
+      double num = Double.longBitsToDouble(random.nextLong());
+      if (Double.isFinite(num)) {
+        randoms.addDouble(num);
+      } // if
+    } // for
+    String text = JSON.toString(randoms, JSONFormat.COMPACT);
+    String[] parts = text.substring(1, text.length() - 1).split(",");
+    for (int i = 0; i < parts.length; i++) {
+      double num = randoms.getDouble(i);
+      assertEquals(num, Double.parseDouble(parts[i]));
+      assertTrue(parts[i].replaceAll("[-.]|e.*", "").replaceAll("^0+|0+$", "").length()
+          <= new BigDecimal(Double.toString(num)).stripTrailingZeros().precision());
+    } // for
+    // reals keep their value, but lose their exponents and trailing zeros
+    assertEquals("[1000.0,2.5,0.0,-0.00125,1.0e-400,123456789012345678901.5]",
+        JSON.toString(JSON.parse("[1E+3, 2.50, 0.000, -1.25e-3, 1e-400,"
+            + " 123456789012345678901.50]"), JSONFormat.COMPACT));
+  } // numberFormatTest()
+
+  /*
+   * Check if values survive a trip through CBOR, if the CBOR matches the
+   * examples in RFC 8949, and if shared strings make it smaller
+   */
+  @Test
+  void cborTest() throws Exception {
+    String source = "{\"s\": \"a\\u00e9\\ud83d\\ude00\", \"n\": [0, -1, 23, 24, -1000, 9223372036854775807,"
+        + " 18446744073709551616, -18446744073709551617, 1.5, 0.1, -2.5e-300, 3.14159265358979323846],"
+        + " \"d\": [0.5, 100000.0, 1.1], \"c\": [true, false, null], \"h\": {}, \"a\": [],"
+        + " \"rows\": [{\"id\": 1, \"name\": \"alpha\"}, {\"id\": 2, \"name\": \"beta\"}]}";
+    JSONValue value = JSON.parse(source);
+    byte[] plain = JSONCBOR.toBytes(value, false);
+    assertEquals(value, JSONCBOR.parse(plain, 0, plain.length));
+    byte[] columnar = JSONCBOR.toBytes(JSON.parseColumnar(source), true);
+    assertEquals(value, JSONCBOR.parse(columnar, 0, columnar.length));
+    assertEquals(value, JSONCBOR.parse(java.nio.ByteBuffer.wrap(JSONCBOR.toBytes(JSON.freeze(value), false))));
+    // numeric arrays come back specialized
+    JSONValue doubles = ((JSONHash) JSONCBOR.parse(plain, 0, plain.length)).get(new JSONString("d"));
+    assertTrue(((JSONDoubleArray) doubles).isSpecialized());
+    // examples from appendix A of the RFC
+    assertArrayEquals(new byte[] { 0x19, 0x03, (byte) 0xe8 },
+        JSONCBOR.toBytes(new JSONInteger(1000), false));
+    assertArrayEquals(new byte[] { 0x39, 0x03, (byte) 0xe7 },
+        JSONCBOR.toBytes(new JSONInteger(-1000), false));
+    assertArrayEquals(new byte[] { (byte) 0xf9, 0x3e, 0x00 },
+        JSONCBOR.toBytes(new JSONReal("1.5"), false));
+    assertArrayEquals(new byte[] { (byte) 0xfa, 0x47, (byte) 0xc3, 0x50, 0x00 },
+        JSONCBOR.toBytes(new JSONReal("100000.0"), false));
+    assertArrayEquals(new byte[] { (byte) 0xfb, 0x3f, (byte) 0xf1, (byte) 0x99, (byte) 0x99,
+        (byte) 0x99, (byte) 0x99, (byte) 0x99, (byte) 0x9a },
+        JSONCBOR.toBytes(new JSONReal("1.1"), false));
+    assertArrayEquals(new byte[] { (byte) 0xa1, 0x61, 0x61, (byte) 0x82, 0x01, 0x02 },
+        JSONCBOR.toBytes(JSON.parse("{\"a\": [1, 2]}"), false));
+    // indefinite lengths, byte strings, undefined and stringrefs
+    byte[] odd = { (byte) 0x9f, 0x42, 0x01, 0x02, (byte) 0xf7, (byte) 0xd9, 0x01, 0x00,
+        (byte) 0x82, 0x63, 'a', 'b', 'c', (byte) 0xd8, 0x19, 0x00, (byte) 0xff };
+    assertEquals(JSON.parse("[\"AQI\", null, [\"abc\", \"abc\"]]"), JSONCBOR.parse(odd, 0, odd.length));
+    // shared keys
+    JSONArray records = new JSONArray();
+    for (int i = 0; i < 100; i++) {
+      records.add(JSON.parse("{\"identifier\": " + i + ", \"description\": \"item\"}"));
+    } // for
+    byte[] shared = JSONCBOR.toBytes(records, true);
+    assertTrue(shared.length < JSONCBOR.toBytes(records, false).length / 2);
+    assertEquals(records, JSONCBOR.parse(shared, 0, shared.length));
+    // bad input
+    assertThrows(java.text.ParseException.class, () -> JSONCBOR.parse(new byte[] { (byte) 0x82, 0x01 }, 0, 2));
+    assertThrows(java.text.ParseException.class, () -> JSONCBOR.parse(new byte[] { 0x01, 0x02 }, 0, 2));
+  } // cborTest()
   
 } // class JSONTests